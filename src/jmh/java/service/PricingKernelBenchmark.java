@@ -0,0 +1,91 @@
+package service;
+
+import modelDTO.Order;
+import modelDTO.Tax;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares pricing a batch of orders through the BigDecimal Order.calculate* methods with the scalar
+ * and Vector API column kernels. Build with mvn -P benchmark package (which also compiles the Vector API
+ * kernel) and run
+ * java --add-modules jdk.incubator.vector -jar target/benchmarks.jar PricingKernelBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Thread)
+public class PricingKernelBenchmark {
+
+    @Param({"1000", "100000"})
+    private int count;
+
+    private Order[] orders;
+    private Tax[] taxes;
+    private long[] area;
+    private long[] cost;
+    private long[] labor;
+    private long[] rate;
+    private long[] materialCost;
+    private long[] laborCost;
+    private long[] tax;
+    private long[] total;
+    private PricingKernel scalar;
+    private PricingKernel vector;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        orders = new Order[count];
+        taxes = new Tax[count];
+        area = new long[count];
+        cost = new long[count];
+        labor = new long[count];
+        rate = new long[count];
+        materialCost = new long[count];
+        laborCost = new long[count];
+        tax = new long[count];
+        total = new long[count];
+        for (int i = 0; i < count; i++) {
+            area[i] = 10000 + random.nextInt(1_000_000);
+            cost[i] = 100 + random.nextInt(900);
+            labor[i] = 100 + random.nextInt(900);
+            rate[i] = random.nextInt(1000);
+            orders[i] = new Order(i, "Customer", "TX", BigDecimal.valueOf(rate[i], 2), "Tile", BigDecimal.valueOf(area[i], 2),
+                    BigDecimal.valueOf(cost[i], 2), BigDecimal.valueOf(labor[i], 2), null, null, null, null, new Date());
+            taxes[i] = new Tax("TX", "Texas", BigDecimal.valueOf(rate[i], 2));
+        }
+        scalar = new ScalarPricingKernel();
+        vector = new VectorPricingKernel();
+    }
+
+    @Benchmark
+    public void orderCalculate(Blackhole blackhole) {
+        for (int i = 0; i < count; i++) {
+            Order order = orders[i];
+            blackhole.consume(order.calculateMaterialCost());
+            blackhole.consume(order.calculateLaborCost());
+            blackhole.consume(order.calculateTax(taxes[i]));
+            blackhole.consume(order.calculateTotal(taxes[i]));
+        }
+    }
+
+    @Benchmark
+    public long[] scalarKernel() {
+        scalar.priceAll(area, cost, labor, rate, materialCost, laborCost, tax, total, count);
+        return total;
+    }
+
+    @Benchmark
+    public long[] vectorKernel() {
+        vector.priceAll(area, cost, labor, rate, materialCost, laborCost, tax, total, count);
+        return total;
+    }
+}
@@ -3,18 +3,16 @@ package controller;
 import modelDTO.Order;
 import modelDTO.Product;
 import modelDTO.Tax;
+import service.BulkOrderImporter;
 import service.OrderService;
 import service.ProductService;
 import service.TaxService;
 import view.MenuView;
 import service.ServiceException;
 
-import java.io.FileWriter;
-import java.io.IOException;
 import java.math.BigDecimal;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.Date;
@@ -41,7 +39,9 @@ public class FlooringMasteryController {
 
     // Path to export data
     private static final String EXPORT_FILE_PATH = "src/main/java/Backup/DataExport.txt";
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MM-dd-yyyy");
+    private static final String DELTA_EXPORT_PREFIX = "src/main/java/Backup/DataExport_";
+    private static final String DELTA_WATERMARK_PATH = "src/main/java/Backup/DataExport.watermark";
+    private static final String COMPRESSED_EXPORT_FOLDER = "src/main/java/Backup/CompressedExport";
 
     /**
      * Constructor initializes the main services and view.
@@ -224,11 +224,24 @@ public class FlooringMasteryController {
                         menuView.displayMessage("Order removed successfully.");
                         break;
                     case 5: // Export All Data
-                        exportAllData();
+                        String exportMode = menuView.getUserInputString("Export all orders (A), only the changes since the last delta export (C), "
+                                + "or compressed files per month (M) or per state (S)? ").trim().toUpperCase();
+                        if (exportMode.equals("C")) {
+                            exportChanges();
+                        } else if (exportMode.equals("M")) {
+                            exportCompressed(OrderService.ExportPartitioning.MONTH);
+                        } else if (exportMode.equals("S")) {
+                            exportCompressed(OrderService.ExportPartitioning.STATE);
+                        } else {
+                            exportAllData();
+                        }
 
                         menuView.displayMessage("Data exported successfully.");
                         break;
-                    case 6: // Quit
+                    case 6: // Import Orders
+                        importOrders();
+                        break;
+                    case 7: // Quit
                         quit = true;
                         break;
                     default:
@@ -253,49 +266,56 @@ public class FlooringMasteryController {
     private void exportAllData() {
         System.out.println("Exporting data...");
         try {
-            // Backup directory
-            Files.createDirectories(Paths.get("src/main/java/Backup"));
-
-            // Get all the orders
-            List<Order> allOrders = orderService.getAllOrders();
+            long exported = orderService.exportAllData(EXPORT_FILE_PATH);
+            System.out.println("Exported " + exported + " orders to " + EXPORT_FILE_PATH);
+        } catch (ServiceException e) {
+            e.printStackTrace();
+            menuView.displayErrorMessage("Error exporting data: " + e.getMessage());
+        }
+    }
 
-            // Convert the orders to a string format
-            StringBuilder dataToExport = new StringBuilder("OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate\n");
-            for (Order order : allOrders) {
-                dataToExport.append(orderToString(order)).append("\n");
-            }
+    /**
+     * Exporting only the orders changed since the last delta export to a timestamped file in the Backup folder
+     *
+     */
+    private void exportChanges() {
+        System.out.println("Exporting changes...");
+        String deltaPath = DELTA_EXPORT_PREFIX + DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss").format(LocalDateTime.now()) + ".delta.txt";
+        try {
+            long exported = orderService.exportChanges(deltaPath, DELTA_WATERMARK_PATH);
+            System.out.println("Exported " + exported + " changes to " + deltaPath);
+        } catch (ServiceException e) {
+            e.printStackTrace();
+            menuView.displayErrorMessage("Error exporting changes: " + e.getMessage());
+        }
+    }
 
-            // Write  data to the file
-            try (FileWriter writer = new FileWriter(EXPORT_FILE_PATH)) {
-                writer.write(dataToExport.toString());
-                writer.flush();  // Ensures all data is written to the file immediately
-            }
-        } catch (ServiceException | IOException e) {
+    /**
+     * Exporting all orders as compressed files per month or per state to the Backup folder
+     *
+     */
+    private void exportCompressed(OrderService.ExportPartitioning partitioning) {
+        System.out.println("Exporting compressed data...");
+        try {
+            long exported = orderService.exportCompressed(COMPRESSED_EXPORT_FOLDER, partitioning);
+            System.out.println("Exported " + exported + " orders to " + COMPRESSED_EXPORT_FOLDER);
+        } catch (ServiceException e) {
             e.printStackTrace();
             menuView.displayErrorMessage("Error exporting data: " + e.getMessage());
         }
     }
 
     /**
-     * Converting to String where necessary
-     * @param order
-     * @return
+     * Importing a CSV batch of orders; rejected rows are written next to the file
+     *
      */
-    private String orderToString(Order order) {
-        return String.format("%d,%s,%s,%.2f,%s,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f,%s",
-                order.getOrderNumber(),
-                order.getCustomerName(),
-                order.getState(),
-                order.getTaxRate(),
-                order.getProductType(),
-                order.getArea(),
-                order.getCostPerSquareFoot(),
-                order.getLaborCostPerSquareFoot(),
-                order.getMaterialCost(),
-                order.getLaborCost(),
-                order.getTax(),
-                order.getTotal(),
-                DATE_FORMATTER.format(order.getOrderDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate())
-        );
+    private void importOrders() {
+        String csvPath = menuView.getUserInputString("Enter the path of the CSV file to import: ").trim();
+        String rejectPath = csvPath + ".rejects.csv";
+        BulkOrderImporter.ImportReport report = orderService.importOrders(csvPath, rejectPath);
+        menuView.displayMessage(report.summary());
+        if (report.getRejected() > 0) {
+            menuView.displayMessage("Rejected rows were written to " + rejectPath);
+        }
     }
 }
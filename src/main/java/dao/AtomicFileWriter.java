@@ -0,0 +1,167 @@
+package dao;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The AtomicFileWriter class replaces data files so that a crash never leaves a half-written file behind.
+ *
+ * A write goes to a temporary file in the same folder, which is forced to disk and then moved over the
+ * target with an atomic rename. Before the rename, the current file is kept as the previous generation
+ * (name.prev), and a checksum sidecar (name.crc) records the CRC32 and length of the new content and of
+ * the generations before it. The recorded checksums are carried over from the old sidecar, so a save never
+ * reads the current file back in. verify() uses the sidecar to detect, at startup, a file that matches none
+ * of them, and verifyOrRestore() brings back the previous generation in that case.
+ */
+public class AtomicFileWriter {
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String PREVIOUS_SUFFIX = ".prev";
+    private static final String CHECKSUM_SUFFIX = ".crc";
+
+    /**
+     * Atomically replaces a file with the given content, keeping the current content as the previous generation.
+     * @param target The file to replace.
+     * @param content The new content.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(Path target, String content) throws IOException {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Path checksums = sidecar(target, CHECKSUM_SUFFIX);
+        List<String> recorded;
+        if (Files.exists(checksums)) {
+            recorded = Files.readAllLines(checksums, StandardCharsets.US_ASCII);
+        } else {
+            // Only a file written before checksums were introduced has to be read to learn its checksum
+            recorded = Files.exists(target) ? List.of(checksum(Files.readAllBytes(target))) : List.of();
+        }
+
+        // The sidecar accepts the current generation as well as the new one, so it is valid before and after the
+        // rename below. The one before that is kept too, in case an earlier save stopped between the two renames.
+        StringBuilder sidecar = new StringBuilder(checksum(bytes)).append('\n');
+        for (String line : recorded.subList(0, Math.min(2, recorded.size()))) {
+            sidecar.append(line).append('\n');
+        }
+        replace(checksums, sidecar.toString().getBytes(StandardCharsets.US_ASCII));
+        if (Files.exists(target)) {
+            Path previous = sidecar(target, PREVIOUS_SUFFIX);
+            Files.deleteIfExists(previous);
+            try {
+                Files.createLink(previous, target);
+            } catch (UnsupportedOperationException | IOException e) {
+                Files.copy(target, previous, StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+        replace(target, bytes);
+    }
+
+    /**
+     * Checks a file against its checksum sidecar, and brings back the previous generation if the file is missing.
+     * Files written before checksums were introduced have no sidecar and are accepted as they are.
+     * @param target The file to check.
+     * @return false if the file matches neither checksum in its sidecar.
+     */
+    public static boolean verify(Path target) {
+        Path checksums = sidecar(target, CHECKSUM_SUFFIX);
+        Path previous = sidecar(target, PREVIOUS_SUFFIX);
+        try {
+            if (!Files.exists(target) && Files.exists(previous)) {
+                System.err.println("Restoring missing file " + target + " from its previous generation.");
+                Files.copy(previous, target);
+            }
+            if (!Files.exists(target) || !Files.exists(checksums)) {
+                return true;
+            }
+            List<String> expected = Files.readAllLines(checksums, StandardCharsets.US_ASCII);
+            String actual = checksum(Files.readAllBytes(target));
+            if (expected.contains(actual)) {
+                return true;
+            }
+            System.err.println("Warning: " + target + " does not match its checksum and may be torn; "
+                    + "the previous version is kept in " + previous + ".");
+            return false;
+        } catch (IOException ex) {
+            System.err.println("Error verifying " + target + ": " + ex.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Checks a file against its checksum sidecar and, if it matches none of the recorded checksums,
+     * replaces it with its previous generation.
+     * @param target The file to check.
+     * @throws IOException If the file is torn and there is no previous generation to restore, or it cannot be copied.
+     */
+    public static void verifyOrRestore(Path target) throws IOException {
+        if (verify(target)) {
+            return;
+        }
+        if (!Files.exists(sidecar(target, PREVIOUS_SUFFIX))) {
+            throw new IOException(target + " does not match its checksum and has no previous version to restore.");
+        }
+        System.err.println("Restoring " + target + " from its previous generation.");
+        restorePrevious(target);
+    }
+
+    /**
+     * Replaces a file with its previous generation, which is kept as it is.
+     * @param target The file to restore.
+     * @throws IOException If there is no previous generation or it cannot be copied.
+     */
+    public static void restorePrevious(Path target) throws IOException {
+        byte[] bytes = Files.readAllBytes(sidecar(target, PREVIOUS_SUFFIX));
+        String checksum = checksum(bytes);
+        replace(sidecar(target, CHECKSUM_SUFFIX), (checksum + "\n").getBytes(StandardCharsets.US_ASCII));
+        replace(target, bytes);
+    }
+
+    /**
+     * Deletes a file together with its previous generation and checksum sidecar.
+     * @param target The file to delete.
+     * @return true if the file itself was deleted.
+     */
+    public static boolean delete(Path target) {
+        try {
+            Files.deleteIfExists(sidecar(target, PREVIOUS_SUFFIX));
+            Files.deleteIfExists(sidecar(target, CHECKSUM_SUFFIX));
+            return Files.deleteIfExists(target);
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes bytes to a forced temporary file and renames it over the target.
+     */
+    private static void replace(Path target, byte[] bytes) throws IOException {
+        Path temp = sidecar(target, TEMP_SUFFIX);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path sidecar(Path target, String suffix) {
+        return target.resolveSibling(target.getFileName() + suffix);
+    }
+
+    private static String checksum(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return Long.toHexString(crc.getValue()) + " " + bytes.length;
+    }
+}
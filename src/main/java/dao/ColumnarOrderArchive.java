@@ -0,0 +1,336 @@
+package dao;
+
+import modelDTO.Order;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The ColumnarOrderArchive class is a read-optimized copy of historical orders, stored as one file per
+ * order field in a folder next to the per-date CSV files.
+ *
+ * Text columns are dictionary encoded: each row holds an int code into a dictionary of the distinct
+ * values, kept in a .dict file beside the column. Decimal columns are fixed point: one scale for the
+ * whole column and a long per row. Dates are epoch days. A reader maps only the column files a query
+ * asks for, so a report over state and total never touches the customer names.
+ *
+ * An archive is written into a sibling ".tmp" folder and renamed into place when complete, so readers
+ * see either the previous archive or the new one, never a mix of both.
+ */
+public class ColumnarOrderArchive {
+
+    private static final int MAGIC = 0x4F524343;  // "ORCC"
+    private static final int VERSION = 1;
+    private static final String META_FILE = "archive.meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String OLD_SUFFIX = ".old";
+
+    private final File folder;
+    private final int rowCount;
+
+    /**
+     * Opens an archive written by write().
+     * @param folder The archive folder.
+     */
+    public ColumnarOrderArchive(String folder) {
+        this.folder = new File(folder);
+        File previous = new File(folder + OLD_SUFFIX);
+        if (!this.folder.exists() && previous.exists()) {
+            // A replacement stopped between its two renames; the previous archive is still whole
+            previous.renameTo(this.folder);
+        }
+        try (DataInputStream meta = new DataInputStream(new FileInputStream(new File(this.folder, META_FILE)))) {
+            if (meta.readInt() != MAGIC || meta.readInt() != VERSION) {
+                throw new DataPersistenceException("Not a columnar order archive: " + folder);
+            }
+            rowCount = meta.readInt();
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error opening columnar order archive.", ex);
+        }
+    }
+
+    /**
+     * Writes orders into an archive folder, replacing any archive already there.
+     * @param folder The archive folder; created if missing.
+     * @param orders The orders to archive, in the row order of the archive.
+     * @return The opened archive.
+     */
+    public static ColumnarOrderArchive write(String folder, List<Order> orders) {
+        Path target = new File(folder).toPath();
+        Path staging = new File(folder + TEMP_SUFFIX).toPath();
+        Path previous = new File(folder + OLD_SUFFIX).toPath();
+        File directory = staging.toFile();
+        ZoneId zone = ZoneId.systemDefault();
+        try {
+            deleteFolder(staging);  // Left over from a write that did not finish
+            Files.createDirectories(staging);
+            for (OrderColumn column : OrderColumn.values()) {
+                File file = new File(directory, column.getFileName());
+                try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+                    switch (column.getKind()) {
+                        case INT:
+                            for (Order order : orders) {
+                                out.writeInt(order.getOrderNumber());
+                            }
+                            break;
+                        case DATE:
+                            for (Order order : orders) {
+                                out.writeInt((int) order.getOrderDate().toInstant().atZone(zone).toLocalDate().toEpochDay());
+                            }
+                            break;
+                        case TEXT:
+                            writeTextColumn(directory, column, orders, out);
+                            break;
+                        case DECIMAL:
+                            writeDecimalColumn(column, orders, out);
+                            break;
+                    }
+                }
+            }
+            // The meta file goes last, so a half-written archive cannot be opened
+            try (FileOutputStream metaFile = new FileOutputStream(new File(directory, META_FILE));
+                 DataOutputStream meta = new DataOutputStream(metaFile)) {
+                meta.writeInt(MAGIC);
+                meta.writeInt(VERSION);
+                meta.writeInt(orders.size());
+                meta.flush();
+                metaFile.getFD().sync();
+            }
+            // Swap the complete archive in; the previous one is kept aside until the new one is in place
+            deleteFolder(previous);
+            if (Files.exists(target)) {
+                Files.move(target, previous, StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.move(staging, target, StandardCopyOption.ATOMIC_MOVE);
+            deleteFolder(previous);
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error writing columnar order archive.", ex);
+        }
+        return new ColumnarOrderArchive(folder);
+    }
+
+    private static void deleteFolder(Path folder) throws IOException {
+        if (!Files.exists(folder)) {
+            return;
+        }
+        List<Path> paths;
+        try (Stream<Path> walk = Files.walk(folder)) {
+            paths = walk.sorted(Comparator.reverseOrder()).collect(Collectors.toList());
+        }
+        for (Path path : paths) {
+            Files.delete(path);
+        }
+    }
+
+    private static void writeTextColumn(File directory, OrderColumn column, List<Order> orders, DataOutputStream out) throws IOException {
+        Map<String, Integer> codes = new LinkedHashMap<>();
+        for (Order order : orders) {
+            String value = text(column, order);
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = codes.size();
+                codes.put(value, code);
+            }
+            out.writeInt(code);
+        }
+        File dictionaryFile = new File(directory, column.getFileName().replace(".col", ".dict"));
+        try (DataOutputStream dictionary = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(dictionaryFile)))) {
+            dictionary.writeInt(codes.size());
+            for (String value : codes.keySet()) {
+                dictionary.writeUTF(value);
+            }
+        }
+    }
+
+    private static void writeDecimalColumn(OrderColumn column, List<Order> orders, DataOutputStream out) throws IOException {
+        int scale = 0;
+        for (Order order : orders) {
+            scale = Math.max(scale, decimal(column, order).scale());
+        }
+        out.writeInt(scale);
+        for (Order order : orders) {
+            try {
+                out.writeLong(decimal(column, order).setScale(scale).unscaledValue().longValueExact());
+            } catch (ArithmeticException e) {
+                throw new DataPersistenceException(decimal(column, order) + " does not fit the " + column + " column.", e);
+            }
+        }
+    }
+
+    private static String text(OrderColumn column, Order order) {
+        String value;
+        switch (column) {
+            case CUSTOMER_NAME: value = order.getCustomerName(); break;
+            case STATE: value = order.getState(); break;
+            default: value = order.getProductType(); break;
+        }
+        return value == null ? "" : value;
+    }
+
+    private static BigDecimal decimal(OrderColumn column, Order order) {
+        switch (column) {
+            case TAX_RATE: return order.getTaxRate();
+            case AREA: return order.getArea();
+            case COST_PER_SQUARE_FOOT: return order.getCostPerSquareFoot();
+            case LABOR_COST_PER_SQUARE_FOOT: return order.getLaborCostPerSquareFoot();
+            case MATERIAL_COST: return order.getMaterialCost();
+            case LABOR_COST: return order.getLaborCost();
+            case TAX: return order.getTax();
+            default: return order.getTotal();
+        }
+    }
+
+    /**
+     * @return The number of archived orders.
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Reads the given columns, and only those, into memory.
+     * @param columns The columns a query needs.
+     * @return The columns, addressed by row.
+     */
+    public Columns read(Set<OrderColumn> columns) {
+        Columns result = new Columns(rowCount);
+        try {
+            for (OrderColumn column : columns) {
+                ByteBuffer data = map(new File(folder, column.getFileName()));
+                switch (column.getKind()) {
+                    case INT:
+                    case DATE:
+                        int[] ints = new int[rowCount];
+                        data.asIntBuffer().get(ints);
+                        result.ints.put(column, ints);
+                        break;
+                    case TEXT:
+                        int[] codes = new int[rowCount];
+                        data.asIntBuffer().get(codes);
+                        result.codes.put(column, codes);
+                        result.dictionaries.put(column, readDictionary(column));
+                        break;
+                    case DECIMAL:
+                        int scale = data.getInt();
+                        long[] unscaled = new long[rowCount];
+                        data.asLongBuffer().get(unscaled);
+                        result.unscaled.put(column, unscaled);
+                        result.scales.put(column, scale);
+                        break;
+                }
+            }
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error reading columnar order archive.", ex);
+        }
+        return result;
+    }
+
+    private MappedByteBuffer map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    private String[] readDictionary(OrderColumn column) throws IOException {
+        File file = new File(folder, column.getFileName().replace(".col", ".dict"));
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            String[] values = new String[in.readInt()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = in.readUTF();
+            }
+            return values;
+        }
+    }
+
+    /**
+     * The columns read by one query. Asking for a column that was not read throws IllegalArgumentException.
+     */
+    public static class Columns {
+        private final int rowCount;
+        private final Map<OrderColumn, int[]> ints = new EnumMap<>(OrderColumn.class);
+        private final Map<OrderColumn, int[]> codes = new EnumMap<>(OrderColumn.class);
+        private final Map<OrderColumn, String[]> dictionaries = new EnumMap<>(OrderColumn.class);
+        private final Map<OrderColumn, long[]> unscaled = new EnumMap<>(OrderColumn.class);
+        private final Map<OrderColumn, Integer> scales = new EnumMap<>(OrderColumn.class);
+        private final ZoneId zone = ZoneId.systemDefault();
+
+        private Columns(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return The order number of a row.
+         */
+        public int getOrderNumber(int row) {
+            return column(ints, OrderColumn.ORDER_NUMBER)[row];
+        }
+
+        /**
+         * @return The order date of a row as an epoch day, which is cheaper to compare than a Date.
+         */
+        public int getEpochDay(int row) {
+            return column(ints, OrderColumn.ORDER_DATE)[row];
+        }
+
+        public Date getOrderDate(int row) {
+            return Date.from(LocalDate.ofEpochDay(getEpochDay(row)).atStartOfDay(zone).toInstant());
+        }
+
+        /**
+         * @return The dictionary code of a text column in a row; equal codes mean equal values.
+         */
+        public int getCode(OrderColumn column, int row) {
+            return column(codes, column)[row];
+        }
+
+        /**
+         * @return The distinct values of a text column, indexed by code.
+         */
+        public String[] getDictionary(OrderColumn column) {
+            return column(dictionaries, column);
+        }
+
+        public String getString(OrderColumn column, int row) {
+            return getDictionary(column)[getCode(column, row)];
+        }
+
+        /**
+         * @return The unscaled value of a decimal column in a row, at the scale of getScale(column).
+         */
+        public long getUnscaled(OrderColumn column, int row) {
+            return column(unscaled, column)[row];
+        }
+
+        public int getScale(OrderColumn column) {
+            return column(scales, column);
+        }
+
+        public BigDecimal getDecimal(OrderColumn column, int row) {
+            return BigDecimal.valueOf(getUnscaled(column, row), getScale(column));
+        }
+
+        private <T> T column(Map<OrderColumn, T> columns, OrderColumn column) {
+            T values = columns.get(column);
+            if (values == null) {
+                throw new IllegalArgumentException("Column " + column + " was not read.");
+            }
+            return values;
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package dao;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The CsvRecordReader class streams the comma separated records of the order, product and tax files.
+ *
+ * Each line is copied into one reusable char buffer and its fields are located by offset, so reading
+ * a record allocates nothing until a field is asked for. Numbers and MM-dd-yyyy dates are parsed
+ * straight from the buffer; only text fields become Strings. Fields are trimmed, blank lines are
+ * skipped, and a field that cannot be read raises a MalformedRecordException naming its line.
+ */
+public class CsvRecordReader implements Closeable {
+
+    // Decimals with more digits than this cannot be held in a long and fall back to the BigDecimal parser
+    private static final int MAX_LONG_DIGITS = 18;
+
+    private final Reader reader;
+    private final String source;
+    private final char[] input = new char[8192];
+    private int inputPosition;
+    private int inputLimit;
+
+    private char[] line = new char[256];
+    private int lineLength;
+    private int lineNumber;
+
+    private int[] fieldStarts = new int[16];
+    private int[] fieldEnds = new int[16];
+    private int fieldCount;
+
+    private final ZoneId zone = ZoneId.systemDefault();
+    // Midnight (in the system time zone) of every date seen so far, keyed by yyyymmdd
+    private final Map<Integer, Long> dateMillis = new HashMap<>();
+
+    /**
+     * Creates a reader over a character stream.
+     * @param reader The stream to read; closed by close().
+     * @param source The name of the stream (usually the file path), used in error messages.
+     */
+    public CsvRecordReader(Reader reader, String source) {
+        this.reader = reader;
+        this.source = source;
+    }
+
+    /**
+     * Moves to the next non-blank line.
+     * @return false at the end of the stream.
+     * @throws IOException If the stream cannot be read.
+     */
+    public boolean next() throws IOException {
+        do {
+            if (!readLine()) {
+                fieldCount = 0;
+                return false;
+            }
+            splitFields();
+        } while (fieldCount == 1 && fieldStarts[0] == fieldEnds[0]);
+        return true;
+    }
+
+    /**
+     * @return The current line as it was read, without its line break.
+     */
+    public String getLine() {
+        return new String(line, 0, lineLength);
+    }
+
+    /**
+     * @return The 1-based number of the current line.
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return The number of fields on the current line.
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Checks that the current line has at least the given number of fields.
+     * @param expected The number of fields the record needs.
+     * @throws MalformedRecordException If the line is shorter.
+     */
+    public void requireFields(int expected) {
+        if (fieldCount < expected) {
+            throw malformed("expected " + expected + " fields but found " + fieldCount);
+        }
+    }
+
+    /**
+     * @param field The 0-based field index.
+     * @return The trimmed text of the field.
+     */
+    public String getString(int field) {
+        checkField(field);
+        return new String(line, fieldStarts[field], fieldEnds[field] - fieldStarts[field]);
+    }
+
+    /**
+     * @param field The 0-based field index.
+     * @return The field parsed as a whole number.
+     */
+    public int getInt(int field) {
+        checkField(field);
+        int position = fieldStarts[field];
+        int end = fieldEnds[field];
+        boolean negative = position < end && line[position] == '-';
+        if (negative || (position < end && line[position] == '+')) {
+            position++;
+        }
+        if (position == end || end - position > 9) {
+            throw malformed("field " + (field + 1) + " is not a whole number: " + getString(field));
+        }
+        int value = 0;
+        for (; position < end; position++) {
+            int digit = line[position] - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed("field " + (field + 1) + " is not a whole number: " + getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses a plain decimal such as 1596.25, keeping the scale written in the file.
+     * @param field The 0-based field index.
+     * @return The field as a BigDecimal.
+     */
+    public BigDecimal getDecimal(int field) {
+        checkField(field);
+        int start = fieldStarts[field];
+        int end = fieldEnds[field];
+        int position = start;
+        boolean negative = position < end && line[position] == '-';
+        if (negative || (position < end && line[position] == '+')) {
+            position++;
+        }
+        long unscaled = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; position < end; position++) {
+            char c = line[position];
+            if (c == '.' && scale < 0) {
+                scale = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                return parseDecimalSlowly(field, start, end);
+            }
+            if (++digits > MAX_LONG_DIGITS) {
+                return parseDecimalSlowly(field, start, end);
+            }
+            unscaled = unscaled * 10 + (c - '0');
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0) {
+            throw malformed("field " + (field + 1) + " is not a number: " + getString(field));
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    /**
+     * Parses a date written as MM-dd-yyyy into midnight of that day in the system time zone.
+     * @param field The 0-based field index.
+     * @return The field as a Date.
+     */
+    public Date getDate(int field) {
+        checkField(field);
+        int start = fieldStarts[field];
+        if (fieldEnds[field] - start != 10 || line[start + 2] != '-' || line[start + 5] != '-') {
+            throw malformed("field " + (field + 1) + " is not an MM-dd-yyyy date: " + getString(field));
+        }
+        int month = digits(field, start, 2);
+        int day = digits(field, start + 3, 2);
+        int year = digits(field, start + 6, 4);
+        Long millis = dateMillis.get(year * 10000 + month * 100 + day);
+        if (millis == null) {
+            try {
+                millis = LocalDate.of(year, month, day).atStartOfDay(zone).toInstant().toEpochMilli();
+            } catch (DateTimeException e) {
+                throw malformed("field " + (field + 1) + " is not a valid date: " + getString(field));
+            }
+            dateMillis.put(year * 10000 + month * 100 + day, millis);
+        }
+        return new Date(millis);
+    }
+
+    /**
+     * Builds an exception for the current line.
+     * @param message What is wrong with the line.
+     * @return The exception, for the caller to throw.
+     */
+    public MalformedRecordException malformed(String message) {
+        return new MalformedRecordException(source, lineNumber, message);
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    private int digits(int field, int position, int count) {
+        int value = 0;
+        for (int end = position + count; position < end; position++) {
+            int digit = line[position] - '0';
+            if (digit < 0 || digit > 9) {
+                throw malformed("field " + (field + 1) + " is not an MM-dd-yyyy date: " + getString(field));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private BigDecimal parseDecimalSlowly(int field, int start, int end) {
+        try {
+            return new BigDecimal(line, start, end - start);
+        } catch (NumberFormatException e) {
+            throw malformed("field " + (field + 1) + " is not a number: " + getString(field));
+        }
+    }
+
+    private void checkField(int field) {
+        if (field >= fieldCount) {
+            throw malformed("missing field " + (field + 1));
+        }
+    }
+
+    /**
+     * Copies the next line (without its line break) into the line buffer.
+     * @return false if the stream has no more characters.
+     */
+    private boolean readLine() throws IOException {
+        lineLength = 0;
+        boolean readAnything = false;
+        while (true) {
+            if (inputPosition == inputLimit) {
+                inputLimit = reader.read(input, 0, input.length);
+                inputPosition = 0;
+                if (inputLimit <= 0) {
+                    inputLimit = 0;
+                    if (readAnything) {
+                        lineNumber++;
+                    }
+                    return readAnything;
+                }
+            }
+            readAnything = true;
+            char c = input[inputPosition++];
+            if (c == '\n') {
+                lineNumber++;
+                if (lineLength > 0 && line[lineLength - 1] == '\r') {
+                    lineLength--;
+                }
+                return true;
+            }
+            if (lineLength == line.length) {
+                line = Arrays.copyOf(line, line.length * 2);
+            }
+            line[lineLength++] = c;
+        }
+    }
+
+    /**
+     * Records the trimmed start and end offsets of every field on the current line.
+     */
+    private void splitFields() {
+        fieldCount = 0;
+        int fieldStart = 0;
+        for (int position = 0; position <= lineLength; position++) {
+            if (position == lineLength || line[position] == ',') {
+                int start = fieldStart;
+                int end = position;
+                while (start < end && line[start] <= ' ') {
+                    start++;
+                }
+                while (end > start && line[end - 1] <= ' ') {
+                    end--;
+                }
+                if (fieldCount == fieldStarts.length) {
+                    fieldStarts = Arrays.copyOf(fieldStarts, fieldCount * 2);
+                    fieldEnds = Arrays.copyOf(fieldEnds, fieldCount * 2);
+                }
+                fieldStarts[fieldCount] = start;
+                fieldEnds[fieldCount] = end;
+                fieldCount++;
+                fieldStart = position + 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package dao;
+
+import java.util.*;
+
+/**
+ * The CustomerNameIndex class is the customer name OrderIndex extended with a trigram index over the
+ * distinct names, so names can be found from a prefix, a fragment or a misspelling.
+ *
+ * Every distinct case-folded name is split into trigrams of "$$" + name + "$". A query is split the
+ * same way; names sharing at least one trigram with it are candidates, scored by the Dice coefficient
+ * of the two trigram sets plus a bonus when the query is a prefix (or a fragment) of the name.
+ */
+public class CustomerNameIndex extends OrderIndex {
+
+    // Candidates scoring below this are not similar enough to be returned
+    private static final double MIN_SCORE = 0.3;
+
+    // Distinct names holding each trigram
+    private final Map<String, Set<String>> namesByTrigram = new HashMap<>();
+    // Number of distinct trigrams of each name, needed for the Dice coefficient
+    private final Map<String, Integer> trigramCounts = new HashMap<>();
+
+    @Override
+    protected void entryAdded(String key) {
+        Set<String> trigrams = trigrams(key);
+        for (String trigram : trigrams) {
+            namesByTrigram.computeIfAbsent(trigram, k -> new HashSet<>()).add(key);
+        }
+        trigramCounts.put(key, trigrams.size());
+    }
+
+    @Override
+    protected void entryRemoved(String key) {
+        for (String trigram : trigrams(key)) {
+            Set<String> names = namesByTrigram.get(trigram);
+            names.remove(key);
+            if (names.isEmpty()) {
+                namesByTrigram.remove(trigram);
+            }
+        }
+        trigramCounts.remove(key);
+    }
+
+    /**
+     * Finds the indexed names most similar to a query.
+     * @param query The prefix, fragment or approximate spelling of a customer name.
+     * @param limit The most names to return.
+     * @return The case-folded matching names, best match first.
+     */
+    public List<String> findSimilar(String query, int limit) {
+        String foldedQuery = fold(query);
+        Set<String> queryTrigrams = trigrams(foldedQuery);
+        Map<String, Integer> sharedTrigrams = new HashMap<>();
+        for (String trigram : queryTrigrams) {
+            for (String name : namesByTrigram.getOrDefault(trigram, Collections.emptySet())) {
+                sharedTrigrams.merge(name, 1, Integer::sum);
+            }
+        }
+
+        // Min-heap of the best candidates seen so far
+        PriorityQueue<Map.Entry<String, Double>> best = new PriorityQueue<>(Map.Entry.comparingByValue());
+        for (Map.Entry<String, Integer> candidate : sharedTrigrams.entrySet()) {
+            String name = candidate.getKey();
+            double score = 2.0 * candidate.getValue() / (queryTrigrams.size() + trigramCounts.get(name));
+            if (name.startsWith(foldedQuery)) {
+                score += 1.0;
+            } else if (name.contains(foldedQuery)) {
+                score += 0.5;
+            }
+            if (score >= MIN_SCORE) {
+                best.add(new AbstractMap.SimpleEntry<>(name, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+
+        LinkedList<String> names = new LinkedList<>();
+        while (!best.isEmpty()) {
+            names.addFirst(best.poll().getKey());
+        }
+        return names;
+    }
+
+    /**
+     * Splits a case-folded value into its padded trigrams.
+     * @param value The value to split.
+     * @return The distinct trigrams.
+     */
+    private static Set<String> trigrams(String value) {
+        String padded = "$$" + value + "$";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,161 @@
+package dao;
+
+import modelDTO.Order;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.IntFunction;
+import java.util.zip.CRC32;
+
+/**
+ * The DeltaWatermark class records how far a chain of delta exports has got.
+ *
+ * It holds the change sequence of the DAO at the last export, an id of the DAO instance that
+ * assigned that sequence, the time of the export, and a fingerprint (the CRC32 of its order line)
+ * of every order the chain has exported so far. While the same DAO instance is running, the next
+ * delta only looks at the orders changed after the recorded sequence. After a restart the sequence
+ * numbers start again, so every order is compared with its fingerprint instead. Orders that have a
+ * fingerprint but no longer exist are exported as tombstones.
+ */
+public class DeltaWatermark {
+
+    private static final int MAGIC = 0x4F524457;  // "ORDW"
+    private static final int VERSION = 1;
+
+    private final long sessionId;
+    private final long sequence;
+    private final long exportedAt;
+    private final Map<Integer, Integer> fingerprints;
+
+    private DeltaWatermark(long sessionId, long sequence, long exportedAt, Map<Integer, Integer> fingerprints) {
+        this.sessionId = sessionId;
+        this.sequence = sequence;
+        this.exportedAt = exportedAt;
+        this.fingerprints = fingerprints;
+    }
+
+    /**
+     * @return The id of the DAO instance the sequence belongs to, or 0 before the first export.
+     */
+    public long getSessionId() {
+        return sessionId;
+    }
+
+    /**
+     * @return The change sequence of the DAO when the last delta was exported.
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return The time of the last export in milliseconds since the epoch, or 0 before the first export.
+     */
+    public long getExportedAt() {
+        return exportedAt;
+    }
+
+    /**
+     * @return The fingerprint of every exported order, keyed by order number.
+     */
+    public Map<Integer, Integer> getFingerprints() {
+        return fingerprints;
+    }
+
+    /**
+     * Reads a watermark; a missing file is the watermark of an empty chain, so the next delta holds every order.
+     * @param path The watermark file.
+     * @return The watermark.
+     * @throws IOException If the file cannot be read or is not a watermark.
+     */
+    public static DeltaWatermark read(Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return new DeltaWatermark(0, 0, 0, new HashMap<>());
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a delta export watermark: " + path);
+            }
+            long sessionId = in.readLong();
+            long sequence = in.readLong();
+            long exportedAt = in.readLong();
+            int count = in.readInt();
+            Map<Integer, Integer> fingerprints = new HashMap<>(Math.max(16, count * 4 / 3 + 1));
+            for (int i = 0; i < count; i++) {
+                fingerprints.put(in.readInt(), in.readInt());
+            }
+            return new DeltaWatermark(sessionId, sequence, exportedAt, fingerprints);
+        }
+    }
+
+    /**
+     * Writes the watermark, replacing the previous one only once the new one is complete and forced to disk.
+     * @param path The watermark file.
+     * @throws IOException If the file cannot be written.
+     */
+    public void write(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sessionId);
+            out.writeLong(sequence);
+            out.writeLong(exportedAt);
+            out.writeInt(fingerprints.size());
+            for (Map.Entry<Integer, Integer> fingerprint : fingerprints.entrySet()) {
+                out.writeInt(fingerprint.getKey());
+                out.writeInt(fingerprint.getValue());
+            }
+            out.flush();
+            file.getChannel().force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Works out the next delta and the watermark that follows it.
+     * @param candidates The order numbers that may have changed since this watermark, including removed ones.
+     * @param lookup Returns the current order with a given number, or null if it no longer exists.
+     * @param sessionId The id of the DAO instance.
+     * @param sequence The current change sequence of the DAO.
+     * @param upserts Receives the orders that are new or changed, sorted by order number.
+     * @param tombstones Receives the numbers of the exported orders that have been removed, sorted.
+     * @return The watermark to store once the delta has been written.
+     */
+    public DeltaWatermark advance(Collection<Integer> candidates, IntFunction<Order> lookup, long sessionId,
+                                  long sequence, List<Order> upserts, List<Integer> tombstones) {
+        Map<Integer, Integer> next = new HashMap<>(fingerprints);
+        int[] sorted = candidates.stream().mapToInt(Integer::intValue).distinct().sorted().toArray();
+        for (int orderNumber : sorted) {
+            Order order = lookup.apply(orderNumber);
+            if (order == null) {
+                if (next.remove(orderNumber) != null) {
+                    tombstones.add(orderNumber);
+                }
+                continue;
+            }
+            int fingerprint = fingerprint(order);
+            Integer previous = next.put(orderNumber, fingerprint);
+            if (previous == null || previous != fingerprint) {
+                upserts.add(order);
+            }
+        }
+        return new DeltaWatermark(sessionId, sequence, System.currentTimeMillis(), next);
+    }
+
+    /**
+     * @return The CRC32 of the order's line in its order file.
+     */
+    static int fingerprint(Order order) {
+        CRC32 crc = new CRC32();
+        crc.update(OrderDaoImpl.formatOrderLine(order).getBytes(StandardCharsets.UTF_8));
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,18 @@
+package dao;
+
+/**
+ * Thrown by CsvRecordReader when a field of a record cannot be read, naming the file and line it came from.
+ */
+public class MalformedRecordException extends IllegalArgumentException {
+
+    private final int lineNumber;
+
+    public MalformedRecordException(String source, int lineNumber, String message) {
+        super(source + " line " + lineNumber + ": " + message);
+        this.lineNumber = lineNumber;
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+}
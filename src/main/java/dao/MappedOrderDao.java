@@ -0,0 +1,473 @@
+package dao;
+
+import modelDTO.Order;
+import service.OrderNotFoundException;
+
+import java.io.File;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+/**
+ * MappedOrderDao is an OrderDao that keeps every order in a fixed-width binary record of one
+ * memory-mapped file, instead of in per-date CSV files loaded into memory.
+ *
+ * The record of order number n sits in slot n, so a lookup by number is a single offset computation,
+ * and other queries scan the mapping directly. Nothing is parsed at startup, and the pages of the file
+ * stay in the OS page cache between restarts. Money and other decimals are stored as an unscaled long
+ * plus a scale byte, dates as epoch days, and text as length-prefixed UTF-8 of a fixed maximum size.
+ * Every mutation forces its record to disk before returning.
+ *
+ * The whole file is one mapping, which Java limits to 2 GB, so order numbers run from 1 to MAX_ORDER_NUMBER.
+ * Because the file is as long as its highest order number, putOrder also refuses an order number more than
+ * MAX_ORDER_NUMBER_GAP above the highest one stored.
+ *
+ * Use OrderStoreConverter to move orders between the CSV files and this format.
+ */
+public class MappedOrderDao extends OrderDao {
+
+    private static final int MAGIC = 0x4F524453;  // "ORDS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int INITIAL_SLOTS = 1024;
+
+    // Header layout
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 4;
+    private static final int RECORD_SIZE_OFFSET = 8;
+    private static final int HIGHEST_ORDER_OFFSET = 12;
+
+    // Record layout
+    private static final int NAME_BYTES = 96;
+    private static final int STATE_BYTES = 16;
+    private static final int PRODUCT_TYPE_BYTES = 48;
+    private static final int DECIMAL_BYTES = 9;
+    private static final int DECIMAL_FIELDS = 8;
+    private static final int STATUS_OFFSET = 0;
+    private static final int DATE_OFFSET = 1;
+    private static final int NAME_OFFSET = 5;
+    private static final int STATE_OFFSET = NAME_OFFSET + NAME_BYTES;
+    private static final int PRODUCT_TYPE_OFFSET = STATE_OFFSET + STATE_BYTES;
+    private static final int DECIMALS_OFFSET = PRODUCT_TYPE_OFFSET + PRODUCT_TYPE_BYTES;
+    static final int RECORD_SIZE = DECIMALS_OFFSET + DECIMAL_FIELDS * DECIMAL_BYTES;
+
+    // The highest order number whose record still fits in a single mapping
+    public static final int MAX_ORDER_NUMBER = (Integer.MAX_VALUE - HEADER_SIZE) / RECORD_SIZE;
+    // How far above the highest stored order number putOrder may store an order
+    public static final int MAX_ORDER_NUMBER_GAP = 65536;
+
+    private static final byte EMPTY = 0;
+    private static final byte LIVE = 1;
+
+    private final FileChannel channel;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final OrderNumberAllocator orderNumberAllocator;
+    private MappedByteBuffer mapping;
+    private int slots;
+
+    /**
+     * Opens (or creates) the binary order store at the given path, reserving order numbers in blocks of
+     * OrderNumberAllocator.DEFAULT_BLOCK_SIZE.
+     * @param storePath The path of the store file; order numbers are reserved from storePath + ".hwm".
+     */
+    public MappedOrderDao(String storePath) {
+        this(storePath, OrderNumberAllocator.DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Opens (or creates) the binary order store at the given path.
+     * @param storePath The path of the store file; order numbers are reserved from storePath + ".hwm".
+     * @param orderNumberBlockSize How many order numbers are reserved at a time; unused ones are skipped on restart.
+     */
+    public MappedOrderDao(String storePath, int orderNumberBlockSize) {
+        File file = new File(storePath);
+        File parent = file.getAbsoluteFile().getParentFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+        try {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            if (channel.size() == 0) {
+                map(INITIAL_SLOTS);
+                mapping.putInt(MAGIC_OFFSET, MAGIC);
+                mapping.putInt(VERSION_OFFSET, VERSION);
+                mapping.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+                mapping.putInt(HIGHEST_ORDER_OFFSET, 0);
+                mapping.force(0, HEADER_SIZE);
+            } else {
+                map((int) Math.min(MAX_ORDER_NUMBER, (channel.size() - HEADER_SIZE) / RECORD_SIZE));
+                if (mapping.getInt(MAGIC_OFFSET) != MAGIC || mapping.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                    throw new DataPersistenceException("Not a binary order store: " + storePath);
+                }
+            }
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error opening binary order store.", ex);
+        }
+        orderNumberAllocator = new OrderNumberAllocator(storePath + ".hwm", orderNumberBlockSize, getHighestOrderNumber());
+    }
+
+    /**
+     * Maps the header and the given number of record slots, growing the file if needed.
+     */
+    private void map(int slotCount) throws IOException {
+        slots = slotCount;
+        mapping = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE + (long) slotCount * RECORD_SIZE);
+    }
+
+    /**
+     * Returns the position of an order's record. Callers only pass order numbers up to MAX_ORDER_NUMBER,
+     * whose records lie inside the mapping.
+     */
+    private int offset(int orderNumber) {
+        return Math.toIntExact(HEADER_SIZE + (orderNumber - 1L) * RECORD_SIZE);
+    }
+
+    private int getHighestOrderNumber() {
+        return mapping.getInt(HIGHEST_ORDER_OFFSET);
+    }
+
+    @Override
+    public synchronized Order addOrder(Order order) {
+        order.setOrderNumber(orderNumberAllocator.next());
+        writeOrder(order);
+        return order;
+    }
+
+    @Override
+    public synchronized List<Order> addOrders(List<Order> orders) {
+        for (Order order : orders) {
+            addOrder(order);
+        }
+        return orders;
+    }
+
+    /**
+     * Stores an order under the order number it already has, replacing any order in that slot.
+     * Used when importing orders from another store; later added orders are numbered after it.
+     * @param order The order to store; its order number must be between 1 and MAX_ORDER_NUMBER, and at most
+     *              MAX_ORDER_NUMBER_GAP above the highest order number stored.
+     */
+    public synchronized void putOrder(Order order) {
+        Integer orderId = order.getOrderNumber();
+        if (orderId != null && orderId > getHighestOrderNumber() + (long) MAX_ORDER_NUMBER_GAP) {
+            throw new DataPersistenceException("Order number " + orderId + " is more than " + MAX_ORDER_NUMBER_GAP
+                    + " above the highest order number in the binary order store.");
+        }
+        writeOrder(order);
+        orderNumberAllocator.advanceTo(orderId);
+    }
+
+    @Override
+    public synchronized void editOrder(Order order) throws OrderNotFoundException {
+        if (order.getOrderNumber() == null || !isLive(order.getOrderNumber())) {
+            throw new OrderNotFoundException("Order with ID " + order.getOrderNumber() + " not found.");
+        }
+        writeOrder(order);
+    }
+
+    @Override
+    public synchronized void removeOrder(int orderId) {
+        if (isLive(orderId)) {
+            int offset = offset(orderId);
+            mapping.put(offset + STATUS_OFFSET, EMPTY);
+            mapping.force(offset, RECORD_SIZE);
+        }
+    }
+
+    @Override
+    public synchronized void editOrders(List<Order> orders) throws OrderNotFoundException {
+        List<byte[]> records = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            if (order.getOrderNumber() == null || !isLive(order.getOrderNumber())) {
+                throw new OrderNotFoundException("Order with ID " + order.getOrderNumber() + " not found.");
+            }
+            records.add(encode(order));
+        }
+        for (int i = 0; i < orders.size(); i++) {
+            writeRecord(orders.get(i).getOrderNumber(), records.get(i));
+        }
+    }
+
+    @Override
+    public synchronized void removeOrders(List<Integer> orderIds) {
+        for (int orderId : orderIds) {
+            removeOrder(orderId);
+        }
+    }
+
+    @Override
+    public synchronized List<Order> getOrdersByDate(Date date) {
+        long epochDay = toEpochDay(date);
+        return scan(offset -> mapping.getInt(offset + DATE_OFFSET) == epochDay);
+    }
+
+    @Override
+    public synchronized List<Order> getOrdersBetween(Date from, Date to) {
+        long fromDay = toEpochDay(from);
+        long toDay = toEpochDay(to);
+        List<Order> ordersBetween = scan(offset -> {
+            int epochDay = mapping.getInt(offset + DATE_OFFSET);
+            return epochDay >= fromDay && epochDay <= toDay;
+        });
+        ordersBetween.sort(Comparator.comparing(Order::getOrderDate));
+        return ordersBetween;
+    }
+
+    @Override
+    public synchronized Order getOrderById(int orderId) {
+        return isLive(orderId) ? readOrder(orderId) : null;
+    }
+
+    @Override
+    public synchronized List<Order> getAllOrders() {
+        return scan(offset -> true);
+    }
+
+    @Override
+    public synchronized List<Order> searchOrdersByName(String customerName) {
+        String folded = OrderIndex.fold(customerName);
+        return scan(offset -> OrderIndex.fold(readString(offset + NAME_OFFSET)).equals(folded));
+    }
+
+    @Override
+    public synchronized List<Order> searchOrdersByNameFuzzy(String query, int limit) {
+        // The store keeps no name index, so one is built from a scan of the names
+        CustomerNameIndex nameIndex = new CustomerNameIndex();
+        forEachLive(offset -> nameIndex.put(orderNumberAt(offset), readString(offset + NAME_OFFSET)));
+        List<Order> matchingOrders = new ArrayList<>();
+        for (String customerName : nameIndex.findSimilar(query, limit)) {
+            for (Integer orderId : nameIndex.get(customerName)) {
+                if (matchingOrders.size() == limit) {
+                    break;
+                }
+                matchingOrders.add(readOrder(orderId));
+            }
+        }
+        return matchingOrders;
+    }
+
+    @Override
+    public synchronized List<Order> searchOrdersByProductType(String productType) {
+        String folded = OrderIndex.fold(productType);
+        return scan(offset -> OrderIndex.fold(readString(offset + PRODUCT_TYPE_OFFSET)).equals(folded));
+    }
+
+    @Override
+    public synchronized List<Order> searchOrdersByState(String state) {
+        String folded = OrderIndex.fold(state);
+        return scan(offset -> OrderIndex.fold(readString(offset + STATE_OFFSET)).equals(folded));
+    }
+
+    @Override
+    public synchronized List<Order> searchOrdersFrom(Date from, String state, String productType) {
+        long fromDay = toEpochDay(from);
+        String foldedState = state == null ? null : OrderIndex.fold(state);
+        String foldedProductType = productType == null ? null : OrderIndex.fold(productType);
+        return scan(offset -> mapping.getInt(offset + DATE_OFFSET) >= fromDay
+                && (foldedState == null || OrderIndex.fold(readString(offset + STATE_OFFSET)).equals(foldedState))
+                && (foldedProductType == null
+                        || OrderIndex.fold(readString(offset + PRODUCT_TYPE_OFFSET)).equals(foldedProductType)));
+    }
+
+    @Override
+    public synchronized long exportOrders(String filePath, OrderExporter.SortOrder sortOrder) {
+        List<Order> rows = getAllOrders();
+        if (sortOrder == OrderExporter.SortOrder.ORDER_DATE) {
+            rows.sort(Comparator.comparing(Order::getOrderDate));
+        }
+        try {
+            return new OrderExporter().export(rows.iterator(), Paths.get(filePath));
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error exporting orders.", ex);
+        }
+    }
+
+    /**
+     * Writes the orders added, edited or removed since the last delta export. The store keeps no change
+     * sequence, so every order is compared with its fingerprint in the watermark.
+     */
+    @Override
+    public synchronized long exportChanges(String filePath, String watermarkPath) {
+        Map<Integer, Order> current = new HashMap<>();
+        for (Order order : getAllOrders()) {
+            current.put(order.getOrderNumber(), order);
+        }
+        try {
+            Path watermarkFile = Paths.get(watermarkPath);
+            DeltaWatermark previous = DeltaWatermark.read(watermarkFile);
+            Set<Integer> candidates = new HashSet<>(current.keySet());
+            candidates.addAll(previous.getFingerprints().keySet());
+            List<Order> upserts = new ArrayList<>();
+            List<Integer> tombstones = new ArrayList<>();
+            DeltaWatermark next = previous.advance(candidates, current::get, 0, 0, upserts, tombstones);
+            long rows = new OrderExporter().exportChanges(upserts.iterator(), tombstones.iterator(), Paths.get(filePath));
+            next.write(watermarkFile);
+            return rows;
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error exporting order changes.", ex);
+        }
+    }
+
+    @Override
+    public List<PartitionedOrderExporter.ManifestEntry> exportPartitioned(String folderPath,
+            PartitionedOrderExporter.Partitioning partitioning) {
+        List<Order> allOrders = getAllOrders();
+        return new PartitionedOrderExporter(Runtime.getRuntime().availableProcessors())
+                .export(allOrders, partitioning, Paths.get(folderPath));
+    }
+
+    /**
+     * Flushes the mapping and closes the store file.
+     */
+    public synchronized void close() {
+        try {
+            mapping.force();
+            channel.close();
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error closing binary order store.", ex);
+        }
+    }
+
+    private boolean isLive(int orderId) {
+        return orderId >= 1 && orderId <= slots && mapping.get(offset(orderId) + STATUS_OFFSET) == LIVE;
+    }
+
+    private int orderNumberAt(int offset) {
+        return (offset - HEADER_SIZE) / RECORD_SIZE + 1;
+    }
+
+    /**
+     * Reads the live orders whose record matches a filter, in order-number order.
+     */
+    private List<Order> scan(IntPredicate filter) {
+        List<Order> matchingOrders = new ArrayList<>();
+        forEachLive(offset -> {
+            if (filter.test(offset)) {
+                matchingOrders.add(readOrder(orderNumberAt(offset)));
+            }
+        });
+        return matchingOrders;
+    }
+
+    /**
+     * Walks the live records up to the highest order number, passing each record offset to a visitor.
+     */
+    private void forEachLive(IntConsumer visitor) {
+        int highest = Math.min(getHighestOrderNumber(), slots);
+        for (int orderId = 1; orderId <= highest; orderId++) {
+            int offset = offset(orderId);
+            if (mapping.get(offset + STATUS_OFFSET) == LIVE) {
+                visitor.accept(offset);
+            }
+        }
+    }
+
+    private void writeOrder(Order order) {
+        writeRecord(order.getOrderNumber(), encode(order));
+    }
+
+    private void writeRecord(int orderId, byte[] record) {
+        try {
+            if (orderId > slots) {
+                map((int) Math.min(MAX_ORDER_NUMBER, Math.max(orderId, slots * 2L)));
+            }
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error growing binary order store.", ex);
+        }
+        int offset = offset(orderId);
+        mapping.put(offset, record);
+        mapping.force(offset, RECORD_SIZE);
+        if (orderId > getHighestOrderNumber()) {
+            mapping.putInt(HIGHEST_ORDER_OFFSET, orderId);
+            mapping.force(0, HEADER_SIZE);
+        }
+    }
+
+    /**
+     * Encodes an order into a live record, checking every field first.
+     * A value that cannot be stored throws before the slot is touched, so the old record stays intact.
+     */
+    private byte[] encode(Order order) {
+        Integer orderId = order.getOrderNumber();
+        if (orderId == null || orderId < 1 || orderId > MAX_ORDER_NUMBER) {
+            throw new DataPersistenceException("Order number " + orderId + " cannot be stored; the binary order store holds 1 to "
+                    + MAX_ORDER_NUMBER + ".");
+        }
+        if (order.getOrderDate() == null) {
+            throw new DataPersistenceException("Order " + order.getOrderNumber() + " has no order date.");
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_SIZE);
+        record.put(STATUS_OFFSET, LIVE);
+        record.putInt(DATE_OFFSET, (int) toEpochDay(order.getOrderDate()));
+        writeString(record, NAME_OFFSET, NAME_BYTES, order.getCustomerName());
+        writeString(record, STATE_OFFSET, STATE_BYTES, order.getState());
+        writeString(record, PRODUCT_TYPE_OFFSET, PRODUCT_TYPE_BYTES, order.getProductType());
+        BigDecimal[] decimals = {order.getTaxRate(), order.getArea(), order.getCostPerSquareFoot(),
+                order.getLaborCostPerSquareFoot(), order.getMaterialCost(), order.getLaborCost(),
+                order.getTax(), order.getTotal()};
+        for (int i = 0; i < DECIMAL_FIELDS; i++) {
+            writeDecimal(record, DECIMALS_OFFSET + i * DECIMAL_BYTES, decimals[i], order.getOrderNumber());
+        }
+        return record.array();
+    }
+
+    private Order readOrder(int orderId) {
+        int offset = offset(orderId);
+        BigDecimal[] decimals = new BigDecimal[DECIMAL_FIELDS];
+        for (int i = 0; i < DECIMAL_FIELDS; i++) {
+            decimals[i] = readDecimal(offset + DECIMALS_OFFSET + i * DECIMAL_BYTES);
+        }
+        Date orderDate = Date.from(LocalDate.ofEpochDay(mapping.getInt(offset + DATE_OFFSET)).atStartOfDay(zone).toInstant());
+        return new Order(orderId, readString(offset + NAME_OFFSET), readString(offset + STATE_OFFSET), decimals[0],
+                readString(offset + PRODUCT_TYPE_OFFSET), decimals[1], decimals[2], decimals[3], decimals[4],
+                decimals[5], decimals[6], decimals[7], orderDate);
+    }
+
+    private static void writeString(ByteBuffer record, int offset, int capacity, String value) {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > capacity - 1) {
+            throw new DataPersistenceException("\"" + value + "\" is too long for the binary order store.");
+        }
+        record.put(offset, (byte) bytes.length);
+        record.put(offset + 1, bytes);
+    }
+
+    private String readString(int offset) {
+        byte[] bytes = new byte[mapping.get(offset) & 0xFF];
+        mapping.get(offset + 1, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDecimal(ByteBuffer record, int offset, BigDecimal value, Integer orderId) {
+        if (value == null) {
+            throw new DataPersistenceException("Order " + orderId + " is missing an amount or rate.");
+        }
+        if (value.scale() < 0) {
+            value = value.setScale(0);
+        }
+        if (value.scale() > Byte.MAX_VALUE || value.unscaledValue().bitLength() > 63) {
+            throw new DataPersistenceException(value + " cannot be stored in the binary order store.");
+        }
+        record.putLong(offset, value.unscaledValue().longValue());
+        record.put(offset + 8, (byte) value.scale());
+    }
+
+    private BigDecimal readDecimal(int offset) {
+        return BigDecimal.valueOf(mapping.getLong(offset), mapping.get(offset + 8));
+    }
+
+    private long toEpochDay(Date date) {
+        return date.toInstant().atZone(zone).toLocalDate().toEpochDay();
+    }
+}
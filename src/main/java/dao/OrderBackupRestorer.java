@@ -0,0 +1,81 @@
+package dao;
+
+import modelDTO.Order;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * The OrderBackupRestorer class rebuilds an orders folder from a backup: a base export followed by
+ * a chain of delta exports.
+ *
+ * The base may be a full export (menu option 5) or the first delta of a chain. Each delta is applied
+ * in the order given: "U" rows replace or add the order, "D" rows remove it. Exports carry amounts
+ * rounded to two decimal places, so the restored files hold the exported values.
+ */
+public class OrderBackupRestorer {
+
+    /**
+     * Restores an orders folder from the command line.
+     * Usage: OrderBackupRestorer ordersFolder baseExport [delta ...]
+     */
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: OrderBackupRestorer ordersFolder baseExport [delta ...]");
+            return;
+        }
+        List<String> deltas = Arrays.asList(args).subList(2, args.length);
+        int restored = restore(args[1], deltas, args[0]);
+        System.out.println("Restored " + restored + " orders to " + args[0]);
+    }
+
+    /**
+     * Applies a base export and a chain of deltas, and writes the result into per-date order files.
+     * Files of the dates present in the result are replaced; other files in the folder are left alone,
+     * so the folder should normally be empty.
+     * @param baseExport The full export or first delta the chain starts from.
+     * @param deltaExports The delta exports taken after the base, oldest first.
+     * @param ordersFolder The folder to write the Orders_MMddyyyy.txt files to.
+     * @return The number of orders restored.
+     * @throws MalformedRecordException If an export holds an invalid row.
+     */
+    public static int restore(String baseExport, List<String> deltaExports, String ordersFolder) {
+        Map<Integer, Order> orders = new TreeMap<>();
+        apply(baseExport, orders);
+        for (String delta : deltaExports) {
+            apply(delta, orders);
+        }
+        OrderStoreConverter.writeOrderFiles(orders.values(), ordersFolder);
+        return orders.size();
+    }
+
+    /**
+     * Applies one export file, telling full exports and deltas apart by their header.
+     */
+    private static void apply(String exportPath, Map<Integer, Order> orders) {
+        try (CsvRecordReader reader = new CsvRecordReader(new BufferedReader(new InputStreamReader(
+                new FileInputStream(exportPath), StandardCharsets.UTF_8)), exportPath)) {
+            if (!reader.next()) {
+                return;
+            }
+            boolean delta = OrderExporter.CHANGE_COLUMN.equals(reader.getString(0));
+            while (reader.next()) {
+                if (!delta) {
+                    Order order = OrderDaoImpl.readOrder(reader, 0);
+                    orders.put(order.getOrderNumber(), order);
+                } else if (OrderExporter.UPSERT.equals(reader.getString(0))) {
+                    Order order = OrderDaoImpl.readOrder(reader, 1);
+                    orders.put(order.getOrderNumber(), order);
+                } else if (OrderExporter.TOMBSTONE.equals(reader.getString(0))) {
+                    reader.requireFields(2);
+                    orders.remove(reader.getInt(1));
+                } else {
+                    throw reader.malformed("Unknown change type " + reader.getString(0));
+                }
+            }
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error reading export file " + exportPath, ex);
+        }
+    }
+}
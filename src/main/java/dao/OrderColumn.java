@@ -0,0 +1,44 @@
+package dao;
+
+import java.util.Locale;
+
+/**
+ * The fields of an order as stored by ColumnarOrderArchive, one column file each.
+ */
+public enum OrderColumn {
+    ORDER_NUMBER(Kind.INT),
+    CUSTOMER_NAME(Kind.TEXT),
+    STATE(Kind.TEXT),
+    TAX_RATE(Kind.DECIMAL),
+    PRODUCT_TYPE(Kind.TEXT),
+    AREA(Kind.DECIMAL),
+    COST_PER_SQUARE_FOOT(Kind.DECIMAL),
+    LABOR_COST_PER_SQUARE_FOOT(Kind.DECIMAL),
+    MATERIAL_COST(Kind.DECIMAL),
+    LABOR_COST(Kind.DECIMAL),
+    TAX(Kind.DECIMAL),
+    TOTAL(Kind.DECIMAL),
+    ORDER_DATE(Kind.DATE);
+
+    /**
+     * How a column is encoded: whole numbers, dictionary-encoded text, fixed-point decimals or epoch-day dates.
+     */
+    public enum Kind { INT, TEXT, DECIMAL, DATE }
+
+    private final Kind kind;
+
+    OrderColumn(Kind kind) {
+        this.kind = kind;
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return The name of the column file, such as product_type.col.
+     */
+    String getFileName() {
+        return name().toLowerCase(Locale.ROOT) + ".col";
+    }
+}
@@ -19,6 +19,13 @@ public abstract class OrderDao {
      */
     public abstract Order addOrder(Order order);
 
+    /**
+     * Adds several orders at once, assigning their order numbers.
+     * @param orders The orders to add.
+     * @return The added orders, in the same order.
+     */
+    public abstract List<Order> addOrders(List<Order> orders);
+
     /**
      * Edits an existing order.
      * @param order The order with updated details.
@@ -26,12 +33,25 @@ public abstract class OrderDao {
      */
     public abstract void editOrder(Order order) throws OrderNotFoundException;
 
+    /**
+     * Edits several orders at once.
+     * @param orders The updated orders.
+     * @throws OrderNotFoundException If any of the orders does not exist; nothing is changed then.
+     */
+    public abstract void editOrders(List<Order> orders) throws OrderNotFoundException;
+
     /**
      * Removes an order by its ID.
      * @param orderId The ID of the order to be removed.
      */
     public abstract void removeOrder(int orderId);
 
+    /**
+     * Removes several orders at once; order numbers that do not exist are ignored.
+     * @param orderIds The IDs of the orders to remove.
+     */
+    public abstract void removeOrders(List<Integer> orderIds);
+
     /**
      * Retrieves orders by a specific date.
      * @param date The date for which orders are to be fetched.
@@ -39,6 +59,14 @@ public abstract class OrderDao {
      */
     public abstract List<Order> getOrdersByDate(Date date);
 
+    /**
+     * Retrieves the orders placed between two dates, both inclusive.
+     * @param from The first date of the range.
+     * @param to The last date of the range.
+     * @return A list of orders placed within the range, in date order.
+     */
+    public abstract List<Order> getOrdersBetween(Date from, Date to);
+
     /**
      * Retrieves a specific order from the data source based on its unique ID number.
      * @param orderId The unique ID of the order to be retrieved.
@@ -59,6 +87,14 @@ public abstract class OrderDao {
      */
     public abstract List<Order> searchOrdersByName(String customerName);
 
+    /**
+     * Searches and retrieves orders whose customer name starts with, contains, or approximately matches a query.
+     * @param query The partial or misspelt customer name.
+     * @param limit The most orders to return.
+     * @return The best matching orders, best match first.
+     */
+    public abstract List<Order> searchOrdersByNameFuzzy(String query, int limit);
+
     /**
      * Searches and retrieves orders from the data source based on a product type.
      * @param productType The type of product to search for.
@@ -72,4 +108,38 @@ public abstract class OrderDao {
      * @return A list of orders that are from the specified state.
      */
     public abstract List<Order> searchOrdersByState(String state);
+
+    /**
+     * Retrieves the orders dated on or after a date that match a state and a product type, ignoring case.
+     * @param from The first date to include.
+     * @param state The state to match, or null to match any state.
+     * @param productType The product type to match, or null to match any product type.
+     * @return The matching orders, in order-number order.
+     */
+    public abstract List<Order> searchOrdersFrom(Date from, String state, String productType);
+
+    /**
+     * Streams every order into a CSV export file.
+     * @param filePath The export file to write.
+     * @param sortOrder Whether rows are sorted by order number or by order date.
+     * @return The number of orders exported.
+     */
+    public abstract long exportOrders(String filePath, OrderExporter.SortOrder sortOrder);
+
+    /**
+     * Writes the orders added, edited or removed since the last delta export, and advances the watermark.
+     * @param filePath The delta file to write.
+     * @param watermarkPath The watermark of the delta chain; a missing file starts a new chain with every order.
+     * @return The number of rows (changed orders plus tombstones) written.
+     */
+    public abstract long exportChanges(String filePath, String watermarkPath);
+
+    /**
+     * Exports every order as one GZIP-compressed file per partition, written in parallel, plus a manifest.
+     * @param folderPath The folder to write the files and manifest.csv to.
+     * @param partitioning Whether to split by month of the order date or by state.
+     * @return The manifest entries, one per file.
+     */
+    public abstract List<PartitionedOrderExporter.ManifestEntry> exportPartitioned(String folderPath,
+            PartitionedOrderExporter.Partitioning partitioning);
 }
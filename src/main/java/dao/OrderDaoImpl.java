@@ -5,34 +5,167 @@ import service.OrderNotFoundException;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This class provides an implementation for the data access operations for Orders.
  * It uses an in-memory map and file storage to manage orders.
+ *
+ * Orders are partitioned by order date: each Orders_MMddyyyy.txt file holds only the orders
+ * placed on that date, and a mutation rewrites only the partition it touches.
+ *
+ * When journaling is enabled in the OrderDaoSettings, a mutation only appends a small record to
+ * orders.journal and marks its partition dirty; a background compactor folds the journal into the
+ * partition files once it grows past a size threshold or on a fixed interval. Journal appends are
+ * group committed, and the *Async mutation methods hand back a future that completes when the
+ * change is durable.
+ *
+ * With write-behind enabled (and journaling off), a mutation renders the new content of its
+ * partition and hands it to a WriteBehindFlusher, so addOrder, editOrder and removeOrder return
+ * without waiting for the disk.
+ *
+ * With checkpoints enabled, the orders are periodically written to a binary OrderSnapshot, and a
+ * restart takes every partition whose file is unchanged since the snapshot from it, parsing only the
+ * files written afterwards. Indexes are rebuilt from the restored orders rather than stored.
+ *
+ * With lazy loading, startup only lists the order files. A partition is parsed the first time a
+ * query or mutation touches it, and the least recently used clean partitions are evicted again once
+ * the resident orders exceed the configured budget. Queries that are not bound to a date (searches,
+ * lookups by order number, getAllOrders) load the partitions they need on demand.
  */
 public class OrderDaoImpl extends OrderDao {
 
     private final Map<Integer, Order> orders = new HashMap<>();
+    // Order numbers held by each date partition, keyed by the epoch day of the order date; sorted for range queries
+    private final NavigableMap<Long, Set<Integer>> partitions = new TreeMap<>();
+    // Partition key each order was last saved under, so edits that move an order's date clean up the old file
+    private final Map<Integer, Long> orderPartitions = new HashMap<>();
+    // Case-insensitive secondary indexes behind the search methods
+    private final CustomerNameIndex customerNameIndex = new CustomerNameIndex();
+    private final OrderIndex stateIndex = new OrderIndex();
+    private final OrderIndex productTypeIndex = new OrderIndex();
     private static final String BASE_PATH = "src/main/java/OrdersFiles/";
+    private final String basePath;
+    // Set when the files on disk hold duplicated or misplaced orders written by the old save logic
+    private boolean migrationRequired;
+    static final String HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate";
+
+    private final OrderDaoSettings settings;
+    // Append-only log of mutations not yet folded into the partition files (null when journaling is off)
+    private OrderJournal journal;
+    // Partitions whose file is behind the in-memory state because their changes only live in the journal
+    private final Set<Long> dirtyPartitions = new HashSet<>();
+    private ScheduledExecutorService compactor;
+    // Set by close(); later changes are rejected because the compactor and the journal are gone
+    private volatile boolean closed;
+    // Writes partition files in the background in write-behind mode (null otherwise)
+    private WriteBehindFlusher writeBehind;
+    // Periodically writes the checkpoint snapshot (null when checkpoints are off)
+    private ScheduledExecutorService checkpointer;
+    // Highest order number seen while loading, used to seed the allocator when its file is missing
+    private int highestOrderNumber;
+    private OrderNumberAllocator orderNumberAllocator;
+    // Partitions that exist on disk but have not been loaded yet (lazy loading only)
+    private final NavigableSet<Long> unloadedPartitions = new TreeSet<>();
+    // Loaded partitions from least to most recently used (lazy loading only)
+    private final LinkedHashMap<Long, Boolean> partitionUsage = new LinkedHashMap<>(16, 0.75f, true);
+    // Timings of the most recent bulk load of partition files
+    private ParallelOrderLoader.LoadReport lastLoadReport;
+    // What the constructor took from the checkpoint (null when no checkpoint was read)
+    private String checkpointSummary;
+    // Change sequence for delta exports: bumped by every mutation, with the sequence of the last change to each order
+    private final long sessionId = new Random().nextLong() | 1;
+    private long changeSequence;
+    private final Map<Integer, Long> orderChanges = new HashMap<>();
+    private final Set<Integer> removedOrders = new HashSet<>();
+
+    private static final DateTimeFormatter FILE_DATE_FORMATTER = DateTimeFormatter.ofPattern("MMddyyyy");
+
+    /**
+     * Returns the partition key (the epoch day in the system time zone) for a given date.
+     *
+     * @param date The date to get the partition key for.
+     * @return The partition key.
+     */
+    static Long getPartitionKey(Date date) {
+        return date.toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay();
+    }
+
+    /**
+     * Returns the partition key encoded in the name of an order file.
+     *
+     * @param fileName The name of the file, such as Orders_06012013.txt.
+     * @return The partition key, or null if the name does not hold a valid date.
+     */
+    private static Long getPartitionKey(String fileName) {
+        try {
+            String datePart = fileName.replace("Orders_", "").replace(".txt", "");
+            return LocalDate.parse(datePart, FILE_DATE_FORMATTER).toEpochDay();
+        } catch (DateTimeParseException e) {
+            System.err.println("Error parsing date from file name: " + e.getMessage());
+            return null;
+        }
+    }
 
     /**
-     * Returns the file path for a given date.
+     * Returns the file path for a given partition key.
      *
-     * @param date The date to get the file path for.
+     * @param partitionKey The partition key to get the file path for.
      * @return The file path.
      */
-    private String getFilePathForDate(Date date) {
-        SimpleDateFormat sdf = new SimpleDateFormat("MMddyyyy");
-        return BASE_PATH + "Orders_" + sdf.format(date) + ".txt";
+    private String getFilePathForPartition(Long partitionKey) {
+        return basePath + getFileNameForPartition(partitionKey);
+    }
+
+    /**
+     * Returns the name of the order file of a given partition key, such as Orders_06012013.txt.
+     *
+     * @param partitionKey The partition key to get the file name for.
+     * @return The file name.
+     */
+    static String getFileNameForPartition(Long partitionKey) {
+        return "Orders_" + LocalDate.ofEpochDay(partitionKey).format(FILE_DATE_FORMATTER) + ".txt";
     }
 
     /**
      * Constructs an instance and initializes it by loading all orders from the files.
      */
     public OrderDaoImpl() {
-        File folder = new File(BASE_PATH);
+        this(BASE_PATH);
+    }
+
+    /**
+     * Constructs an instance backed by the given orders folder and loads all orders from its files.
+     *
+     * @param basePath The folder that holds the Orders_MMddyyyy.txt files.
+     */
+    public OrderDaoImpl(String basePath) {
+        this(basePath, new OrderDaoSettings());
+    }
+
+    /**
+     * Constructs an instance backed by the given orders folder with the given storage options.
+     *
+     * @param basePath The folder that holds the Orders_MMddyyyy.txt files.
+     * @param settings The storage options, such as journaling.
+     */
+    public OrderDaoImpl(String basePath, OrderDaoSettings settings) {
+        this.basePath = basePath.endsWith("/") ? basePath : basePath + "/";
+        this.settings = settings;
+        File folder = new File(this.basePath);
         if (!folder.exists()){
             boolean dirCreated = folder.mkdirs();
             if (dirCreated) {
@@ -42,13 +175,477 @@ public class OrderDaoImpl extends OrderDao {
             }
         }
         File[] listOfFiles = folder.listFiles();
+        List<Long> fileKeys = new ArrayList<>();
+        OrderSnapshot snapshot = settings.isCheckpointEnabled() ? readSnapshot() : null;
+        Map<Long, List<Order>> fileOrders = new HashMap<>();
+        List<Long> keysToParse = new ArrayList<>();
         if (listOfFiles != null) {
+            // Oldest first, so the most recently written copy of a duplicated order wins
+            Arrays.sort(listOfFiles, Comparator.comparingLong(File::lastModified));
             for (File file : listOfFiles) {
                 if (file.isFile() && file.getName().startsWith("Orders_") && file.getName().endsWith(".txt")) {
-                    loadOrdersFromFile(parseDateFromFileName(file.getName())).forEach(order -> orders.put(order.getOrderNumber(), order));
+                    Long fileKey = getPartitionKey(file.getName());
+                    if (fileKey == null) {
+                        continue;
+                    }
+                    fileKeys.add(fileKey);
+                    OrderSnapshot.Partition snapshotPartition = snapshot == null ? null : snapshot.getPartitions().get(fileKey);
+                    if (snapshotPartition != null && snapshotPartition.matches(file)) {
+                        fileOrders.put(fileKey, snapshotPartition.getOrders());  // Unchanged since the checkpoint
+                    } else {
+                        keysToParse.add(fileKey);
+                    }
                 }
             }
         }
+        if (snapshot != null) {
+            highestOrderNumber = snapshot.getHighestOrderNumber();
+            checkpointSummary = "Restored " + fileOrders.size() + " of " + fileKeys.size() + " order files from the checkpoint.";
+        }
+        if (settings.isLazyLoading()) {
+            unloadedPartitions.addAll(keysToParse);
+            for (Map.Entry<Long, List<Order>> restored : fileOrders.entrySet()) {
+                mergeLoadedPartition(restored.getKey(), restored.getValue());
+            }
+        } else {
+            // Files are parsed in parallel, then merged here in file order
+            for (ParallelOrderLoader.PartitionLoad load : loadPartitions(keysToParse).getPartitions()) {
+                fileOrders.put(load.getPartitionKey(), load.getOrders());
+            }
+            for (Long fileKey : fileKeys) {
+                for (Order order : fileOrders.get(fileKey)) {
+                    if (orders.containsKey(order.getOrderNumber()) || !fileKey.equals(getPartitionKey(order.getOrderDate()))) {
+                        migrationRequired = true;
+                    }
+                    putOrder(order);
+                }
+            }
+        }
+        if (settings.isJournalEnabled()) {
+            journal = new OrderJournal(this.basePath + "orders.journal",
+                    settings.getGroupCommitWindowMicros(), settings.getGroupCommitMaxRecords());
+            replayJournal();
+            startCompactor();
+        } else if (settings.isWriteBehindEnabled()) {
+            writeBehind = new WriteBehindFlusher(settings.getWriteBehindQueueCapacity(),
+                    settings.getWriteBehindMaxBatchWrites(), this::writePartitionFile);
+        }
+        if (settings.isCheckpointEnabled()) {
+            startCheckpointer();
+        }
+        String highWaterMarkPath = this.basePath + "orders.hwm";
+        if (settings.isLazyLoading() && !new File(highWaterMarkPath).exists()) {
+            // Without a high-water mark the highest order number can only be found by reading every partition once
+            ensureAllLoaded();
+        }
+        orderNumberAllocator = new OrderNumberAllocator(highWaterMarkPath,
+                settings.getOrderNumberBlockSize(), highestOrderNumber);
+        evictIfOverBudget();
+    }
+
+    /**
+     * Loads a partition from its file if it has not been loaded yet, and marks it as the most recently used.
+     * Rows whose order date does not belong to the partition are ignored.
+     * @param partitionKey The partition to load.
+     */
+    private void ensureLoaded(Long partitionKey) {
+        if (!settings.isLazyLoading()) {
+            return;
+        }
+        if (unloadedPartitions.remove(partitionKey)) {
+            awaitWriteBehind();  // The file may still be behind a write of this partition before it was evicted
+            mergeLoadedPartition(partitionKey, loadOrdersFromFile(partitionKey));
+        }
+        if (partitions.containsKey(partitionKey)) {
+            partitionUsage.put(partitionKey, Boolean.TRUE);
+        }
+    }
+
+    /**
+     * Adds the orders read from a lazily loaded partition file to memory.
+     * Rows whose order date does not belong to the partition, or which are already resident, are ignored.
+     * @param partitionKey The partition the orders were read from.
+     * @param fileOrders The orders read from its file.
+     */
+    private void mergeLoadedPartition(Long partitionKey, List<Order> fileOrders) {
+        for (Order order : fileOrders) {
+            if (partitionKey.equals(getPartitionKey(order.getOrderDate())) && !orders.containsKey(order.getOrderNumber())) {
+                putOrder(order);
+            }
+        }
+        partitions.computeIfAbsent(partitionKey, key -> new TreeSet<>());
+        partitionUsage.put(partitionKey, Boolean.TRUE);
+    }
+
+    /**
+     * Loads every partition that has not been loaded yet, parsing their files in parallel.
+     */
+    private void ensureAllLoaded() {
+        if (unloadedPartitions.isEmpty()) {
+            return;
+        }
+        List<Long> partitionKeys = new ArrayList<>(unloadedPartitions);
+        unloadedPartitions.clear();
+        awaitWriteBehind();
+        for (ParallelOrderLoader.PartitionLoad load : loadPartitions(partitionKeys).getPartitions()) {
+            mergeLoadedPartition(load.getPartitionKey(), load.getOrders());
+        }
+    }
+
+    /**
+     * Parses the given partition files on the loader pool and records the timings as the last load report.
+     * @param partitionKeys The partitions to parse, in merge order.
+     * @return The parsed partitions with their timings.
+     */
+    private ParallelOrderLoader.LoadReport loadPartitions(List<Long> partitionKeys) {
+        ParallelOrderLoader loader = new ParallelOrderLoader(settings.getLoaderThreads());
+        lastLoadReport = loader.load(partitionKeys, this::loadOrdersFromFile);
+        return lastLoadReport;
+    }
+
+    /**
+     * Returns the per-file and total timings of the most recent bulk load of partition files.
+     * @return The load report, or null if no files have been bulk loaded yet.
+     */
+    public synchronized ParallelOrderLoader.LoadReport getLastLoadReport() {
+        return lastLoadReport;
+    }
+
+    /**
+     * Describes how many order files the constructor restored from the checkpoint instead of parsing.
+     * @return The summary, or null if checkpoints are off or no checkpoint could be read.
+     */
+    public synchronized String getCheckpointSummary() {
+        return checkpointSummary;
+    }
+
+    /**
+     * Finds an order by number, loading partitions (newest first) until it turns up.
+     * @param orderId The order number.
+     * @return The order, or null if no partition holds it.
+     */
+    private Order findOrder(int orderId) {
+        Order order = orders.get(orderId);
+        Iterator<Long> unloaded = new ArrayList<>(unloadedPartitions.descendingSet()).iterator();
+        while (order == null && unloaded.hasNext()) {
+            ensureLoaded(unloaded.next());
+            order = orders.get(orderId);
+        }
+        if (order != null) {
+            ensureLoaded(orderPartitions.get(orderId));  // Marks the partition as recently used
+        }
+        return order;
+    }
+
+    /**
+     * Evicts the least recently used partitions until the resident orders fit the budget again.
+     * Dirty partitions (whose changes are only in the journal) and the most recently used partition are kept.
+     */
+    private void evictIfOverBudget() {
+        if (!settings.isLazyLoading()) {
+            return;
+        }
+        Iterator<Long> leastRecentlyUsed = partitionUsage.keySet().iterator();
+        int remaining = partitionUsage.size();
+        while (orders.size() > settings.getMaxResidentOrders() && remaining > 1) {
+            Long partitionKey = leastRecentlyUsed.next();
+            remaining--;
+            if (dirtyPartitions.contains(partitionKey)) {
+                continue;
+            }
+            leastRecentlyUsed.remove();
+            for (Integer orderId : new ArrayList<>(partitions.get(partitionKey))) {
+                removeFromMemory(orderId);
+            }
+            partitions.remove(partitionKey);
+            unloadedPartitions.add(partitionKey);
+        }
+    }
+
+    /**
+     * Returns how many orders are currently held in memory, for monitoring the lazy loading budget.
+     * @return The number of resident orders.
+     */
+    public synchronized int getResidentOrderCount() {
+        return orders.size();
+    }
+
+    /**
+     * Re-applies the journal records left over from the previous run on top of the partition files,
+     * then folds them into the files. Records are idempotent, so replaying a journal that was
+     * already partly compacted is harmless.
+     */
+    private void replayJournal() {
+        List<String> records = journal.readRecords();
+        if (!records.isEmpty()) {
+            // Records may move orders out of partitions that are not loaded, so recovery works on the full data set
+            ensureAllLoaded();
+        }
+        for (String record : records) {
+            int comma = record.indexOf(',');
+            String operation = comma < 0 ? record : record.substring(0, comma);
+            String payload = comma < 0 ? "" : record.substring(comma + 1);
+            try {
+                switch (operation) {
+                    case "ADD":
+                    case "EDIT":
+                        Order order = parseOrderLine(payload);
+                        Long previousKey = orderPartitions.get(order.getOrderNumber());
+                        if (previousKey != null) {
+                            dirtyPartitions.add(previousKey);
+                        }
+                        dirtyPartitions.add(putOrder(order));
+                        break;
+                    case "REMOVE":
+                        Long removedKey = removeFromMemory(Integer.parseInt(payload.trim()));
+                        if (removedKey != null) {
+                            dirtyPartitions.add(removedKey);
+                        }
+                        break;
+                    default:
+                        throw new IllegalArgumentException("unknown operation " + operation);
+                }
+            } catch (RuntimeException e) {
+                // A torn record at the tail is what a crash in the middle of an append leaves behind
+                System.err.println("Skipping unreadable journal record: " + record);
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Starts the background thread that periodically folds the journal into the partition files.
+     */
+    private void startCompactor() {
+        compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = settings.getCompactionIntervalSeconds();
+        compactor.scheduleWithFixedDelay(this::compact, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Writes every dirty partition to its file and empties the journal.
+     * The partitions are written before the journal is truncated, so a crash in between only
+     * causes the same records to be replayed on the next start.
+     */
+    public synchronized void compact() {
+        if (journal == null) {
+            return;
+        }
+        journal.flush();
+        if (dirtyPartitions.isEmpty() && journal.size() == 0) {
+            return;
+        }
+        for (Long partitionKey : dirtyPartitions) {
+            saveOrdersToFile(partitionKey);
+        }
+        dirtyPartitions.clear();
+        journal.truncate();
+    }
+
+    /**
+     * Writes every loaded partition, with the current stamp of its file, to the checkpoint snapshot
+     * (orders.snapshot). A restart then only parses the order files written after this call.
+     * Changes made after the checkpoint are recovered from the order files and the journal.
+     */
+    public synchronized void checkpoint() {
+        // A RuntimeException escaping here would silently end the scheduled checkpoints, so it is reported too
+        try {
+            List<OrderSnapshot.Partition> snapshotPartitions = new ArrayList<>();
+            for (Map.Entry<Long, Set<Integer>> partition : partitions.entrySet()) {
+                File file = new File(getFilePathForPartition(partition.getKey()));
+                List<Order> partitionOrders = new ArrayList<>(partition.getValue().size());
+                for (Integer orderId : partition.getValue()) {
+                    partitionOrders.add(orders.get(orderId));
+                }
+                snapshotPartitions.add(new OrderSnapshot.Partition(partition.getKey(),
+                        OrderSnapshot.modifiedNanos(file), file.length(), partitionOrders));
+            }
+            OrderSnapshot.write(Paths.get(basePath + "orders.snapshot"), highestOrderNumber, snapshotPartitions);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Error writing order checkpoint: " + ex);
+        }
+    }
+
+    /**
+     * Reads the checkpoint snapshot, if there is a usable one.
+     * @return The snapshot, or null if there is none or it cannot be read.
+     */
+    private OrderSnapshot readSnapshot() {
+        Path snapshotPath = Paths.get(basePath + "orders.snapshot");
+        if (!Files.exists(snapshotPath)) {
+            return null;
+        }
+        try {
+            return OrderSnapshot.read(snapshotPath);
+        } catch (IOException | RuntimeException ex) {
+            System.err.println("Ignoring unreadable order checkpoint: " + ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Starts the background thread that periodically writes the checkpoint snapshot.
+     */
+    private void startCheckpointer() {
+        checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = settings.getCheckpointIntervalSeconds();
+        checkpointer.scheduleWithFixedDelay(this::checkpoint, interval, interval, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops the background compactor and folds any outstanding journal records into the partition files.
+     * Orders can still be read afterwards, but any further change is rejected.
+     */
+    public void close() {
+        closed = true;
+        if (checkpointer != null) {
+            checkpointer.shutdown();
+        }
+        if (writeBehind != null) {
+            writeBehind.close();
+        }
+        if (compactor != null) {
+            compactor.shutdown();
+        }
+        compact();
+        if (settings.isCheckpointEnabled()) {
+            checkpoint();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Rejects a change once close() has stopped the background writers.
+     */
+    private void ensureOpen() {
+        if (closed) {
+            throw new DataPersistenceException("The order storage is closed.");
+        }
+    }
+
+    /**
+     * Persists a mutation: rewrites the touched partitions, queues their new content for the
+     * write-behind flusher, or submits the record to the journal's next group commit and leaves
+     * the partitions to the compactor.
+     * @param journalRecord The journal record describing the mutation.
+     * @param partitionKeys The partitions the mutation touched.
+     * @return A future that completes once the mutation is durable.
+     */
+    private CompletableFuture<Void> recordChange(String journalRecord, Long... partitionKeys) {
+        return recordChanges(Collections.singletonList(journalRecord), partitionKeys);
+    }
+
+    /**
+     * Persists several mutations at once, writing each touched partition a single time.
+     * @param journalRecords The journal records describing the mutations, in order.
+     * @param partitionKeys The partitions the mutations touched.
+     * @return A future that completes once all the mutations are durable.
+     */
+    private CompletableFuture<Void> recordChanges(List<String> journalRecords, Long... partitionKeys) {
+        if (writeBehind != null) {
+            CompletableFuture<?>[] written = new CompletableFuture<?>[partitionKeys.length];
+            for (int i = 0; i < partitionKeys.length; i++) {
+                written[i] = writeBehind.submit(partitionKeys[i], renderPartition(partitionKeys[i]));
+            }
+            return CompletableFuture.allOf(written);
+        }
+        if (journal == null) {
+            for (Long partitionKey : partitionKeys) {
+                saveOrdersToFile(partitionKey);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> durable = CompletableFuture.completedFuture(null);
+        for (String journalRecord : journalRecords) {
+            durable = journal.append(journalRecord);  // Group commits are forced in order, so the last future covers the rest
+        }
+        dirtyPartitions.addAll(Arrays.asList(partitionKeys));
+        if (journal.size() >= settings.getCompactionThresholdBytes()) {
+            compactor.execute(this::compact);
+        }
+        return durable;
+    }
+
+    /**
+     * Drops an order from the in-memory storage and its partition.
+     * @param orderId The ID of the order to drop.
+     * @return The partition key the order was filed under, or null if it did not exist.
+     */
+    private Long removeFromMemory(int orderId) {
+        if (orders.remove(orderId) == null) {
+            return null;
+        }
+        Long partitionKey = orderPartitions.remove(orderId);
+        partitions.get(partitionKey).remove(orderId);
+        customerNameIndex.remove(orderId);
+        stateIndex.remove(orderId);
+        productTypeIndex.remove(orderId);
+        return partitionKey;
+    }
+
+    /**
+     * Stores an order in memory, files it under the partition for its order date and updates the search indexes.
+     * @param order The order to store.
+     * @return The partition key of the order.
+     */
+    private Long putOrder(Order order) {
+        Long partitionKey = getPartitionKey(order.getOrderDate());
+        Long previousKey = orderPartitions.put(order.getOrderNumber(), partitionKey);
+        if (previousKey != null && !previousKey.equals(partitionKey)) {
+            partitions.get(previousKey).remove(order.getOrderNumber());
+        }
+        partitions.computeIfAbsent(partitionKey, key -> new TreeSet<>()).add(order.getOrderNumber());
+        orders.put(order.getOrderNumber(), order);
+        customerNameIndex.put(order.getOrderNumber(), order.getCustomerName());
+        stateIndex.put(order.getOrderNumber(), order.getState());
+        productTypeIndex.put(order.getOrderNumber(), order.getProductType());
+        highestOrderNumber = Math.max(highestOrderNumber, order.getOrderNumber());
+        return partitionKey;
+    }
+
+    /**
+     * Tells whether the order files still hold orders duplicated across dates by older versions of the application.
+     * @return true if migrateOrderFiles() should be run.
+     */
+    public boolean isMigrationRequired() {
+        return migrationRequired;
+    }
+
+    /**
+     * Rewrites every date partition so each file holds only its own orders, and deletes files
+     * left without any orders. The in-memory store is already de-duplicated at load time, so
+     * this only brings the files on disk in line with it.
+     */
+    public synchronized void migrateOrderFiles() {
+        ensureAllLoaded();
+        awaitWriteBehind();  // Queued writes must not recreate the files deleted below
+        for (Long partitionKey : partitions.keySet()) {
+            saveOrdersToFile(partitionKey);
+        }
+        File[] listOfFiles = new File(basePath).listFiles();
+        if (listOfFiles != null) {
+            for (File file : listOfFiles) {
+                String name = file.getName();
+                if (file.isFile() && name.startsWith("Orders_") && name.endsWith(".txt")) {
+                    Long partitionKey = getPartitionKey(name);
+                    Set<Integer> partition = partitionKey == null ? null : partitions.get(partitionKey);
+                    if ((partition == null || partition.isEmpty()) && !AtomicFileWriter.delete(file.toPath())) {
+                        System.err.println("Failed to delete empty order file: " + name);
+                    }
+                }
+            }
+        }
+        migrationRequired = false;
     }
 
     /**
@@ -59,11 +656,72 @@ public class OrderDaoImpl extends OrderDao {
      */
     @Override
     public Order addOrder(Order order) {
+        CompletableFuture<Order> durable = addOrderAsync(order);
+        return writeBehind == null ? awaitDurable(durable) : order;
+    }
+
+    /**
+     * Adds a new order to the in-memory storage without waiting for it to reach the disk.
+     * The order is visible to queries as soon as this method returns.
+     *
+     * @param order The order to be added.
+     * @return A future that completes with the added order once the change is durable.
+     */
+    public synchronized CompletableFuture<Order> addOrderAsync(Order order) {
+        ensureOpen();
         int nextOrderId = getNextOrderId();
         order.setOrderNumber(nextOrderId);
-        orders.put(nextOrderId, order);// Add order to in-memory storage
-        saveOrdersToFile(order.getOrderDate());   // Save the updated orders back to the file
-        return order;
+        ensureLoaded(getPartitionKey(order.getOrderDate()));  // The partition file is rewritten, so it must be complete in memory
+        Long partitionKey = putOrder(order);// Add order to in-memory storage
+        trackChange(nextOrderId);
+        CompletableFuture<Order> durable = recordChange("ADD," + formatOrderLine(order), partitionKey).thenApply(ignored -> order);
+        evictIfOverBudget();
+        return durable;
+    }
+
+    /**
+     * Adds several orders at once. Each date partition the batch touches is written a single time,
+     * however many of its orders are in the batch.
+     *
+     * @param batch The orders to be added.
+     * @return The added orders with their assigned order numbers, in the same order.
+     */
+    @Override
+    public List<Order> addOrders(List<Order> batch) {
+        CompletableFuture<List<Order>> durable = addOrdersAsync(batch);
+        return writeBehind == null ? awaitDurable(durable) : batch;
+    }
+
+    /**
+     * Adds several orders at once without waiting for them to reach the disk.
+     *
+     * @param batch The orders to be added.
+     * @return A future that completes with the added orders once the change is durable.
+     */
+    public synchronized CompletableFuture<List<Order>> addOrdersAsync(List<Order> batch) {
+        ensureOpen();
+        Set<Long> touched = new LinkedHashSet<>();
+        List<String> journalRecords = new ArrayList<>();
+        // A batch larger than a block takes one reservation from the high-water mark file instead of one per block
+        boolean ownBlock = batch.size() > settings.getOrderNumberBlockSize();
+        int firstOrderId = ownBlock ? orderNumberAllocator.reserveBlock(batch.size()) : 0;
+        for (int i = 0; i < batch.size(); i++) {
+            Order order = batch.get(i);
+            int nextOrderId = ownBlock ? firstOrderId + i : getNextOrderId();
+            order.setOrderNumber(nextOrderId);
+            Long partitionKey = getPartitionKey(order.getOrderDate());
+            if (touched.add(partitionKey)) {
+                ensureLoaded(partitionKey);
+            }
+            putOrder(order);
+            trackChange(nextOrderId);
+            if (journal != null) {
+                journalRecords.add("ADD," + formatOrderLine(order));
+            }
+        }
+        CompletableFuture<List<Order>> durable = recordChanges(journalRecords, touched.toArray(new Long[0])).thenApply(ignored -> batch);
+        evictIfOverBudget();
+        return durable;
     }
 
     /**
@@ -74,9 +732,35 @@ public class OrderDaoImpl extends OrderDao {
      */
     @Override
     public void editOrder(Order order) throws OrderNotFoundException {
-        if (orders.containsKey(order.getOrderNumber())) {
-            orders.put(order.getOrderNumber(), order);  // Update order in in-memory storage
-            saveOrdersToFile(order.getOrderDate()); // Save the updated orders back to the file
+        CompletableFuture<Void> durable = editOrderAsync(order);
+        if (writeBehind == null) {
+            awaitDurable(durable);
+        }
+    }
+
+    /**
+     * Edits an existing order in the in-memory storage without waiting for it to reach the disk.
+     *
+     * @param order The updated order.
+     * @return A future that completes once the change is durable.
+     * @throws OrderNotFoundException If the order to be edited does not exist.
+     */
+    public synchronized CompletableFuture<Void> editOrderAsync(Order order) throws OrderNotFoundException {
+        ensureOpen();
+        if (findOrder(order.getOrderNumber()) != null) {
+            Long previousKey = orderPartitions.get(order.getOrderNumber());
+            ensureLoaded(getPartitionKey(order.getOrderDate()));
+            Long partitionKey = putOrder(order);  // Update order in in-memory storage
+            trackChange(order.getOrderNumber());
+            CompletableFuture<Void> durable;
+            if (partitionKey.equals(previousKey)) {
+                durable = recordChange("EDIT," + formatOrderLine(order), partitionKey);
+            } else {
+                // The order moved to another date, so it must also be dropped from the old file
+                durable = recordChange("EDIT," + formatOrderLine(order), partitionKey, previousKey);
+            }
+            evictIfOverBudget();
+            return durable;
         } else {
               // Throw a custom exception
             throw new OrderNotFoundException("Order with ID " + order.getOrderNumber() + " does not exist!");
@@ -84,56 +768,270 @@ public class OrderDaoImpl extends OrderDao {
         }
     }
 
+    /**
+     * Edits several orders at once. Each date partition the batch touches is written a single time.
+     *
+     * @param batch The updated orders.
+     * @throws OrderNotFoundException If any of the orders does not exist; nothing is changed then.
+     */
+    @Override
+    public void editOrders(List<Order> batch) throws OrderNotFoundException {
+        CompletableFuture<Void> durable = editOrdersAsync(batch);
+        if (writeBehind == null) {
+            awaitDurable(durable);
+        }
+    }
+
+    /**
+     * Edits several orders at once without waiting for them to reach the disk.
+     *
+     * @param batch The updated orders.
+     * @return A future that completes once the changes are durable.
+     * @throws OrderNotFoundException If any of the orders does not exist; nothing is changed then.
+     */
+    public synchronized CompletableFuture<Void> editOrdersAsync(List<Order> batch) throws OrderNotFoundException {
+        ensureOpen();
+        for (Order order : batch) {
+            if (findOrder(order.getOrderNumber()) == null) {
+                throw new OrderNotFoundException("Order with ID " + order.getOrderNumber() + " does not exist!");
+            }
+        }
+        Set<Long> touched = new LinkedHashSet<>();
+        List<String> journalRecords = new ArrayList<>();
+        for (Order order : batch) {
+            Long previousKey = orderPartitions.get(order.getOrderNumber());
+            ensureLoaded(previousKey);
+            ensureLoaded(getPartitionKey(order.getOrderDate()));
+            touched.add(previousKey);  // An order that moved to another date must also be dropped from the old file
+            touched.add(putOrder(order));
+            trackChange(order.getOrderNumber());
+            if (journal != null) {
+                journalRecords.add("EDIT," + formatOrderLine(order));
+            }
+        }
+        CompletableFuture<Void> durable = recordChanges(journalRecords, touched.toArray(new Long[0]));
+        evictIfOverBudget();
+        return durable;
+    }
+
     /**
      * Removes an order from the in-memory storage and updates the file.
      * @param orderId The ID of the order to be removed.
      */
     @Override
     public void removeOrder(int orderId) {
-        Order order = orders.remove(orderId);
-        if (order != null) {
-            saveOrdersToFile(order.getOrderDate());  // Save the updated orders back to the file
+        CompletableFuture<Void> durable = removeOrderAsync(orderId);
+        if (writeBehind == null) {
+            awaitDurable(durable);
+        }
+    }
+
+    /**
+     * Removes an order from the in-memory storage without waiting for it to reach the disk.
+     * @param orderId The ID of the order to be removed.
+     * @return A future that completes once the change is durable.
+     */
+    public synchronized CompletableFuture<Void> removeOrderAsync(int orderId) {
+        ensureOpen();
+        findOrder(orderId);
+        Long partitionKey = removeFromMemory(orderId);
+        if (partitionKey == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        trackChange(orderId);
+        removedOrders.add(orderId);
+        CompletableFuture<Void> durable = recordChange("REMOVE," + orderId, partitionKey);  // Save the updated partition back to its file
+        evictIfOverBudget();
+        return durable;
+    }
+
+    /**
+     * Stamps an order with the next change sequence, for delta exports.
+     * @param orderId The number of the added, edited or removed order.
+     */
+    private void trackChange(int orderId) {
+        orderChanges.put(orderId, ++changeSequence);
+    }
+
+    /**
+     * Removes several orders at once. Each date partition the batch touches is written a single time.
+     * Order numbers that do not exist are ignored.
+     * @param orderIds The IDs of the orders to be removed.
+     */
+    @Override
+    public void removeOrders(List<Integer> orderIds) {
+        CompletableFuture<Void> durable = removeOrdersAsync(orderIds);
+        if (writeBehind == null) {
+            awaitDurable(durable);
+        }
+    }
+
+    /**
+     * Removes several orders at once without waiting for them to reach the disk.
+     * @param orderIds The IDs of the orders to be removed.
+     * @return A future that completes once the changes are durable.
+     */
+    public synchronized CompletableFuture<Void> removeOrdersAsync(List<Integer> orderIds) {
+        ensureOpen();
+        Set<Long> touched = new LinkedHashSet<>();
+        List<String> journalRecords = new ArrayList<>();
+        for (int orderId : orderIds) {
+            findOrder(orderId);
+            Long partitionKey = removeFromMemory(orderId);
+            if (partitionKey == null) {
+                continue;
+            }
+            trackChange(orderId);
+            removedOrders.add(orderId);
+            touched.add(partitionKey);
+            if (journal != null) {
+                journalRecords.add("REMOVE," + orderId);
+            }
+        }
+        if (touched.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> durable = recordChanges(journalRecords, touched.toArray(new Long[0]));
+        evictIfOverBudget();
+        return durable;
+    }
+
+    /**
+     * Waits for a change to become durable. Callers wait outside the DAO lock, so concurrent
+     * writers end up in the same group commit of the journal.
+     * @param durable The future returned for the change.
+     * @return The value of the future.
+     */
+    private static <T> T awaitDurable(CompletableFuture<T> durable) {
+        try {
+            return durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
         }
     }
 
     /**
      * Retrieves orders by a specific date.
+     * Only the partition for that date is scanned.
      * @param date The date to retrieve orders for.
      * @return A list of orders for the specified date.
      */
-    public List<Order> getOrdersByDate(Date date) {
+    public synchronized List<Order> getOrdersByDate(Date date) {
         List<Order> ordersByDate = new ArrayList<>();
-        for (Order order : orders.values()) {
+        Long partitionKey = getPartitionKey(date);
+        ensureLoaded(partitionKey);
+        for (Integer orderId : partitions.getOrDefault(partitionKey, Collections.emptySet())) {
+            Order order = orders.get(orderId);
             if (order.getOrderDate().equals(date)) {
                 ordersByDate.add(order);
             }
         }
+        evictIfOverBudget();
         return ordersByDate;
     }
 
+    /**
+     * Retrieves the orders placed between two dates, both inclusive, in date order.
+     * Only the partitions inside the range are visited.
+     * @param from The first date of the range.
+     * @param to The last date of the range.
+     * @return A list of orders placed within the range.
+     */
+    @Override
+    public synchronized List<Order> getOrdersBetween(Date from, Date to) {
+        List<Order> ordersBetween = new ArrayList<>();
+        Long fromKey = getPartitionKey(from);
+        Long toKey = getPartitionKey(to);
+        if (fromKey > toKey) {
+            return ordersBetween;
+        }
+        for (Long partitionKey : new ArrayList<>(unloadedPartitions.subSet(fromKey, true, toKey, true))) {
+            ensureLoaded(partitionKey);
+        }
+        for (Set<Integer> partition : partitions.subMap(fromKey, true, toKey, true).values()) {
+            for (Integer orderId : partition) {
+                ordersBetween.add(orders.get(orderId));
+            }
+        }
+        evictIfOverBudget();
+        return ordersBetween;
+    }
+
+    /**
+     * Copies the orders of every day before the given date into the columnar archive folder
+     * (archive/ under the orders folder), replacing the previous archive. The CSV files stay the
+     * source of truth; the archive is a read-optimized copy of the closed days for reports.
+     * The console application does not call this; it is for reporting and maintenance code.
+     * @param before The first day that is still open; earlier days are archived.
+     * @return The written archive.
+     */
+    public synchronized ColumnarOrderArchive archiveClosedDays(Date before) {
+        Long beforeKey = getPartitionKey(before);
+        for (Long partitionKey : new ArrayList<>(unloadedPartitions.headSet(beforeKey, false))) {
+            ensureLoaded(partitionKey);
+        }
+        List<Order> closedOrders = new ArrayList<>();
+        for (Set<Integer> partition : partitions.headMap(beforeKey, false).values()) {
+            for (Integer orderId : partition) {
+                closedOrders.add(orders.get(orderId));
+            }
+        }
+        ColumnarOrderArchive archive = ColumnarOrderArchive.write(basePath + "archive", closedOrders);
+        evictIfOverBudget();
+        return archive;
+    }
+
     /**
      * Retrieves an order by its order ID.
      * @param orderId The ID of the order to retrieve.
      * @return The order if found, otherwise null.
      */
     @Override
-    public Order getOrderById(int orderId) {
-        return orders.get(orderId);
+    public synchronized Order getOrderById(int orderId) {
+        Order order = findOrder(orderId);
+        evictIfOverBudget();
+        return order;
     }
 
     /**
-     * Searches orders by a customer's name.
+     * Searches orders by a customer's name, ignoring case, through the customer name index.
      * @param customerName The customer's name to search by.
      * @return A list of orders that match the customer's name.
      */
     @Override
-    public List<Order> searchOrdersByName(String customerName) {
+    public synchronized List<Order> searchOrdersByName(String customerName) {
+        ensureAllLoaded();
+        List<Order> matchingOrders = new ArrayList<>();
+        for (Integer orderId : customerNameIndex.get(customerName)) {
+            matchingOrders.add(orders.get(orderId));
+        }
+        evictIfOverBudget();
+        return matchingOrders;
+    }
+
+    /**
+     * Searches orders by a prefix, fragment or approximate spelling of the customer's name,
+     * through the trigram index over the distinct customer names.
+     * @param query The partial or misspelt customer name.
+     * @param limit The most orders to return.
+     * @return The orders of the best matching customers, best match first.
+     */
+    @Override
+    public synchronized List<Order> searchOrdersByNameFuzzy(String query, int limit) {
+        ensureAllLoaded();
         List<Order> matchingOrders = new ArrayList<>();
-        for (Order order : orders.values()) {
-            if (order.getCustomerName().equalsIgnoreCase(customerName)) {
-                matchingOrders.add(order);
+        for (String customerName : customerNameIndex.findSimilar(query, limit)) {
+            for (Integer orderId : customerNameIndex.get(customerName)) {
+                if (matchingOrders.size() == limit) {
+                    break;
+                }
+                matchingOrders.add(orders.get(orderId));
             }
         }
+        evictIfOverBudget();
         return matchingOrders;
     }
 
@@ -142,39 +1040,81 @@ public class OrderDaoImpl extends OrderDao {
      * @return A list of all orders.
      */
     @Override
-    public List<Order> getAllOrders() {
-        return new ArrayList<>(orders.values());
+    public synchronized List<Order> getAllOrders() {
+        ensureAllLoaded();
+        List<Order> allOrders = new ArrayList<>(orders.values());
+        evictIfOverBudget();
+        return allOrders;
     }
 
     /**
-     * Searches orders by product type.
+     * Searches orders by product type, ignoring case, through the product type index.
      * @param  productType The product type to search by.
      * @return A list of orders that match the product type.
      */
     @Override
-    public List<Order> searchOrdersByProductType(String productType) {
+    public synchronized List<Order> searchOrdersByProductType(String productType) {
+        ensureAllLoaded();
         List<Order> matchingOrders = new ArrayList<>();
-        for (Order order : orders.values()) {
-            if (order.getProductType().equalsIgnoreCase(productType)) {
-                matchingOrders.add(order);
-            }
+        for (Integer orderId : productTypeIndex.get(productType)) {
+            matchingOrders.add(orders.get(orderId));
         }
+        evictIfOverBudget();
         return matchingOrders;
     }
 
     /**
-     * Searches orders by state.
+     * Searches orders by state, ignoring case, through the state index.
      * @param state The state to search by.
      * @return A list of orders that match the state.
      */
     @Override
-    public List<Order> searchOrdersByState(String state) {
+    public synchronized List<Order> searchOrdersByState(String state) {
+        ensureAllLoaded();
+        List<Order> matchingOrders = new ArrayList<>();
+        for (Integer orderId : stateIndex.get(state)) {
+            matchingOrders.add(orders.get(orderId));
+        }
+        evictIfOverBudget();
+        return matchingOrders;
+    }
+
+    /**
+     * Retrieves the orders dated on or after a date that match a state and a product type, ignoring case.
+     * Only the partitions from that date on are loaded; the matches are found through the smaller of
+     * the state and product type index entries.
+     * @param from The first date to include.
+     * @param state The state to match, or null to match any state.
+     * @param productType The product type to match, or null to match any product type.
+     * @return The matching orders, in order-number order.
+     */
+    @Override
+    public synchronized List<Order> searchOrdersFrom(Date from, String state, String productType) {
+        Long fromKey = getPartitionKey(from);
+        for (Long partitionKey : new ArrayList<>(unloadedPartitions.tailSet(fromKey, true))) {
+            ensureLoaded(partitionKey);
+        }
         List<Order> matchingOrders = new ArrayList<>();
-        for (Order order : orders.values()) {
-            if (order.getState().equalsIgnoreCase(state)) {
-                matchingOrders.add(order);
+        Set<Integer> byState = state == null ? null : stateIndex.get(state);
+        Set<Integer> byProductType = productType == null ? null : productTypeIndex.get(productType);
+        if (byState == null && byProductType == null) {
+            for (Set<Integer> partition : partitions.tailMap(fromKey, true).values()) {
+                for (Integer orderId : partition) {
+                    matchingOrders.add(orders.get(orderId));
+                }
+            }
+            matchingOrders.sort(Comparator.comparing(Order::getOrderNumber));
+        } else {
+            boolean stateFirst = byProductType == null || (byState != null && byState.size() <= byProductType.size());
+            Set<Integer> candidates = stateFirst ? byState : byProductType;
+            Set<Integer> other = stateFirst ? byProductType : byState;
+            for (Integer orderId : candidates) {
+                if (orderPartitions.get(orderId) >= fromKey && (other == null || other.contains(orderId))) {
+                    matchingOrders.add(orders.get(orderId));
+                }
             }
         }
+        evictIfOverBudget();
         return matchingOrders;
     }
     /**
@@ -182,42 +1122,39 @@ public class OrderDaoImpl extends OrderDao {
      * @return The next order ID.
      */
     private int getNextOrderId() {
-        // Find the maximum order ID and increment by 1 for the next order
-        return orders.keySet().stream()
-                .mapToInt(Integer::intValue)
-                .max()
-                .orElse(0) + 1;
+        return orderNumberAllocator.next();
     }
 
     /**
-     * Loads orders from a file for a specific date.
-     * @param date The date to load orders for.
+     * Returns the allocator that hands out order numbers, so other writers (such as bulk imports)
+     * can reserve blocks of numbers from the same high-water mark.
+     * @return The order number allocator.
+     */
+    public OrderNumberAllocator getOrderNumberAllocator() {
+        return orderNumberAllocator;
+    }
+
+    /**
+     * Loads orders from the file of a date partition.
+     * @param partitionKey The partition key (epoch day) to load orders for.
      * @return A list of orders loaded from the file.
      */
-    private List<Order> loadOrdersFromFile(Date date) {
+    private List<Order> loadOrdersFromFile(Long partitionKey) {
         List<Order> fileOrders = new ArrayList<>();
-        String filePath = getFilePathForDate(date);
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            reader.readLine();  // Skip the header line
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 13) {
-                    int orderId = Integer.parseInt(parts[0].trim());
-                    String customerName = parts[1].trim();
-                    String state = parts[2].trim();
-                    BigDecimal taxRate = new BigDecimal(parts[3].trim());
-                    String productType = parts[4].trim();
-                    BigDecimal area = new BigDecimal(parts[5].trim());
-                    BigDecimal costPerSquareFoot = new BigDecimal(parts[6].trim());
-                    BigDecimal laborCostPerSquareFoot = new BigDecimal(parts[7].trim());
-                    BigDecimal materialCost = new BigDecimal(parts[8].trim());
-                    BigDecimal laborCost = new BigDecimal(parts[9].trim());
-                    BigDecimal tax = new BigDecimal(parts[10].trim());
-                    BigDecimal total = new BigDecimal(parts[11].trim());
-                    Date orderDate = parseDate(parts[12].trim());
-                    fileOrders.add(new Order(orderId, customerName, state, taxRate, productType, area,
-                            costPerSquareFoot, laborCostPerSquareFoot, materialCost, laborCost, tax, total, orderDate));
+        String filePath = getFilePathForPartition(partitionKey);
+        try {
+            AtomicFileWriter.verifyOrRestore(Paths.get(filePath));
+        } catch (IOException ex) {
+            // Loading a torn file as empty would let the next save overwrite what is left of it
+            throw new DataPersistenceException("Error restoring order file " + filePath + ".", ex);
+        }
+        try (CsvRecordReader reader = new CsvRecordReader(new FileReader(filePath), filePath)) {
+            reader.next();  // Skip the header line
+            while (reader.next()) {
+                try {
+                    fileOrders.add(readOrder(reader));
+                } catch (MalformedRecordException e) {
+                    System.err.println("Skipping malformed order: " + e.getMessage());
                 }
             }
         } catch (IOException ex) {
@@ -227,68 +1164,131 @@ public class OrderDaoImpl extends OrderDao {
     }
 
     /**
-     * Parses a date from a string.
-     * @param dateString The string representation of the date.
-     * @return The parsed date.
+     * Parses one CSV line of an order, such as the payload of a journal record.
+     * @param line The line to parse.
+     * @return The parsed order.
+     * @throws MalformedRecordException If the line does not hold a complete order.
      */
-    private Date parseDate(String dateString) {
-        try {
-            SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
-            return sdf.parse(dateString);
-        } catch (Exception e) {
-            System.err.println("Error parsing date: " + e.getMessage());
-            return null;
+    private Order parseOrderLine(String line) {
+        try (CsvRecordReader reader = new CsvRecordReader(new StringReader(line), "order record")) {
+            if (!reader.next()) {
+                throw reader.malformed("empty order record");
+            }
+            return readOrder(reader);
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error parsing order record.", ex);
         }
     }
 
     /**
-     * Saves all orders to a file for a specific date.
-     * @param date The date for which to save orders.
+     * Builds an order from the current record of a reader.
+     * @param reader A reader positioned on an order record.
+     * @return The parsed order.
+     * @throws MalformedRecordException If the record does not hold all 13 fields or a field cannot be parsed.
      */
-        private void saveOrdersToFile(Date date) {
-            String filePath = getFilePathForDate(date);
+    private static Order readOrder(CsvRecordReader reader) {
+        return readOrder(reader, 0);
+    }
 
-            SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
+    /**
+     * Reads the current record as an order whose 13 fields start at the given field, as in delta exports.
+     * @param reader The reader positioned on the record.
+     * @param first The index of the OrderNumber field.
+     * @return The order.
+     * @throws MalformedRecordException If a field is missing or invalid.
+     */
+    static Order readOrder(CsvRecordReader reader, int first) {
+        reader.requireFields(first + 13);
+        return new Order(reader.getInt(first), reader.getString(first + 1), reader.getString(first + 2),
+                reader.getDecimal(first + 3), reader.getString(first + 4), reader.getDecimal(first + 5),
+                reader.getDecimal(first + 6), reader.getDecimal(first + 7), reader.getDecimal(first + 8),
+                reader.getDecimal(first + 9), reader.getDecimal(first + 10), reader.getDecimal(first + 11),
+                reader.getDate(first + 12));
+    }
 
-            try (FileWriter writer = new FileWriter(filePath, false)) {
-                writer.write("OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate\n"); // updated header with OrderDate
-                for (Order order : orders.values()) {
-                    writer.write(String.join(",",
-                            order.getOrderNumber().toString(),
-                            order.getCustomerName(),
-                            order.getState(),
-                            order.getTaxRate().toString(),
-                            order.getProductType(),
-                            order.getArea().toString(),
-                            order.getCostPerSquareFoot().toString(),
-                            order.getLaborCostPerSquareFoot().toString(),
-                            order.getMaterialCost().toString(),
-                            order.getLaborCost().toString(),
-                            order.getTax().toString(),
-                            order.getTotal().toString(),
-                            sdf.format(order.getOrderDate())
-                    ) + "\n");
-                }
-            } catch (IOException ex) {
-                System.err.println("Error writing orders to file: " + ex.getMessage());
-            }
+    /**
+     * Formats an order as one CSV line of an order file, without a trailing line break.
+     * @param order The order to format.
+     * @return The CSV line.
+     */
+    static String formatOrderLine(Order order) {
+        SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
+        return String.join(",",
+                order.getOrderNumber().toString(),
+                order.getCustomerName(),
+                order.getState(),
+                order.getTaxRate().toString(),
+                order.getProductType(),
+                order.getArea().toString(),
+                order.getCostPerSquareFoot().toString(),
+                order.getLaborCostPerSquareFoot().toString(),
+                order.getMaterialCost().toString(),
+                order.getLaborCost().toString(),
+                order.getTax().toString(),
+                order.getTotal().toString(),
+                sdf.format(order.getOrderDate())
+        );
+    }
+
+    /**
+     * Saves the orders of one date partition to its file.
+     * @param partitionKey The partition key (epoch day) for which to save orders.
+     */
+    private void saveOrdersToFile(Long partitionKey) {
+        try {
+            writePartitionFile(partitionKey, renderPartition(partitionKey));
+        } catch (IOException ex) {
+            System.err.println("Error writing orders to file: " + ex.getMessage());
         }
+    }
 
     /**
-     * Parses a date from a file name.
-     * @param fileName The name of the file.
-     * @return The parsed date.
+     * Renders the content of a partition file from the in-memory orders.
+     * @param partitionKey The partition key (epoch day) to render.
+     * @return The file content, header included.
      */
-        private Date parseDateFromFileName(String fileName) {
-            try {
-                String datePart = fileName.replace("Orders_", "").replace(".txt", "");
-                SimpleDateFormat sdf = new SimpleDateFormat("MMddyyyy");
-                return sdf.parse(datePart);
-            } catch (Exception e) {
-                System.err.println("Error parsing date from file name: " + e.getMessage());
-                return null;
-            }
+    private String renderPartition(Long partitionKey) {
+        StringBuilder content = new StringBuilder(HEADER).append('\n'); // updated header with OrderDate
+        for (Integer orderId : partitions.getOrDefault(partitionKey, Collections.emptySet())) {
+            content.append(formatOrderLine(orders.get(orderId))).append('\n');
         }
+        return content.toString();
+    }
+
+    /**
+     * Replaces the file of a partition with the given content.
+     * @param partitionKey The partition key (epoch day) of the file.
+     * @param content The new file content.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writePartitionFile(Long partitionKey, String content) throws IOException {
+        AtomicFileWriter.write(Paths.get(getFilePathForPartition(partitionKey)), content);
+    }
+
+    /**
+     * Waits for the write-behind flusher, if any, to write everything queued so far.
+     */
+    private void awaitWriteBehind() {
+        if (writeBehind != null) {
+            writeBehind.awaitFlushed();
+        }
+    }
+
+    /**
+     * Returns the journal, whose size and commit count can be monitored.
+     * @return The journal, or null when journaling is off.
+     */
+    public OrderJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Returns the write-behind flusher, whose queue depth and flush lag can be monitored.
+     * @return The flusher, or null when write-behind is off.
+     */
+    public WriteBehindFlusher getWriteBehindFlusher() {
+        return writeBehind;
+    }
 
     /**
      * Specify Backup Folder Path
@@ -297,39 +1297,89 @@ public class OrderDaoImpl extends OrderDao {
 
 
     /**
-     * Exports all order data to a file.
+     * Exports all order data to the backup file, in order-number order.
      */
     public void exportAllData() {
-        File exportFile = new File(EXPORT_PATH);
-        File parentDir = exportFile.getParentFile();
-
-        if (!parentDir.exists()) {
-            parentDir.mkdirs();
-        }
-
-        try (FileWriter writer = new FileWriter(exportFile, false)) {
-            writer.write("OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate\n");
-
-            SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
-            for (Order order : orders.values()) {
-                writer.write(String.join(",",
-                        order.getOrderNumber().toString(),
-                        order.getCustomerName(),
-                        order.getState(),
-                        order.getTaxRate().toString(),
-                        order.getProductType(),
-                        order.getArea().toString(),
-                        order.getCostPerSquareFoot().toString(),
-                        order.getLaborCostPerSquareFoot().toString(),
-                        order.getMaterialCost().toString(),
-                        order.getLaborCost().toString(),
-                        order.getTax().toString(),
-                        order.getTotal().toString(),
-                        sdf.format(order.getOrderDate())
-                ) + "\n");
+        exportOrders(EXPORT_PATH, OrderExporter.SortOrder.ORDER_NUMBER);
+    }
+
+    /**
+     * Streams every order into a CSV export file through an OrderExporter.
+     * @param filePath The export file to write.
+     * @param sortOrder Whether rows are sorted by order number or by order date.
+     * @return The number of orders exported.
+     */
+    @Override
+    public synchronized long exportOrders(String filePath, OrderExporter.SortOrder sortOrder) {
+        ensureAllLoaded();
+        Iterator<Order> rows;
+        if (sortOrder == OrderExporter.SortOrder.ORDER_DATE) {
+            // Partitions are sorted by day and hold their orders sorted by number
+            rows = partitions.values().stream().flatMap(Set::stream).map(orders::get).iterator();
+        } else {
+            rows = orders.keySet().stream().mapToInt(Integer::intValue).sorted().mapToObj(orders::get).iterator();
+        }
+        try {
+            return new OrderExporter().export(rows, Paths.get(filePath));
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error exporting orders.", ex);
+        } finally {
+            evictIfOverBudget();
+        }
+    }
+
+    /**
+     * Writes the orders added, edited or removed since the last delta export, and advances the watermark.
+     * While this DAO is running, only the orders changed after the watermark's sequence are looked at;
+     * a watermark from before a restart is caught up by comparing every order with its fingerprint.
+     * The watermark is only replaced once the delta file is complete, so a failed export is simply repeated.
+     * @param filePath The delta file to write.
+     * @param watermarkPath The watermark of the delta chain; a missing file starts a new chain with every order.
+     * @return The number of rows (changed orders plus tombstones) written.
+     */
+    @Override
+    public synchronized long exportChanges(String filePath, String watermarkPath) {
+        try {
+            Path watermarkFile = Paths.get(watermarkPath);
+            DeltaWatermark previous = DeltaWatermark.read(watermarkFile);
+            Collection<Integer> candidates;
+            if (previous.getSessionId() == sessionId) {
+                candidates = new ArrayList<>();
+                for (Map.Entry<Integer, Long> change : orderChanges.entrySet()) {
+                    if (change.getValue() > previous.getSequence()) {
+                        candidates.add(change.getKey());
+                    }
+                }
+            } else {
+                ensureAllLoaded();
+                candidates = new HashSet<>(orders.keySet());
+                candidates.addAll(previous.getFingerprints().keySet());
             }
+            List<Order> upserts = new ArrayList<>();
+            List<Integer> tombstones = new ArrayList<>();
+            DeltaWatermark next = previous.advance(candidates, id -> removedOrders.contains(id) ? null : findOrder(id),
+                    sessionId, changeSequence, upserts, tombstones);
+            long rows = new OrderExporter().exportChanges(upserts.iterator(), tombstones.iterator(), Paths.get(filePath));
+            next.write(watermarkFile);
+            return rows;
         } catch (IOException ex) {
-            System.err.println("Error exporting data: " + ex.getMessage());
+            throw new DataPersistenceException("Error exporting order changes.", ex);
+        } finally {
+            evictIfOverBudget();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Exports every order as one GZIP-compressed file per partition, using the loader threads as workers.
+     * Only collecting the orders holds the DAO lock; encoding and compressing run without it.
+     * @param folderPath The folder to write the files and manifest.csv to.
+     * @param partitioning Whether to split by month of the order date or by state.
+     * @return The manifest entries, one per file.
+     */
+    @Override
+    public List<PartitionedOrderExporter.ManifestEntry> exportPartitioned(String folderPath,
+            PartitionedOrderExporter.Partitioning partitioning) {
+        List<Order> allOrders = getAllOrders();
+        return new PartitionedOrderExporter(settings.getLoaderThreads()).export(allOrders, partitioning, Paths.get(folderPath));
+    }
+}
@@ -0,0 +1,149 @@
+package dao;
+
+/**
+ * The OrderDaoSettings class holds the storage options of an OrderDaoImpl.
+ * The defaults reproduce the plain behaviour: every mutation rewrites its date partition straight away.
+ */
+public class OrderDaoSettings {
+    // Whether mutations are appended to a journal instead of rewriting partition files
+    private boolean journalEnabled = false;
+    // Journal size (in bytes) that triggers a compaction into the partition files
+    private long compactionThresholdBytes = 1024 * 1024;
+    // How often (in seconds) the background compactor folds the journal into the partition files
+    private long compactionIntervalSeconds = 60;
+    // How long (in microseconds) a journal commit waits to gather more records before forcing them to disk
+    private long groupCommitWindowMicros = 1000;
+    // The most journal records forced to disk by a single commit
+    private int groupCommitMaxRecords = 256;
+    // How many order numbers are reserved from the high-water mark file at a time; unused ones are skipped on restart
+    private int orderNumberBlockSize = OrderNumberAllocator.DEFAULT_BLOCK_SIZE;
+    // Whether date partitions are parsed on first use instead of all at startup
+    private boolean lazyLoading = false;
+    // With lazy loading, how many orders may stay in memory before least recently used partitions are evicted
+    private int maxResidentOrders = 100000;
+    // How many order files are parsed at the same time when many are loaded at once
+    private int loaderThreads = Runtime.getRuntime().availableProcessors();
+    // Whether mutations return before their partition file is written (ignored when journaling is on)
+    private boolean writeBehindEnabled = false;
+    // How many partition writes may wait for the write-behind flusher before mutations block
+    private int writeBehindQueueCapacity = 1024;
+    // The most queued partition writes coalesced into one flush
+    private int writeBehindMaxBatchWrites = 256;
+    // Whether the orders are periodically checkpointed to a binary snapshot that speeds up the next start
+    private boolean checkpointEnabled = false;
+    // How often (in seconds) the checkpoint snapshot is rewritten
+    private long checkpointIntervalSeconds = 300;
+
+    //    Getters, and Setters for all attributes
+    public boolean isJournalEnabled() {
+        return journalEnabled;
+    }
+
+    public void setJournalEnabled(boolean journalEnabled) {
+        this.journalEnabled = journalEnabled;
+    }
+
+    public long getCompactionThresholdBytes() {
+        return compactionThresholdBytes;
+    }
+
+    public void setCompactionThresholdBytes(long compactionThresholdBytes) {
+        this.compactionThresholdBytes = compactionThresholdBytes;
+    }
+
+    public long getCompactionIntervalSeconds() {
+        return compactionIntervalSeconds;
+    }
+
+    public void setCompactionIntervalSeconds(long compactionIntervalSeconds) {
+        this.compactionIntervalSeconds = compactionIntervalSeconds;
+    }
+
+    public long getGroupCommitWindowMicros() {
+        return groupCommitWindowMicros;
+    }
+
+    public void setGroupCommitWindowMicros(long groupCommitWindowMicros) {
+        this.groupCommitWindowMicros = groupCommitWindowMicros;
+    }
+
+    public int getGroupCommitMaxRecords() {
+        return groupCommitMaxRecords;
+    }
+
+    public void setGroupCommitMaxRecords(int groupCommitMaxRecords) {
+        this.groupCommitMaxRecords = groupCommitMaxRecords;
+    }
+
+    public int getOrderNumberBlockSize() {
+        return orderNumberBlockSize;
+    }
+
+    public void setOrderNumberBlockSize(int orderNumberBlockSize) {
+        this.orderNumberBlockSize = orderNumberBlockSize;
+    }
+
+    public boolean isLazyLoading() {
+        return lazyLoading;
+    }
+
+    public void setLazyLoading(boolean lazyLoading) {
+        this.lazyLoading = lazyLoading;
+    }
+
+    public int getMaxResidentOrders() {
+        return maxResidentOrders;
+    }
+
+    public void setMaxResidentOrders(int maxResidentOrders) {
+        this.maxResidentOrders = maxResidentOrders;
+    }
+
+    public int getLoaderThreads() {
+        return loaderThreads;
+    }
+
+    public void setLoaderThreads(int loaderThreads) {
+        this.loaderThreads = loaderThreads;
+    }
+
+    public boolean isWriteBehindEnabled() {
+        return writeBehindEnabled;
+    }
+
+    public void setWriteBehindEnabled(boolean writeBehindEnabled) {
+        this.writeBehindEnabled = writeBehindEnabled;
+    }
+
+    public int getWriteBehindQueueCapacity() {
+        return writeBehindQueueCapacity;
+    }
+
+    public void setWriteBehindQueueCapacity(int writeBehindQueueCapacity) {
+        this.writeBehindQueueCapacity = writeBehindQueueCapacity;
+    }
+
+    public int getWriteBehindMaxBatchWrites() {
+        return writeBehindMaxBatchWrites;
+    }
+
+    public void setWriteBehindMaxBatchWrites(int writeBehindMaxBatchWrites) {
+        this.writeBehindMaxBatchWrites = writeBehindMaxBatchWrites;
+    }
+
+    public boolean isCheckpointEnabled() {
+        return checkpointEnabled;
+    }
+
+    public void setCheckpointEnabled(boolean checkpointEnabled) {
+        this.checkpointEnabled = checkpointEnabled;
+    }
+
+    public long getCheckpointIntervalSeconds() {
+        return checkpointIntervalSeconds;
+    }
+
+    public void setCheckpointIntervalSeconds(long checkpointIntervalSeconds) {
+        this.checkpointIntervalSeconds = checkpointIntervalSeconds;
+    }
+}
@@ -0,0 +1,325 @@
+package dao;
+
+import modelDTO.Order;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.zip.CheckedOutputStream;
+import java.util.zip.Checksum;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The OrderExporter class streams orders into the CSV export file.
+ *
+ * Rows are encoded straight into one reused byte buffer, which is written through a FileChannel
+ * whenever it fills up, so the memory used does not depend on the number of orders. Money and other
+ * decimals are written with two decimal places, rounded half up. The export is written to a temporary
+ * file first and moved over the target when complete.
+ *
+ * Delta exports use the same rows behind an extra Change column: "U" rows carry a new or changed
+ * order, and "D" rows only the number of a removed one.
+ */
+public class OrderExporter {
+
+    /**
+     * The order rows are written in.
+     */
+    public enum SortOrder { ORDER_NUMBER, ORDER_DATE }
+
+    private static final byte[] HEADER = (OrderDaoImpl.HEADER + "\n").getBytes(StandardCharsets.US_ASCII);
+    static final String CHANGE_COLUMN = "Change";
+    static final String UPSERT = "U";
+    static final String TOMBSTONE = "D";
+    private static final byte[] CHANGES_HEADER = (CHANGE_COLUMN + "," + OrderDaoImpl.HEADER + "\n").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] UPSERT_PREFIX = (UPSERT + ",").getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOMBSTONE_PREFIX = (TOMBSTONE + ",").getBytes(StandardCharsets.US_ASCII);
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final ByteBuffer buffer;
+    private final ZoneId zone = ZoneId.systemDefault();
+    // Encoded MM-dd-yyyy form of each order date seen so far, keyed by the date's millis
+    private final Map<Long, byte[]> encodedDates = new HashMap<>();
+    private final byte[] digits = new byte[20];
+    private WritableByteChannel channel;
+
+    /**
+     * Creates an exporter with a 64 KB buffer.
+     */
+    public OrderExporter() {
+        this(DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates an exporter that writes in chunks of the given size.
+     * @param bufferSize The size of the reused buffer in bytes.
+     */
+    public OrderExporter(int bufferSize) {
+        this.buffer = ByteBuffer.allocateDirect(Math.max(256, bufferSize));
+    }
+
+    /**
+     * Writes the header and one row per order to a file, replacing it.
+     * @param orders The orders to write, in the order they should appear.
+     * @param target The export file; its folder is created if missing.
+     * @return The number of rows written.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized long export(Iterator<Order> orders, Path target) throws IOException {
+        return writeFile(target, null, () -> writeRows(orders));
+    }
+
+    /**
+     * Writes the header and one row per order to a GZIP-compressed file, replacing it.
+     * @param orders The orders to write, in the order they should appear.
+     * @param target The compressed export file; its folder is created if missing.
+     * @param checksum Updated with the compressed bytes as they are written.
+     * @return The number of rows written.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized long exportCompressed(Iterator<Order> orders, Path target, Checksum checksum) throws IOException {
+        return writeFile(target, checksum, () -> writeRows(orders));
+    }
+
+    private long writeRows(Iterator<Order> orders) throws IOException {
+        put(HEADER);
+        long rows = 0;
+        while (orders.hasNext()) {
+            encodeRow(orders.next());
+            rows++;
+        }
+        return rows;
+    }
+
+    /**
+     * Writes a delta export: a "U" row with the full order for every new or changed order, and a
+     * "D" row with just the order number for every removed one.
+     * @param upserts The new and changed orders.
+     * @param removed The numbers of the removed orders.
+     * @param target The delta file; its folder is created if missing.
+     * @return The number of rows written.
+     * @throws IOException If the file cannot be written.
+     */
+    public synchronized long exportChanges(Iterator<Order> upserts, Iterator<Integer> removed, Path target) throws IOException {
+        return writeFile(target, null, () -> {
+            put(CHANGES_HEADER);
+            long rows = 0;
+            while (upserts.hasNext()) {
+                put(UPSERT_PREFIX);
+                encodeRow(upserts.next());
+                rows++;
+            }
+            while (removed.hasNext()) {
+                put(TOMBSTONE_PREFIX);
+                putLong(removed.next());
+                ensureRoom(1);
+                buffer.put((byte) '\n');
+                rows++;
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Writes a file through the buffer into a temporary file, then moves it over the target.
+     * @param checksum Non-null to GZIP-compress the file, updated with the compressed bytes.
+     */
+    private long writeFile(Path target, Checksum checksum, RowWriter rowWriter) throws IOException {
+        File parent = target.toAbsolutePath().getParent().toFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        long rows;
+        buffer.clear();
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            if (checksum == null) {
+                channel = out;
+                rows = rowWriter.write();
+                drain();
+                out.force(false);
+            } else {
+                GZIPOutputStream gzip = new FastGZIPOutputStream(new CheckedOutputStream(Channels.newOutputStream(out), checksum));
+                channel = Channels.newChannel(gzip);
+                rows = rowWriter.write();
+                drain();
+                gzip.finish();
+                out.force(false);
+                gzip.close();  // Also releases the deflater; closing the file channel twice is harmless
+            }
+        } finally {
+            channel = null;
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return rows;
+    }
+
+    /**
+     * A GZIP stream that favours speed over ratio, since exports are written far more often than shipped.
+     */
+    private static class FastGZIPOutputStream extends GZIPOutputStream {
+        private FastGZIPOutputStream(OutputStream out) throws IOException {
+            super(out, DEFAULT_BUFFER_SIZE);
+            def.setLevel(Deflater.BEST_SPEED);
+        }
+    }
+
+    /**
+     * Encodes the rows of a file into the buffer.
+     */
+    private interface RowWriter {
+        long write() throws IOException;
+    }
+
+    private void encodeRow(Order order) throws IOException {
+        putLong(order.getOrderNumber());
+        putComma();
+        putText(order.getCustomerName());
+        putComma();
+        putText(order.getState());
+        putComma();
+        putMoney(order.getTaxRate());
+        putComma();
+        putText(order.getProductType());
+        putComma();
+        putMoney(order.getArea());
+        putComma();
+        putMoney(order.getCostPerSquareFoot());
+        putComma();
+        putMoney(order.getLaborCostPerSquareFoot());
+        putComma();
+        putMoney(order.getMaterialCost());
+        putComma();
+        putMoney(order.getLaborCost());
+        putComma();
+        putMoney(order.getTax());
+        putComma();
+        putMoney(order.getTotal());
+        putComma();
+        put(encodeDate(order));
+        ensureRoom(1);
+        buffer.put((byte) '\n');
+    }
+
+    private void putComma() throws IOException {
+        ensureRoom(1);
+        buffer.put((byte) ',');
+    }
+
+    private void putText(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        int length = value.length();
+        if (length > 256) {
+            put(value.getBytes(StandardCharsets.UTF_8));
+            return;
+        }
+        ensureRoom(length);
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80) {
+                // Rare non-ASCII text falls back to the charset encoder for the whole value
+                buffer.position(buffer.position() - i);
+                put(value.getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    private void putLong(long value) throws IOException {
+        ensureRoom(20);
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value != 0);
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+    }
+
+    /**
+     * Writes a decimal with exactly two decimal places, rounded half up.
+     */
+    private void putMoney(BigDecimal value) throws IOException {
+        BigDecimal rounded = value.setScale(2, RoundingMode.HALF_UP);
+        if (rounded.unscaledValue().bitLength() >= 63) {
+            put(rounded.toPlainString().getBytes(StandardCharsets.US_ASCII));
+            return;
+        }
+        long cents = rounded.unscaledValue().longValue();
+        ensureRoom(22);
+        if (cents < 0) {
+            buffer.put((byte) '-');
+            cents = -cents;
+        }
+        putLong(cents / 100);
+        long fraction = cents % 100;
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + fraction / 10));
+        buffer.put((byte) ('0' + fraction % 10));
+    }
+
+    private byte[] encodeDate(Order order) {
+        return encodedDates.computeIfAbsent(order.getOrderDate().getTime(), millis -> {
+            LocalDate date = order.getOrderDate().toInstant().atZone(zone).toLocalDate();
+            return String.format("%02d-%02d-%04d", date.getMonthValue(), date.getDayOfMonth(), date.getYear())
+                    .getBytes(StandardCharsets.US_ASCII);
+        });
+    }
+
+    private void put(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.capacity()) {
+            drain();
+            ByteBuffer large = ByteBuffer.wrap(bytes);
+            while (large.hasRemaining()) {
+                channel.write(large);
+            }
+            return;
+        }
+        ensureRoom(bytes.length);
+        buffer.put(bytes);
+    }
+
+    /**
+     * Writes the buffer out first if fewer than the given number of bytes fit into it.
+     */
+    private void ensureRoom(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
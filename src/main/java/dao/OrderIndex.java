@@ -0,0 +1,101 @@
+package dao;
+
+import java.util.*;
+
+/**
+ * The OrderIndex class is a case-insensitive inverted index from one text field of an order
+ * (such as its state or product type) to the numbers of the orders holding that value.
+ *
+ * The index remembers the value it filed each order under, so re-indexing an order whose field was
+ * changed in place still removes it from its old entry.
+ */
+public class OrderIndex {
+
+    // Order numbers for each case-folded value, kept sorted so lookups return orders in order-number order
+    private final Map<String, Set<Integer>> orderIdsByValue = new HashMap<>();
+    // Case-folded value each order is currently filed under
+    private final Map<Integer, String> valueByOrderId = new HashMap<>();
+
+    /**
+     * Files an order under a value, moving it away from the value it was filed under before.
+     * @param orderId The order number.
+     * @param value The field value of the order.
+     */
+    public void put(int orderId, String value) {
+        String key = fold(value);
+        String previousKey = valueByOrderId.put(orderId, key);
+        if (key.equals(previousKey)) {
+            return;
+        }
+        if (previousKey != null) {
+            removeFromEntry(previousKey, orderId);
+        }
+        Set<Integer> orderIds = orderIdsByValue.get(key);
+        if (orderIds == null) {
+            orderIds = new TreeSet<>();
+            orderIdsByValue.put(key, orderIds);
+            entryAdded(key);
+        }
+        orderIds.add(orderId);
+    }
+
+    /**
+     * Removes an order from the index.
+     * @param orderId The order number.
+     */
+    public void remove(int orderId) {
+        String key = valueByOrderId.remove(orderId);
+        if (key != null) {
+            removeFromEntry(key, orderId);
+        }
+    }
+
+    /**
+     * Looks up the orders filed under a value, ignoring case.
+     * @param value The value to look up.
+     * @return The matching order numbers, in ascending order; empty if there are none.
+     */
+    public Set<Integer> get(String value) {
+        return orderIdsByValue.getOrDefault(fold(value), Collections.emptySet());
+    }
+
+    /**
+     * Returns every distinct case-folded value in the index.
+     * @return The indexed values.
+     */
+    public Set<String> values() {
+        return orderIdsByValue.keySet();
+    }
+
+    private void removeFromEntry(String key, int orderId) {
+        Set<Integer> orderIds = orderIdsByValue.get(key);
+        orderIds.remove(orderId);
+        if (orderIds.isEmpty()) {
+            orderIdsByValue.remove(key);
+            entryRemoved(key);
+        }
+    }
+
+    /**
+     * Called when the first order is filed under a value. Subclasses can index the values themselves.
+     * @param key The case-folded value.
+     */
+    protected void entryAdded(String key) {
+    }
+
+    /**
+     * Called when the last order filed under a value is removed.
+     * @param key The case-folded value.
+     */
+    protected void entryRemoved(String key) {
+    }
+
+    /**
+     * Case-folds a value the way lookups compare it.
+     * @param value The value to fold.
+     * @return The folded value; an empty string for null.
+     */
+    public static String fold(String value) {
+        return value == null ? "" : value.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,224 @@
+package dao;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The OrderJournal class is an append-only log of order mutations.
+ * Each record is a single line such as "ADD,&lt;order csv&gt;", "EDIT,&lt;order csv&gt;" or "REMOVE,&lt;order number&gt;".
+ * The journal is emptied once its records have been folded into the partition files.
+ *
+ * Appends are group committed: a committer thread gathers the records submitted within one commit
+ * window (or until the batch is full), writes them with a single write and a single
+ * FileChannel.force, and then completes the future of every record in the batch.
+ */
+public class OrderJournal {
+
+    private final File file;
+    private final FileChannel channel;
+    private final long commitWindowMicros;
+    private final int maxBatchRecords;
+    private final BlockingQueue<PendingRecord> pending = new LinkedBlockingQueue<>();
+    private final Thread committer;
+    private volatile boolean closed;
+    // Future of the most recent append, used to wait until everything submitted so far is durable
+    private volatile CompletableFuture<Void> lastAppend = CompletableFuture.completedFuture(null);
+    // Bytes currently held by the journal, tracked to avoid a file system call per append
+    private long size;
+    // Group commits (each one write and one force) since the journal was opened
+    private long commits;
+
+    /**
+     * Opens (or creates) the journal at the given path with a one millisecond commit window.
+     * @param filePath The path of the journal file.
+     */
+    public OrderJournal(String filePath) {
+        this(filePath, 1000, 256);
+    }
+
+    /**
+     * Opens (or creates) the journal at the given path.
+     * @param filePath The path of the journal file.
+     * @param commitWindowMicros How long (in microseconds) the committer waits for more records after the first one of a batch.
+     * @param maxBatchRecords The most records written by a single commit.
+     */
+    public OrderJournal(String filePath, long commitWindowMicros, int maxBatchRecords) {
+        this.file = new File(filePath);
+        this.commitWindowMicros = commitWindowMicros;
+        this.maxBatchRecords = Math.max(1, maxBatchRecords);
+        try {
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            this.size = channel.size();
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error opening order journal.", ex);
+        }
+        this.committer = new Thread(this::runCommitter, "order-journal-committer");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Submits one record for the next group commit.
+     * @param record The record to append, without a trailing line break.
+     * @return A future that completes once the record has been forced to disk.
+     */
+    public CompletableFuture<Void> append(String record) {
+        if (closed) {
+            throw new DataPersistenceException("Order journal is closed.");
+        }
+        PendingRecord pendingRecord = new PendingRecord(record);
+        lastAppend = pendingRecord.future;
+        pending.add(pendingRecord);
+        return pendingRecord.future;
+    }
+
+    /**
+     * Waits until every record submitted so far is durable.
+     */
+    public void flush() {
+        try {
+            lastAppend.join();
+        } catch (RuntimeException e) {
+            // The failure has already been reported to the caller of that append
+        }
+    }
+
+    /**
+     * Reads every record currently in the journal, oldest first.
+     * @return The journal records.
+     */
+    public List<String> readRecords() {
+        List<String> records = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    records.add(line);
+                }
+            }
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error reading order journal.", ex);
+        }
+        return records;
+    }
+
+    /**
+     * Returns the size of the records committed to the journal.
+     * @return The size in bytes.
+     */
+    public synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Returns how many group commits have been forced to disk since the journal was opened.
+     * @return The number of commits; each covers one or more appended records.
+     */
+    public synchronized long getCommitCount() {
+        return commits;
+    }
+
+    /**
+     * Empties the journal. Called once all of its records are reflected in the partition files.
+     */
+    public synchronized void truncate() {
+        try {
+            channel.truncate(0);
+            channel.force(false);
+            size = 0;
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error truncating order journal.", ex);
+        }
+    }
+
+    /**
+     * Commits any pending records and closes the journal file.
+     */
+    public void close() {
+        closed = true;
+        try {
+            committer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException ex) {
+            System.err.println("Error closing order journal: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Body of the committer thread: collects a batch per commit window and commits it.
+     */
+    private void runCommitter() {
+        List<PendingRecord> batch = new ArrayList<>();
+        while (!closed || !pending.isEmpty()) {
+            try {
+                PendingRecord first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(commitWindowMicros);
+                while (batch.size() < maxBatchRecords) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingRecord next = remaining > 0 ? pending.poll(remaining, TimeUnit.NANOSECONDS) : pending.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes a batch of records with one write and one force, then completes their futures.
+     * @param batch The records to commit.
+     */
+    private void commit(List<PendingRecord> batch) {
+        StringBuilder records = new StringBuilder();
+        for (PendingRecord pendingRecord : batch) {
+            records.append(pendingRecord.record).append('\n');
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(records.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            synchronized (this) {
+                while (buffer.hasRemaining()) {
+                    size += channel.write(buffer);
+                }
+                channel.force(false);
+                commits++;
+            }
+            batch.forEach(pendingRecord -> pendingRecord.future.complete(null));
+        } catch (IOException ex) {
+            DataPersistenceException failure = new DataPersistenceException("Error appending to order journal.", ex);
+            batch.forEach(pendingRecord -> pendingRecord.future.completeExceptionally(failure));
+        }
+    }
+
+    /**
+     * A record waiting for the next group commit.
+     */
+    private static class PendingRecord {
+        private final String record;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingRecord(String record) {
+            this.record = record;
+        }
+    }
+}
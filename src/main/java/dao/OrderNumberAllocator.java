@@ -0,0 +1,149 @@
+package dao;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The OrderNumberAllocator class hands out order numbers without scanning the existing orders.
+ *
+ * Numbers are reserved from a high-water mark file in blocks (DEFAULT_BLOCK_SIZE unless configured).
+ * Within a block, numbers are handed out lock-free from an atomic counter; only moving to the next block
+ * takes a lock and touches the file. The file is updated under a file lock, so several processes sharing
+ * one orders folder each get their own blocks. Numbers left unused in a block when the application stops
+ * are skipped, never reused, so order numbers can have gaps of up to one block per restart. A block size
+ * of 1 avoids the gaps at the cost of a file lock and a disk force for every number.
+ */
+public class OrderNumberAllocator {
+
+    // How many order numbers are reserved at a time unless a store is configured otherwise
+    public static final int DEFAULT_BLOCK_SIZE = 20;
+
+    private final String highWaterMarkPath;
+    private final int blockSize;
+    private final int highestExisting;
+    private volatile Block current;
+    private final AtomicInteger reservations = new AtomicInteger();
+
+    /**
+     * Creates an allocator backed by the given high-water mark file.
+     * @param highWaterMarkPath The file that records the highest reserved order number.
+     * @param blockSize How many order numbers are reserved from the file at a time; 1 reserves no spare numbers.
+     * @param highestExisting The highest order number already in use, in case the file is missing or behind.
+     */
+    public OrderNumberAllocator(String highWaterMarkPath, int blockSize, int highestExisting) {
+        this.highWaterMarkPath = highWaterMarkPath;
+        this.blockSize = Math.max(1, blockSize);
+        this.highestExisting = highestExisting;
+        // Nothing is reserved until the first number is needed, so opening a store never skips numbers
+        this.current = new Block(1, 0);
+    }
+
+    /**
+     * Returns the next free order number.
+     * @return The order number.
+     */
+    public int next() {
+        while (true) {
+            Block block = current;
+            int orderNumber = block.next.getAndIncrement();
+            if (orderNumber <= block.last) {
+                return orderNumber;
+            }
+            synchronized (this) {
+                if (current == block) {
+                    current = reserve(blockSize, highestExisting);
+                }
+            }
+        }
+    }
+
+    /**
+     * Reserves a contiguous block of order numbers for a writer that allocates on its own,
+     * such as a bulk import.
+     * @param count How many order numbers to reserve.
+     * @return The first order number of the block; the block ends at first + count - 1.
+     */
+    public synchronized int reserveBlock(int count) {
+        return reserve(count, highestExisting).next.get();
+    }
+
+    /**
+     * Makes sure no number at or below the given one is handed out from now on. Used when an order
+     * is stored under a number that did not come from this allocator, such as an imported one.
+     * @param orderNumber The order number now in use.
+     */
+    public synchronized void advanceTo(int orderNumber) {
+        Block block = current;
+        if (orderNumber <= block.last) {
+            block.next.accumulateAndGet(orderNumber + 1, Math::max);
+        } else {
+            current = reserve(blockSize, Math.max(orderNumber, highestExisting));
+        }
+    }
+
+    /**
+     * Returns how many times numbers were reserved from the high-water mark file.
+     * @return The number of reservations so far.
+     */
+    public int getReservations() {
+        return reservations.get();
+    }
+
+    /**
+     * Moves the high-water mark forward by count numbers under a file lock.
+     * @param count How many order numbers to reserve.
+     * @param atLeast The reservation never starts at or below this number.
+     * @return The reserved block.
+     */
+    private Block reserve(int count, int atLeast) {
+        try (RandomAccessFile file = new RandomAccessFile(highWaterMarkPath, "rw")) {
+            FileChannel channel = file.getChannel();
+            FileLock lock = channel.lock();
+            try {
+                int highWaterMark = Math.max(readHighWaterMark(file), atLeast);
+                int last = highWaterMark + count;
+                byte[] bytes = Integer.toString(last).getBytes(StandardCharsets.US_ASCII);
+                file.setLength(0);
+                file.write(bytes);
+                channel.force(false);
+                reservations.incrementAndGet();
+                return new Block(highWaterMark + 1, last);
+            } finally {
+                lock.release();
+            }
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error reserving order numbers.", ex);
+        }
+    }
+
+    private int readHighWaterMark(RandomAccessFile file) throws IOException {
+        if (file.length() == 0) {
+            return 0;
+        }
+        byte[] bytes = new byte[(int) file.length()];
+        file.readFully(bytes);
+        try {
+            return Integer.parseInt(new String(bytes, StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            System.err.println("Ignoring unreadable order number high-water mark: " + highWaterMarkPath);
+            return 0;
+        }
+    }
+
+    /**
+     * A range of reserved order numbers and the cursor into it.
+     */
+    private static class Block {
+        private final AtomicInteger next;
+        private final int last;
+
+        private Block(int first, int last) {
+            this.next = new AtomicInteger(first);
+            this.last = last;
+        }
+    }
+}
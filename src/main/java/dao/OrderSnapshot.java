@@ -0,0 +1,300 @@
+package dao;
+
+import modelDTO.Order;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The OrderSnapshot class is a compact binary image of the orders held by an OrderDaoImpl, used to
+ * restart without parsing every order file.
+ *
+ * Every partition is stored with the modification time and length its file had when the snapshot was
+ * taken. On restart, a partition whose file still has that stamp is taken from the snapshot, and only
+ * the files written since (or missing from the snapshot) are parsed again. Decimals are stored as
+ * variable-length unscaled values, dates as epoch days, and states and product types through a
+ * string table, so a snapshot is a fraction of the size of the CSV files. Missing strings and decimals
+ * are kept as missing rather than failing the checkpoint.
+ */
+public class OrderSnapshot {
+
+    private static final int MAGIC = 0x4F524450;  // "ORDP"
+    private static final int VERSION = 2;
+    private static final int NULL_SCALE = -2;
+
+    private final int highestOrderNumber;
+    private final Map<Long, Partition> partitions;
+
+    private OrderSnapshot(int highestOrderNumber, Map<Long, Partition> partitions) {
+        this.highestOrderNumber = highestOrderNumber;
+        this.partitions = partitions;
+    }
+
+    /**
+     * @return The highest order number in use when the snapshot was taken.
+     */
+    public int getHighestOrderNumber() {
+        return highestOrderNumber;
+    }
+
+    /**
+     * @return The partitions of the snapshot, keyed by epoch day.
+     */
+    public Map<Long, Partition> getPartitions() {
+        return partitions;
+    }
+
+    /**
+     * Writes a snapshot, replacing the previous one only once the new one is complete and forced to disk.
+     * @param path The snapshot file.
+     * @param highestOrderNumber The highest order number in use.
+     * @param partitions The partitions to store.
+     * @throws IOException If the snapshot cannot be written.
+     */
+    public static void write(Path path, int highestOrderNumber, Collection<Partition> partitions) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temp.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(highestOrderNumber);
+            out.writeInt(partitions.size());
+            Map<String, Integer> strings = new HashMap<>();
+            for (Partition partition : partitions) {
+                out.writeLong(partition.getPartitionKey());
+                out.writeLong(partition.getFileModified());
+                out.writeLong(partition.getFileLength());
+                writeVarLong(out, partition.getOrders().size());
+                for (Order order : partition.getOrders()) {
+                    writeOrder(out, order, strings);
+                }
+            }
+            out.flush();
+            file.getChannel().force(true);
+        }
+        try {
+            Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads a snapshot.
+     * @param path The snapshot file.
+     * @return The snapshot.
+     * @throws IOException If the file cannot be read or is not a snapshot.
+     */
+    public static OrderSnapshot read(Path path) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not an order snapshot: " + path);
+            }
+            int highestOrderNumber = in.readInt();
+            int partitionCount = in.readInt();
+            Map<Long, Partition> partitions = new HashMap<>();
+            List<String> strings = new ArrayList<>();
+            Map<Long, Date> dates = new HashMap<>();
+            ZoneId zone = ZoneId.systemDefault();
+            for (int p = 0; p < partitionCount; p++) {
+                long partitionKey = in.readLong();
+                long fileModified = in.readLong();
+                long fileLength = in.readLong();
+                int orderCount = (int) readVarLong(in);
+                List<Order> orders = new ArrayList<>(orderCount);
+                for (int i = 0; i < orderCount; i++) {
+                    orders.add(readOrder(in, strings, dates, zone));
+                }
+                partitions.put(partitionKey, new Partition(partitionKey, fileModified, fileLength, orders));
+            }
+            return new OrderSnapshot(highestOrderNumber, partitions);
+        }
+    }
+
+    private static void writeOrder(DataOutputStream out, Order order, Map<String, Integer> strings) throws IOException {
+        writeVarLong(out, order.getOrderNumber());
+        writeNullableUTF(out, order.getCustomerName());
+        writeString(out, order.getState(), strings);
+        writeDecimal(out, order.getTaxRate());
+        writeString(out, order.getProductType(), strings);
+        writeDecimal(out, order.getArea());
+        writeDecimal(out, order.getCostPerSquareFoot());
+        writeDecimal(out, order.getLaborCostPerSquareFoot());
+        writeDecimal(out, order.getMaterialCost());
+        writeDecimal(out, order.getLaborCost());
+        writeDecimal(out, order.getTax());
+        writeDecimal(out, order.getTotal());
+        writeVarLong(out, order.getOrderDate().toInstant().atZone(ZoneId.systemDefault()).toLocalDate().toEpochDay());
+    }
+
+    private static Order readOrder(DataInputStream in, List<String> strings, Map<Long, Date> dates, ZoneId zone) throws IOException {
+        int orderNumber = (int) readVarLong(in);
+        String customerName = readNullableUTF(in);
+        String state = readString(in, strings);
+        BigDecimal taxRate = readDecimal(in);
+        String productType = readString(in, strings);
+        BigDecimal area = readDecimal(in);
+        BigDecimal costPerSquareFoot = readDecimal(in);
+        BigDecimal laborCostPerSquareFoot = readDecimal(in);
+        BigDecimal materialCost = readDecimal(in);
+        BigDecimal laborCost = readDecimal(in);
+        BigDecimal tax = readDecimal(in);
+        BigDecimal total = readDecimal(in);
+        long epochDay = readVarLong(in);
+        Date day = dates.computeIfAbsent(epochDay, key -> Date.from(LocalDate.ofEpochDay(key).atStartOfDay(zone).toInstant()));
+        return new Order(orderNumber, customerName, state, taxRate, productType, area, costPerSquareFoot,
+                laborCostPerSquareFoot, materialCost, laborCost, tax, total, new Date(day.getTime()));
+    }
+
+    /**
+     * Writes a string as a reference into the string table, adding it to the table on first use.
+     */
+    private static void writeString(DataOutputStream out, String value, Map<String, Integer> strings) throws IOException {
+        Integer index = strings.get(value);
+        if (index != null) {
+            writeVarLong(out, index + 1);
+            return;
+        }
+        strings.put(value, strings.size());
+        writeVarLong(out, 0);
+        writeNullableUTF(out, value);
+    }
+
+    private static String readString(DataInputStream in, List<String> strings) throws IOException {
+        int reference = (int) readVarLong(in);
+        if (reference > 0) {
+            return strings.get(reference - 1);
+        }
+        String value = readNullableUTF(in);
+        strings.add(value);
+        return value;
+    }
+
+    /**
+     * Writes a string preceded by a flag telling whether it is present, as writeUTF cannot write null.
+     */
+    private static void writeNullableUTF(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullableUTF(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Writes a decimal as its scale and variable-length unscaled value; scale -1 marks a value too large for a long,
+     * and scale -2 a missing value.
+     */
+    private static void writeDecimal(DataOutputStream out, BigDecimal value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL_SCALE);
+            return;
+        }
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() <= 63 && value.scale() >= 0 && value.scale() < Byte.MAX_VALUE) {
+            out.writeByte(value.scale());
+            writeVarLong(out, unscaled.longValue());
+        } else {
+            out.writeByte(-1);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private static BigDecimal readDecimal(DataInputStream in) throws IOException {
+        int scale = in.readByte();
+        if (scale == NULL_SCALE) {
+            return null;
+        }
+        if (scale < 0) {
+            return new BigDecimal(in.readUTF());
+        }
+        return BigDecimal.valueOf(readVarLong(in), scale);
+    }
+
+    /**
+     * Writes a zigzag-encoded variable-length long: seven bits per byte, small magnitudes first.
+     */
+    private static void writeVarLong(DataOutputStream out, long value) throws IOException {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.writeByte((int) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.writeByte((int) zigzag);
+    }
+
+    private static long readVarLong(DataInputStream in) throws IOException {
+        long zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = in.readUnsignedByte();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        return (zigzag >>> 1) ^ -(zigzag & 1);
+    }
+
+    /**
+     * The orders of one date partition and the stamp of its file when the snapshot was taken.
+     */
+    public static class Partition {
+        private final long partitionKey;
+        private final long fileModified;
+        private final long fileLength;
+        private final List<Order> orders;
+
+        public Partition(long partitionKey, long fileModified, long fileLength, List<Order> orders) {
+            this.partitionKey = partitionKey;
+            this.fileModified = fileModified;
+            this.fileLength = fileLength;
+            this.orders = orders;
+        }
+
+        public long getPartitionKey() {
+            return partitionKey;
+        }
+
+        public long getFileModified() {
+            return fileModified;
+        }
+
+        public long getFileLength() {
+            return fileLength;
+        }
+
+        public List<Order> getOrders() {
+            return orders;
+        }
+
+        /**
+         * @return true if the file still has the stamp recorded in the snapshot.
+         */
+        public boolean matches(File file) {
+            return modifiedNanos(file) == fileModified && file.length() == fileLength;
+        }
+    }
+
+    /**
+     * Returns the modification time of a file with the finest precision the file system keeps,
+     * so two writes within the same millisecond still tell apart.
+     * @param file The file.
+     * @return The modification time in nanoseconds since the epoch, or 0 if it cannot be read.
+     */
+    public static long modifiedNanos(File file) {
+        try {
+            return Files.getLastModifiedTime(file.toPath()).to(TimeUnit.NANOSECONDS);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
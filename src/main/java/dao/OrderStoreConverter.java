@@ -0,0 +1,84 @@
+package dao;
+
+import modelDTO.Order;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * The OrderStoreConverter class copies orders between the per-date CSV files read by OrderDaoImpl
+ * and the binary store of MappedOrderDao. Order numbers are kept as they are.
+ */
+public class OrderStoreConverter {
+
+    /**
+     * Copies every order of a CSV orders folder into a binary store.
+     * @param ordersFolder The folder holding the Orders_MMddyyyy.txt files.
+     * @param storePath The binary store to write; orders with the same numbers are replaced.
+     * @throws DataPersistenceException If an order number is outside what MappedOrderDao.putOrder accepts.
+     * @return The number of orders copied.
+     */
+    public static int csvToBinary(String ordersFolder, String storePath) {
+        OrderDaoImpl source = new OrderDaoImpl(ordersFolder);
+        MappedOrderDao target = new MappedOrderDao(storePath);
+        try {
+            List<Order> orders = source.getAllOrders();
+            // In number order, so a gap is measured from the order below it rather than from an arbitrary one
+            orders.sort(Comparator.comparing(Order::getOrderNumber));
+            for (Order order : orders) {
+                target.putOrder(order);
+            }
+            return orders.size();
+        } finally {
+            target.close();
+            source.close();
+        }
+    }
+
+    /**
+     * Writes every order of a binary store into per-date CSV files.
+     * Files of the dates present in the store are replaced; other files in the folder are left alone.
+     * @param storePath The binary store to read.
+     * @param ordersFolder The folder to write the Orders_MMddyyyy.txt files to.
+     * @return The number of orders copied.
+     */
+    public static int binaryToCsv(String storePath, String ordersFolder) {
+        MappedOrderDao source = new MappedOrderDao(storePath);
+        try {
+            List<Order> orders = source.getAllOrders();
+            writeOrderFiles(orders, ordersFolder);
+            return orders.size();
+        } finally {
+            source.close();
+        }
+    }
+
+    /**
+     * Writes orders into per-date CSV files, replacing the files of the dates present.
+     * @param orders The orders to write.
+     * @param ordersFolder The folder to write the Orders_MMddyyyy.txt files to; it is created if missing.
+     */
+    static void writeOrderFiles(Collection<Order> orders, String ordersFolder) {
+        Map<Long, List<Order>> ordersByDay = new TreeMap<>();
+        for (Order order : orders) {
+            ordersByDay.computeIfAbsent(OrderDaoImpl.getPartitionKey(order.getOrderDate()), key -> new ArrayList<>()).add(order);
+        }
+        File folder = new File(ordersFolder);
+        if (!folder.exists()) {
+            folder.mkdirs();
+        }
+        for (Map.Entry<Long, List<Order>> day : ordersByDay.entrySet()) {
+            File file = new File(folder, OrderDaoImpl.getFileNameForPartition(day.getKey()));
+            StringBuilder content = new StringBuilder(OrderDaoImpl.HEADER).append('\n');
+            for (Order order : day.getValue()) {
+                content.append(OrderDaoImpl.formatOrderLine(order)).append('\n');
+            }
+            try {
+                AtomicFileWriter.write(file.toPath(), content.toString());
+            } catch (IOException ex) {
+                throw new DataPersistenceException("Error writing orders to file.", ex);
+            }
+        }
+    }
+}
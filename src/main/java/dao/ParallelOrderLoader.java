@@ -0,0 +1,150 @@
+package dao;
+
+import modelDTO.Order;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+/**
+ * The ParallelOrderLoader class parses many order partition files at once on a ForkJoinPool.
+ *
+ * Each worker only parses its own file into a private list, so the workers share nothing. The caller
+ * merges the results on its own thread afterwards, in the order the partitions were passed in, which
+ * keeps the "later file wins" rule of the sequential load.
+ */
+public class ParallelOrderLoader {
+
+    private final int parallelism;
+
+    /**
+     * Creates a loader that parses up to the given number of files at the same time.
+     * @param parallelism The number of worker threads; values below 1 are treated as 1.
+     */
+    public ParallelOrderLoader(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Parses the given partitions and times each of them.
+     * @param partitionKeys The partitions to parse, in merge order.
+     * @param reader Parses one partition file; it must be safe to call from several threads.
+     * @return The parsed partitions, in the same order as partitionKeys, with their timings.
+     */
+    public LoadReport load(List<Long> partitionKeys, Function<Long, List<Order>> reader) {
+        long start = System.nanoTime();
+        List<Callable<PartitionLoad>> tasks = new ArrayList<>();
+        for (Long partitionKey : partitionKeys) {
+            tasks.add(() -> {
+                long fileStart = System.nanoTime();
+                List<Order> orders = reader.apply(partitionKey);
+                return new PartitionLoad(partitionKey, orders, System.nanoTime() - fileStart);
+            });
+        }
+
+        List<PartitionLoad> loads = new ArrayList<>(tasks.size());
+        if (parallelism == 1 || tasks.size() <= 1) {
+            for (Callable<PartitionLoad> task : tasks) {
+                try {
+                    loads.add(task.call());
+                } catch (Exception ex) {
+                    throw new DataPersistenceException("Error loading order files.", ex);
+                }
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()));
+            try {
+                for (Future<PartitionLoad> future : pool.invokeAll(tasks)) {
+                    loads.add(future.get());
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new DataPersistenceException("Interrupted while loading order files.", ex);
+            } catch (ExecutionException ex) {
+                throw new DataPersistenceException("Error loading order files.", ex.getCause());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return new LoadReport(loads, System.nanoTime() - start);
+    }
+
+    /**
+     * The orders parsed from one partition file and how long parsing took.
+     */
+    public static class PartitionLoad {
+        private final Long partitionKey;
+        private final List<Order> orders;
+        private final long elapsedNanos;
+
+        public PartitionLoad(Long partitionKey, List<Order> orders, long elapsedNanos) {
+            this.partitionKey = partitionKey;
+            this.orders = orders;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public Long getPartitionKey() {
+            return partitionKey;
+        }
+
+        public List<Order> getOrders() {
+            return orders;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+    }
+
+    /**
+     * The outcome of one load: every partition with its timing, and the wall-clock time of the whole load.
+     */
+    public static class LoadReport {
+        private final List<PartitionLoad> partitions;
+        private final long totalNanos;
+
+        public LoadReport(List<PartitionLoad> partitions, long totalNanos) {
+            this.partitions = partitions;
+            this.totalNanos = totalNanos;
+        }
+
+        public List<PartitionLoad> getPartitions() {
+            return partitions;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public int getOrderCount() {
+            int count = 0;
+            for (PartitionLoad partition : partitions) {
+                count += partition.getOrders().size();
+            }
+            return count;
+        }
+
+        /**
+         * Returns a one-line summary of the load for the log.
+         * @return The summary.
+         */
+        public String summary() {
+            PartitionLoad slowest = null;
+            for (PartitionLoad partition : partitions) {
+                if (slowest == null || partition.getElapsedNanos() > slowest.getElapsedNanos()) {
+                    slowest = partition;
+                }
+            }
+            String summary = String.format("Loaded %d orders from %d files in %d ms",
+                    getOrderCount(), partitions.size(), totalNanos / 1_000_000);
+            if (slowest != null) {
+                summary += String.format(" (slowest file: %d ms)", slowest.getElapsedNanos() / 1_000_000);
+            }
+            return summary;
+        }
+    }
+}
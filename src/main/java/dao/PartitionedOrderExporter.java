@@ -0,0 +1,200 @@
+package dao;
+
+import modelDTO.Order;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+
+/**
+ * The PartitionedOrderExporter class writes an export as one GZIP-compressed file per month or per
+ * state, encoding and compressing the partitions in parallel on a ForkJoinPool.
+ *
+ * Each worker streams its partition through its own OrderExporter, so the workers share nothing and
+ * the export scales with the number of cores as long as there are at least as many partitions.
+ * A manifest.csv, written last, lists every file with its partition, row count, compressed size and
+ * the CRC32 of its compressed bytes, so a copy can be checked without decompressing it. Partition files
+ * of an earlier export into the same folder that the new manifest does not list are deleted.
+ */
+public class PartitionedOrderExporter {
+
+    /**
+     * How orders are split into files.
+     */
+    public enum Partitioning { MONTH, STATE }
+
+    static final String MANIFEST_FILE = "manifest.csv";
+    static final String MANIFEST_HEADER = "File,Partition,Rows,Bytes,CRC32";
+
+    private final int parallelism;
+    private final ThreadLocal<OrderExporter> exporters = ThreadLocal.withInitial(OrderExporter::new);
+
+    /**
+     * Creates an exporter that compresses up to the given number of partitions at the same time.
+     * @param parallelism The number of worker threads; values below 1 are treated as 1.
+     */
+    public PartitionedOrderExporter(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
+    /**
+     * Writes the orders as one compressed file per partition, sorted by order number, plus the manifest.
+     * @param orders The orders to export.
+     * @param partitioning Whether to split by month of the order date or by state.
+     * @param folder The folder to write to; it is created if missing.
+     * @return The manifest entries, sorted by partition.
+     * @throws DataPersistenceException If an order has no order date (by month) or no state (by state).
+     */
+    public List<ManifestEntry> export(Collection<Order> orders, Partitioning partitioning, Path folder) {
+        Map<String, List<Order>> partitions = new TreeMap<>();
+        ZoneId zone = ZoneId.systemDefault();
+        for (Order order : orders) {
+            String partition;
+            if (partitioning == Partitioning.MONTH) {
+                if (order.getOrderDate() == null) {
+                    throw new DataPersistenceException("Order " + order.getOrderNumber() + " has no order date to export it by month.");
+                }
+                partition = order.getOrderDate().toInstant().atZone(zone).toLocalDate().toString().substring(0, 7);
+            } else {
+                if (order.getState() == null) {
+                    throw new DataPersistenceException("Order " + order.getOrderNumber() + " has no state to export it by state.");
+                }
+                partition = order.getState();
+            }
+            partitions.computeIfAbsent(partition, key -> new ArrayList<>()).add(order);
+        }
+
+        List<Callable<ManifestEntry>> tasks = new ArrayList<>();
+        for (Map.Entry<String, List<Order>> partition : partitions.entrySet()) {
+            tasks.add(() -> writePartition(partition.getKey(), partition.getValue(), folder));
+        }
+        List<ManifestEntry> entries = new ArrayList<>(tasks.size());
+        try {
+            Files.createDirectories(folder);
+            if (parallelism == 1 || tasks.size() <= 1) {
+                for (Callable<ManifestEntry> task : tasks) {
+                    entries.add(task.call());
+                }
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()));
+                try {
+                    for (Future<ManifestEntry> future : pool.invokeAll(tasks)) {
+                        entries.add(future.get());
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            writeManifest(entries, folder);
+            deleteUnlistedPartitions(entries, folder);
+        } catch (DataPersistenceException ex) {
+            throw ex;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataPersistenceException("Interrupted while exporting orders.", ex);
+        } catch (ExecutionException ex) {
+            throw new DataPersistenceException("Error exporting orders.", ex.getCause());
+        } catch (Exception ex) {
+            throw new DataPersistenceException("Error exporting orders.", ex);
+        }
+        return entries;
+    }
+
+    private ManifestEntry writePartition(String partition, List<Order> orders, Path folder) throws IOException {
+        orders.sort(Comparator.comparing(Order::getOrderNumber));
+        String fileName = "Orders_" + partition.replaceAll("[^A-Za-z0-9_-]", "_") + ".csv.gz";
+        Path file = folder.resolve(fileName);
+        CRC32 crc = new CRC32();
+        long rows = exporters.get().exportCompressed(orders.iterator(), file, crc);
+        return new ManifestEntry(fileName, partition, rows, Files.size(file), crc.getValue());
+    }
+
+    /**
+     * Deletes the partition files left by an earlier export that the new manifest does not list,
+     * for example the month files when the folder is re-exported by state.
+     */
+    private static void deleteUnlistedPartitions(List<ManifestEntry> entries, Path folder) throws IOException {
+        Set<String> listed = new HashSet<>();
+        for (ManifestEntry entry : entries) {
+            listed.add(entry.getFileName());
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(folder, "Orders_*.csv.gz")) {
+            for (Path file : files) {
+                if (!listed.contains(file.getFileName().toString())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private static void writeManifest(List<ManifestEntry> entries, Path folder) throws IOException {
+        StringBuilder manifest = new StringBuilder(MANIFEST_HEADER).append('\n');
+        for (ManifestEntry entry : entries) {
+            manifest.append(entry.getFileName()).append(',')
+                    .append(entry.getPartition()).append(',')
+                    .append(entry.getRows()).append(',')
+                    .append(entry.getBytes()).append(',')
+                    .append(Long.toHexString(entry.getCrc32())).append('\n');
+        }
+        Path target = folder.resolve(MANIFEST_FILE);
+        Path temp = folder.resolve(MANIFEST_FILE + ".tmp");
+        Files.write(temp, manifest.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * One compressed file of an export, as listed in the manifest.
+     */
+    public static class ManifestEntry {
+        private final String fileName;
+        private final String partition;
+        private final long rows;
+        private final long bytes;
+        private final long crc32;
+
+        public ManifestEntry(String fileName, String partition, long rows, long bytes, long crc32) {
+            this.fileName = fileName;
+            this.partition = partition;
+            this.rows = rows;
+            this.bytes = bytes;
+            this.crc32 = crc32;
+        }
+
+        public String getFileName() {
+            return fileName;
+        }
+
+        public String getPartition() {
+            return partition;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        /**
+         * @return The size of the compressed file.
+         */
+        public long getBytes() {
+            return bytes;
+        }
+
+        /**
+         * @return The CRC32 of the compressed file.
+         */
+        public long getCrc32() {
+            return crc32;
+        }
+    }
+}
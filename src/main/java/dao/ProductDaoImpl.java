@@ -4,6 +4,7 @@ import modelDTO.Product;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -103,24 +104,24 @@ public class ProductDaoImpl implements ProductDao {
      * Throws a DaoException if there's an issue reading from the file.
      */
     private void loadProductsFromFile() {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            reader.readLine();  // This will skip the first line, which is the header
-
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-
-                if (parts.length >= 3) {
-                    try {
-                        String productType = parts[0].trim();
-                        BigDecimal costPerSquareFoot = new BigDecimal(parts[1].trim());
-                        BigDecimal laborCostPerSquareFoot = new BigDecimal(parts[2].trim());
-                        Product product = new Product(productType, costPerSquareFoot, laborCostPerSquareFoot);
-                        products.put(productType, product);
-                    } catch (NumberFormatException e) {
-                        System.err.println("Error converting value to number from line: " + line);
-                        e.printStackTrace();
-                    }
+        try {
+            AtomicFileWriter.verifyOrRestore(Paths.get(filePath));
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error restoring products file.", ex);
+        }
+        try (CsvRecordReader reader = new CsvRecordReader(new FileReader(filePath), filePath)) {
+            reader.next();  // This will skip the first line, which is the header
+
+            while (reader.next()) {
+                try {
+                    reader.requireFields(3);
+                    String productType = reader.getString(0);
+                    BigDecimal costPerSquareFoot = reader.getDecimal(1);
+                    BigDecimal laborCostPerSquareFoot = reader.getDecimal(2);
+                    Product product = new Product(productType, costPerSquareFoot, laborCostPerSquareFoot);
+                    products.put(productType, product);
+                } catch (MalformedRecordException e) {
+                    System.err.println("Skipping malformed product: " + e.getMessage());
                 }
             }
         } catch (IOException ex) {
@@ -134,10 +135,12 @@ public class ProductDaoImpl implements ProductDao {
      * Throws a DaoException if there's an issue writing to the file.
      */
     private void saveProductsToFile() {
-        try (FileWriter writer = new FileWriter(filePath)) {
-            for (Product product : products.values()) {
-                writer.write(product.getProductType() + "," + product.getCostPerSquareFoot() + "," + product.getLaborCostPerSquareFoot() + "\n");
-            }
+        StringBuilder content = new StringBuilder();
+        for (Product product : products.values()) {
+            content.append(product.getProductType() + "," + product.getCostPerSquareFoot() + "," + product.getLaborCostPerSquareFoot() + "\n");
+        }
+        try {
+            AtomicFileWriter.write(Paths.get(filePath), content.toString());
         } catch (IOException ex) {
             throw new DataPersistenceException("Error writing products to file.", ex);
         }
@@ -4,6 +4,7 @@ import modelDTO.Tax;
 
 import java.io.*;
 import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
@@ -86,21 +87,22 @@ public class TaxDaoImpl implements TaxDao {
     private List<Tax> loadTaxesFromFile() {
         taxes.clear(); // Clear the in-memory map before loading
         List<Tax> fileTaxes = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(FILE_PATH))) {
-            reader.readLine();  // Skip the header line
-            String line;
-            while ((line = reader.readLine()) != null) {
-                String[] parts = line.split(",");
-                if (parts.length >= 3) {
-                    try {
-                        String stateAbbreviation = parts[0].trim();
-                        String stateName = parts[1].trim();
-                        BigDecimal taxRate = new BigDecimal(parts[2].trim());
-                        fileTaxes.add(new Tax(stateAbbreviation, stateName, taxRate)); // Add tax to in-memory storage
-                    } catch (NumberFormatException e) {
-                        System.err.println("Error converting value to number from line: " + line);
-                        e.printStackTrace();
-                    }
+        try {
+            AtomicFileWriter.verifyOrRestore(Paths.get(FILE_PATH));
+        } catch (IOException ex) {
+            throw new DataPersistenceException("Error restoring taxes file.", ex);
+        }
+        try (CsvRecordReader reader = new CsvRecordReader(new FileReader(FILE_PATH), FILE_PATH)) {
+            reader.next();  // Skip the header line
+            while (reader.next()) {
+                try {
+                    reader.requireFields(3);
+                    String stateAbbreviation = reader.getString(0);
+                    String stateName = reader.getString(1);
+                    BigDecimal taxRate = reader.getDecimal(2);
+                    fileTaxes.add(new Tax(stateAbbreviation, stateName, taxRate)); // Add tax to in-memory storage
+                } catch (MalformedRecordException e) {
+                    System.err.println("Skipping malformed tax: " + e.getMessage());
                 }
             }
         } catch (IOException ex) {
@@ -113,10 +115,12 @@ public class TaxDaoImpl implements TaxDao {
      * Writes the in-memory tax records to the data file.
      */
     private void saveTaxesToFile() {
-        try (FileWriter writer = new FileWriter(FILE_PATH)) {
-            for (Tax tax : taxes.values()) {
-                writer.write(tax.getStateAbbreviation() + "," + tax.getStateName() + "," + tax.getTaxRate() + "\n");
-            }
+        StringBuilder content = new StringBuilder();
+        for (Tax tax : taxes.values()) {
+            content.append(tax.getStateAbbreviation() + "," + tax.getStateName() + "," + tax.getTaxRate() + "\n");
+        }
+        try {
+            AtomicFileWriter.write(Paths.get(FILE_PATH), content.toString());
         } catch (IOException ex) {
             System.err.println("Error writing taxes to file: " + ex.getMessage());
         }
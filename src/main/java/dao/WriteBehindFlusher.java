@@ -0,0 +1,231 @@
+package dao;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The WriteBehindFlusher class writes partition files in the background for the write-behind mode of OrderDaoImpl.
+ *
+ * Each mutation submits the new content of the partition it touched to a bounded queue and returns
+ * straight away. A flusher thread drains the queue in batches and, when a batch holds several versions
+ * of the same partition, writes only the newest one. When the queue is full, submit blocks until the
+ * flusher catches up, so a burst of writes cannot outgrow memory. Pending writes are flushed by close(),
+ * and by a shutdown hook if the JVM exits without closing the DAO.
+ */
+public class WriteBehindFlusher {
+
+    /**
+     * Writes the content of one partition file.
+     */
+    public interface PartitionWriter {
+        void write(Long partitionKey, String content) throws IOException;
+    }
+
+    private final BlockingQueue<PendingWrite> pending;
+    private final int maxBatchWrites;
+    private final PartitionWriter writer;
+    private final Thread flusher;
+    private final Thread shutdownHook;
+    private volatile boolean closed;
+    // Future of the most recent submit, used to wait until everything submitted so far is written
+    private volatile CompletableFuture<Void> lastSubmit = CompletableFuture.completedFuture(null);
+
+    // Metrics
+    private final AtomicLong submittedWrites = new AtomicLong();
+    private final AtomicLong fileWrites = new AtomicLong();
+    private final AtomicLong backpressureWaits = new AtomicLong();
+    private volatile long lastFlushLagNanos;
+    private volatile long maxFlushLagNanos;
+
+    /**
+     * Starts a flusher.
+     * @param queueCapacity The most writes that may wait in the queue before submit blocks.
+     * @param maxBatchWrites The most queued writes taken (and coalesced) by one flush.
+     * @param writer Writes a partition file.
+     */
+    public WriteBehindFlusher(int queueCapacity, int maxBatchWrites, PartitionWriter writer) {
+        this.pending = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        this.maxBatchWrites = Math.max(1, maxBatchWrites);
+        this.writer = writer;
+        this.flusher = new Thread(this::runFlusher, "order-write-behind-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+        this.shutdownHook = new Thread(this::close, "order-write-behind-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Queues the new content of a partition file, blocking while the queue is full.
+     * Callers must submit the writes of one partition in the order the changes were made.
+     * @param partitionKey The partition to write.
+     * @param content The complete new content of its file.
+     * @return A future that completes once this content (or a newer one) has been written.
+     */
+    public CompletableFuture<Void> submit(Long partitionKey, String content) {
+        if (closed) {
+            throw new DataPersistenceException("Write-behind flusher is closed.");
+        }
+        PendingWrite write = new PendingWrite(partitionKey, content);
+        lastSubmit = write.future;
+        submittedWrites.incrementAndGet();
+        if (!pending.offer(write)) {
+            backpressureWaits.incrementAndGet();
+            try {
+                pending.put(write);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DataPersistenceException("Interrupted while waiting for the write-behind queue.", e);
+            }
+        }
+        return write.future;
+    }
+
+    /**
+     * Waits until every write submitted so far has been written.
+     */
+    public void awaitFlushed() {
+        try {
+            lastSubmit.join();
+        } catch (RuntimeException e) {
+            // The failure has already been reported to the caller of that submit
+        }
+    }
+
+    /**
+     * Writes everything still queued, stops the flusher thread and removes the shutdown hook.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // The JVM is already shutting down
+            }
+        }
+    }
+
+    /**
+     * @return How many writes are waiting in the queue.
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * @return How long the oldest write of the most recent flush waited before it reached the disk, in milliseconds.
+     */
+    public long getLastFlushLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(lastFlushLagNanos);
+    }
+
+    /**
+     * @return The longest flush lag seen so far, in milliseconds.
+     */
+    public long getMaxFlushLagMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxFlushLagNanos);
+    }
+
+    /**
+     * @return How many partition writes have been submitted.
+     */
+    public long getSubmittedWrites() {
+        return submittedWrites.get();
+    }
+
+    /**
+     * @return How many files have actually been written; the difference to getSubmittedWrites() was coalesced away.
+     */
+    public long getFileWrites() {
+        return fileWrites.get();
+    }
+
+    /**
+     * @return How many submits had to wait because the queue was full.
+     */
+    public long getBackpressureWaits() {
+        return backpressureWaits.get();
+    }
+
+    /**
+     * Body of the flusher thread: takes a batch of queued writes and flushes it.
+     */
+    private void runFlusher() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (!closed || !pending.isEmpty()) {
+            try {
+                PendingWrite first = pending.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                pending.drainTo(batch, maxBatchWrites - 1);
+                flush(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes the newest content of every partition in a batch, then completes the futures of the whole batch.
+     * @param batch The queued writes, oldest first.
+     */
+    private void flush(List<PendingWrite> batch) {
+        Map<Long, PendingWrite> newest = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            newest.put(write.partitionKey, write);
+        }
+        Map<Long, IOException> failures = new HashMap<>();
+        for (PendingWrite write : newest.values()) {
+            try {
+                writer.write(write.partitionKey, write.content);
+                fileWrites.incrementAndGet();
+            } catch (IOException ex) {
+                System.err.println("Error writing orders to file: " + ex.getMessage());
+                failures.put(write.partitionKey, ex);
+            }
+        }
+        long lag = System.nanoTime() - batch.get(0).submittedNanos;
+        lastFlushLagNanos = lag;
+        maxFlushLagNanos = Math.max(maxFlushLagNanos, lag);
+        for (PendingWrite write : batch) {
+            IOException failure = failures.get(write.partitionKey);
+            if (failure == null) {
+                write.future.complete(null);
+            } else {
+                write.future.completeExceptionally(new DataPersistenceException("Error writing orders to file.", failure));
+            }
+        }
+    }
+
+    /**
+     * The content of a partition file waiting to be written.
+     */
+    private static class PendingWrite {
+        private final Long partitionKey;
+        private final String content;
+        private final long submittedNanos = System.nanoTime();
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private PendingWrite(Long partitionKey, String content) {
+            this.partitionKey = partitionKey;
+            this.content = content;
+        }
+    }
+}
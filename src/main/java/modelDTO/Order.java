@@ -9,6 +9,8 @@ import java.util.Date;
  * The order has a unique order number, customer details, and details about the product they purchased, including the type of product, its area, and various costs.
  */
 public class Order {
+    // Tax rates are percentages; dividing (rather than moving the point) keeps the scale of the rate
+    private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
     // The unique identifier for the order
     private Integer orderNumber;
     // The name of the customer placing the order
@@ -186,8 +188,7 @@ public class Order {
      * @return the calculated tax amount.
      */
     public BigDecimal calculateTax(Tax tax) {
-        BigDecimal sum = calculateMaterialCost().add(calculateLaborCost());
-        return sum.multiply(tax.getTaxRate().divide(new BigDecimal("100")));
+        return calculateTax(calculateMaterialCost().add(calculateLaborCost()), tax);
     }
 
     /**
@@ -197,7 +198,15 @@ public class Order {
      * @return the calculated total cost.
      */
     public BigDecimal calculateTotal(Tax tax) {
-        return calculateMaterialCost().add(calculateLaborCost()).add(calculateTax(tax));
+        BigDecimal cost = calculateMaterialCost().add(calculateLaborCost());
+        return cost.add(calculateTax(cost, tax));
+    }
+
+    /**
+     * Applies the tax rate (a percentage) to a cost.
+     */
+    private static BigDecimal calculateTax(BigDecimal cost, Tax tax) {
+        return cost.multiply(tax.getTaxRate().divide(ONE_HUNDRED));
     }
 
     /**
@@ -2,9 +2,12 @@ package org.mainapp;
 
 import controller.FlooringMasteryController;
 import dao.OrderDaoImpl;
+import dao.ParallelOrderLoader;
 import dao.ProductDaoImpl;
 import dao.TaxDaoImpl;
+import service.OpenOrderRepricingListener;
 import service.OrderServiceImpl;
+import service.PriceMatrix;
 import service.ProductServiceImpl;
 import service.TaxServiceImpl;
 import view.MenuView;
@@ -34,18 +37,47 @@ public class FlooringMasteryMainApp {
         ProductDaoImpl productDao = new ProductDaoImpl();
         TaxDaoImpl taxDao = new TaxDaoImpl();
 
+        // Create the MenuView
+        MenuView menuView = new MenuView();
+
+        // Report how the orders were loaded
+        if (orderDao.getCheckpointSummary() != null) {
+            menuView.displayMessage(orderDao.getCheckpointSummary());
+        }
+        ParallelOrderLoader.LoadReport loadReport = orderDao.getLastLoadReport();
+        if (loadReport != null && !loadReport.getPartitions().isEmpty()) {
+            menuView.displayMessage(loadReport.summary());
+        }
+
+        // Split order files written by older versions back into one file per order date
+        if (orderDao.isMigrationRequired()) {
+            menuView.displayMessage("Order files contain duplicated orders; cleaning them up.");
+            orderDao.migrateOrderFiles();
+        }
+
         // Create service instances
         OrderServiceImpl orderService = new OrderServiceImpl(orderDao, productDao, taxDao);
         ProductServiceImpl productService = new ProductServiceImpl(productDao);
         TaxServiceImpl taxService = new TaxServiceImpl(taxDao);
 
-        // Create the MenuView
-        MenuView menuView = new MenuView();
+        // Price orders from a product-by-state matrix that follows every product and tax change
+        PriceMatrix priceMatrix = new PriceMatrix(productDao.getAllProducts(), taxDao.getAllTaxes());
+        productService.addPricingChangeListener(priceMatrix);
+        taxService.addPricingChangeListener(priceMatrix);
+        orderService.setPriceMatrix(priceMatrix);
+
+        // Re-price open orders whenever a product price or tax rate changes, with a diff report per run
+        OpenOrderRepricingListener repricingListener = new OpenOrderRepricingListener(orderService, "src/main/java/Backup");
+        productService.addPricingChangeListener(repricingListener);
+        taxService.addPricingChangeListener(repricingListener);
 
         // Pass all required dependencies to the FlooringMasteryController
         FlooringMasteryController controller = new FlooringMasteryController(menuView, orderService, productService, taxService);
 
         // Run the controller to start the application
         controller.run();
+
+        // Fold any journaled changes into the order files before exiting
+        orderDao.close();
     }
 }
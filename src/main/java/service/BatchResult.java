@@ -0,0 +1,48 @@
+package service;
+
+/**
+ * The BatchResult class reports the outcome of one item of a batch operation on orders.
+ */
+public class BatchResult {
+
+    private final int index;
+    private final Integer orderNumber;
+    private final boolean success;
+    private final String message;
+
+    /**
+     * Constructs a result.
+     * @param index The position of the item in the batch.
+     * @param orderNumber The order number of the item, or null if none was assigned.
+     * @param success Whether the item was applied.
+     * @param message Why the item was not applied, or null on success.
+     */
+    public BatchResult(int index, Integer orderNumber, boolean success, String message) {
+        this.index = index;
+        this.orderNumber = orderNumber;
+        this.success = success;
+        this.message = message;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Integer getOrderNumber() {
+        return orderNumber;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "Item " + index + (orderNumber == null ? "" : " (order " + orderNumber + ")")
+                + (success ? ": OK" : ": " + message);
+    }
+}
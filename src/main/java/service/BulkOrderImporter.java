@@ -0,0 +1,306 @@
+package service;
+
+import dao.CsvRecordReader;
+import dao.MalformedRecordException;
+import dao.OrderDao;
+import modelDTO.Order;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * The BulkOrderImporter class imports large CSV batches of orders from partner retailers.
+ *
+ * The import runs as a pipeline of stages connected by bounded queues: one thread parses the file,
+ * a pool of workers validates and prices the orders with the same rules as OrderService.addOrder,
+ * and the calling thread persists them in batches through OrderDao.addOrders, which writes each
+ * date partition once per batch. When a later stage falls behind, the bounded queues make the
+ * earlier ones wait, so memory use does not grow with the size of the file.
+ *
+ * Import files have a CustomerName,State,ProductType,Area,OrderDate header, with MM-dd-yyyy dates.
+ * Rows that cannot be parsed or fail validation are written to a reject file together with their
+ * line number and the reason, and the rest of the file is still imported.
+ */
+public class BulkOrderImporter {
+
+    static final String IMPORT_HEADER = "CustomerName,State,ProductType,Area,OrderDate";
+    static final String REJECT_HEADER = "Line,Reason,Row";
+    private static final long PROGRESS_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(1);
+    // Marks the end of the input on the queues between the stages
+    private static final Row END = new Row(0, null, null);
+
+    private final OrderDao orderDao;
+    private final Consumer<Order> preparer;
+    private final int workers;
+    private final int batchSize;
+    private final int queueCapacity;
+
+    /**
+     * Creates an importer.
+     * @param orderDao The DAO the orders are persisted through.
+     * @param preparer Validates and prices one order, throwing a RuntimeException with the reason if it is invalid;
+     *                 it is called from several threads at once.
+     * @param workers The number of validation and pricing threads.
+     * @param batchSize The most orders persisted by one call to OrderDao.addOrders.
+     * @param queueCapacity The most orders waiting between two stages.
+     */
+    public BulkOrderImporter(OrderDao orderDao, Consumer<Order> preparer, int workers, int batchSize, int queueCapacity) {
+        this.orderDao = orderDao;
+        this.preparer = preparer;
+        this.workers = Math.max(1, workers);
+        this.batchSize = Math.max(1, batchSize);
+        this.queueCapacity = Math.max(1, queueCapacity);
+    }
+
+    /**
+     * Imports every valid row of a file.
+     * @param csvPath The file to import.
+     * @param rejectPath The file invalid rows are written to; it is replaced.
+     * @return The counts and timing of the import.
+     * @throws ServiceException if a file cannot be read or written, or the orders cannot be saved.
+     *         Batches persisted before the failure stay imported.
+     */
+    public ImportReport importOrders(String csvPath, String rejectPath) {
+        long start = System.nanoTime();
+        BlockingQueue<Row> parsed = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Row> priced = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicLong rowsRead = new AtomicLong();
+        AtomicReference<Exception> parseFailure = new AtomicReference<>();
+        try (RejectWriter rejects = new RejectWriter(rejectPath)) {
+            long imported;
+            ExecutorService pool = Executors.newFixedThreadPool(workers + 1);
+            try {
+                pool.execute(() -> parse(csvPath, parsed, rowsRead, rejects, parseFailure));
+                for (int i = 0; i < workers; i++) {
+                    pool.execute(() -> price(parsed, priced, rejects));
+                }
+                imported = persist(priced, rowsRead, rejects, start);
+            } finally {
+                pool.shutdownNow();  // Stops the earlier stages if persisting failed
+            }
+            if (parseFailure.get() != null) {
+                throw new ServiceException("Error reading import file " + csvPath + ".", parseFailure.get());
+            }
+            ImportReport report = new ImportReport(rowsRead.get(), imported, rejects.getCount(), System.nanoTime() - start);
+            System.out.println(report.summary());
+            return report;
+        } catch (IOException e) {
+            throw new ServiceException("Error writing reject file " + rejectPath + ".", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while importing orders.", e);
+        } catch (RuntimeException e) {
+            if (e instanceof ServiceException) {
+                throw e;
+            }
+            throw new ServiceException("Error importing orders.", e);
+        }
+    }
+
+    /**
+     * Parse stage: reads the rows of the file and queues them as orders, always ending with one END per worker.
+     */
+    private void parse(String csvPath, BlockingQueue<Row> parsed, AtomicLong rowsRead, RejectWriter rejects,
+                       AtomicReference<Exception> parseFailure) {
+        try (CsvRecordReader reader = new CsvRecordReader(new BufferedReader(new InputStreamReader(
+                new FileInputStream(csvPath), StandardCharsets.UTF_8), 1 << 16), csvPath)) {
+            boolean first = true;
+            while (reader.next()) {
+                if (first && reader.getLine().trim().equalsIgnoreCase(IMPORT_HEADER)) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                rowsRead.incrementAndGet();
+                try {
+                    reader.requireFields(5);
+                    Order order = new Order(null, reader.getString(0), reader.getString(1), null, reader.getString(2),
+                            reader.getDecimal(3), null, null, null, null, null, null, reader.getDate(4));
+                    parsed.put(new Row(reader.getLineNumber(), reader.getLine(), order));
+                } catch (MalformedRecordException e) {
+                    rejects.reject(reader.getLineNumber(), e.getMessage(), reader.getLine());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            parseFailure.set(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        try {
+            for (int i = 0; i < workers; i++) {
+                parsed.put(END);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Validate and price stage: prepares each order and passes it on, or rejects it with the reason.
+     */
+    private void price(BlockingQueue<Row> parsed, BlockingQueue<Row> priced, RejectWriter rejects) {
+        try {
+            while (true) {
+                Row row = parsed.take();
+                if (row == END) {
+                    priced.put(END);
+                    return;
+                }
+                try {
+                    preparer.accept(row.order);
+                    priced.put(row);
+                } catch (RuntimeException e) {
+                    rejects.reject(row.lineNumber, e.getMessage(), row.line);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Persist stage, run on the calling thread: saves the priced orders in batches until every worker has finished.
+     */
+    private long persist(BlockingQueue<Row> priced, AtomicLong rowsRead, RejectWriter rejects, long start)
+            throws InterruptedException {
+        List<Row> rows = new ArrayList<>(batchSize);
+        List<Order> batch = new ArrayList<>(batchSize);
+        long imported = 0;
+        long lastProgress = System.nanoTime();
+        int finishedWorkers = 0;
+        while (finishedWorkers < workers) {
+            rows.add(priced.take());
+            priced.drainTo(rows, batchSize - 1);
+            for (Row row : rows) {
+                if (row == END) {
+                    finishedWorkers++;
+                } else {
+                    batch.add(row.order);
+                }
+            }
+            rows.clear();
+            if (batch.size() >= batchSize || (finishedWorkers == workers && !batch.isEmpty())) {
+                orderDao.addOrders(batch);
+                imported += batch.size();
+                batch = new ArrayList<>(batchSize);
+            }
+            long now = System.nanoTime();
+            if (now - lastProgress >= PROGRESS_INTERVAL_NANOS) {
+                lastProgress = now;
+                System.out.println(new ImportReport(rowsRead.get(), imported, rejects.getCount(), now - start).summary());
+            }
+        }
+        return imported;
+    }
+
+    /**
+     * One row of the import file on its way through the pipeline.
+     */
+    private static class Row {
+        private final int lineNumber;
+        private final String line;
+        private final Order order;
+
+        private Row(int lineNumber, String line, Order order) {
+            this.lineNumber = lineNumber;
+            this.line = line;
+            this.order = order;
+        }
+    }
+
+    /**
+     * Writes rejected rows, shared by the parse and validate stages.
+     */
+    private static class RejectWriter implements Closeable {
+        private final BufferedWriter writer;
+        private long count;
+
+        private RejectWriter(String rejectPath) throws IOException {
+            File parent = new File(rejectPath).getAbsoluteFile().getParentFile();
+            if (!parent.exists()) {
+                parent.mkdirs();
+            }
+            this.writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(rejectPath), StandardCharsets.UTF_8));
+            writer.write(REJECT_HEADER);
+            writer.newLine();
+        }
+
+        private synchronized void reject(int lineNumber, String reason, String line) {
+            count++;
+            try {
+                // The reason must not add columns; the row itself is kept as read, as the last column
+                writer.write(lineNumber + "," + String.valueOf(reason).replace(',', ';') + "," + line);
+                writer.newLine();
+            } catch (IOException e) {
+                System.err.println("Error writing rejected row " + lineNumber + ": " + e.getMessage());
+            }
+        }
+
+        private synchronized long getCount() {
+            return count;
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * The counts and timing of an import.
+     */
+    public static class ImportReport {
+        private final long rowsRead;
+        private final long imported;
+        private final long rejected;
+        private final long elapsedNanos;
+
+        public ImportReport(long rowsRead, long imported, long rejected, long elapsedNanos) {
+            this.rowsRead = rowsRead;
+            this.imported = imported;
+            this.rejected = rejected;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return The number of data rows read from the file, not counting the header.
+         */
+        public long getRowsRead() {
+            return rowsRead;
+        }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public long getRejected() {
+            return rejected;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return The number of rows read per second so far.
+         */
+        public double getRowsPerSecond() {
+            return elapsedNanos == 0 ? 0 : rowsRead * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return A one-line summary for the console.
+         */
+        public String summary() {
+            return String.format("Read %d rows: %d imported, %d rejected (%.0f rows/sec)",
+                    rowsRead, imported, rejected, getRowsPerSecond());
+        }
+    }
+}
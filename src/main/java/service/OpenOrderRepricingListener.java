@@ -0,0 +1,61 @@
+package service;
+
+import modelDTO.Product;
+import modelDTO.Tax;
+
+import java.io.File;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * The OpenOrderRepricingListener class re-prices the open orders of a product type or state as soon as
+ * ProductServiceImpl or TaxServiceImpl reports that its price or tax rate changed, so open orders never
+ * keep the old rates. Removals are ignored: the orders of a removed product or state cannot be priced.
+ * The price or rate is already saved when the listener runs, so a failed repricing is reported on
+ * System.err instead of failing the edit.
+ */
+public class OpenOrderRepricingListener implements PricingChangeListener {
+
+    private final OrderService orderService;
+    private final String reportFolder;
+
+    /**
+     * Creates a listener that re-prices through the given order service.
+     * @param orderService The service whose repriceOpenOrders is called.
+     * @param reportFolder The folder each run writes its Repricing_yyyyMMdd_HHmmss.csv diff report to, or null for none.
+     */
+    public OpenOrderRepricingListener(OrderService orderService, String reportFolder) {
+        this.orderService = orderService;
+        this.reportFolder = reportFolder;
+    }
+
+    @Override
+    public void productChanged(String productType, Product product) {
+        if (product != null) {
+            reprice(null, productType, "product " + productType);
+        }
+    }
+
+    @Override
+    public void taxChanged(String state, Tax tax) {
+        if (tax != null) {
+            reprice(state, null, "tax of " + state);
+        }
+    }
+
+    private void reprice(String state, String productType, String change) {
+        try {
+            orderService.repriceOpenOrders(state, productType, reportPath());
+        } catch (RuntimeException e) {
+            System.err.println("Error repricing open orders after the change to the " + change + ": " + e.getMessage());
+        }
+    }
+
+    private String reportPath() {
+        if (reportFolder == null) {
+            return null;
+        }
+        String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
+        return new File(reportFolder, "Repricing_" + timestamp + ".csv").getPath();
+    }
+}
@@ -0,0 +1,372 @@
+package service;
+
+import dao.OrderDao;
+import modelDTO.Order;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * The OrderRepricer class re-prices open orders after a product price or tax rate has changed.
+ *
+ * The affected orders are found through the DAO's state and product type indexes, restricted to
+ * orders dated from the given day on, so closed days are never read or changed. They are priced
+ * again on copies in parallel chunks, each chunk as primitive columns through a PricingKernel, and
+ * compared with the stored values. Only the orders whose rates or amounts changed are saved, in one
+ * OrderDao.editOrders call that writes each touched date partition once; orders removed while the run
+ * was pricing are left out and counted as failed. A diff report lists every saved order with its old
+ * and new values.
+ */
+public class OrderRepricer {
+
+    static final String REPORT_HEADER = "OrderNumber,OrderDate,State,ProductType,OldTaxRate,NewTaxRate,"
+            + "OldCostPerSquareFoot,NewCostPerSquareFoot,OldLaborCostPerSquareFoot,NewLaborCostPerSquareFoot,"
+            + "OldTotal,NewTotal,Difference";
+
+    private final OrderDao orderDao;
+    private final Consumer<Order> rater;
+    private final PricingKernel kernel;
+    private final int parallelism;
+    private final int chunkSize;
+
+    /**
+     * Creates a repricer.
+     * @param orderDao The DAO the orders are read from and saved through.
+     * @param rater Sets the tax rate and the cost and labor cost per square foot of one order from the current
+     *              products and taxes, throwing a RuntimeException if it can no longer be priced; it is called
+     *              from several threads at once.
+     * @param kernel Prices the rated orders of a chunk.
+     * @param parallelism The number of threads pricing chunks at the same time.
+     * @param chunkSize The number of orders priced by one task.
+     */
+    public OrderRepricer(OrderDao orderDao, Consumer<Order> rater, PricingKernel kernel, int parallelism, int chunkSize) {
+        this.orderDao = orderDao;
+        this.rater = rater;
+        this.kernel = kernel;
+        this.parallelism = Math.max(1, parallelism);
+        this.chunkSize = Math.max(1, chunkSize);
+    }
+
+    /**
+     * Re-prices the open orders of a state and/or product type and saves the ones that changed.
+     * @param from The first open day; earlier orders are left alone.
+     * @param state The state whose tax changed, or null for any state.
+     * @param productType The product type whose prices changed, or null for any product type.
+     * @param reportPath The diff report file to write, or null for none; it is replaced.
+     * @return The counts, the changed orders and the revenue difference.
+     * @throws ServiceException if the changed orders cannot be saved or the report cannot be written.
+     */
+    public RepricingReport reprice(Date from, String state, String productType, String reportPath) {
+        long start = System.nanoTime();
+        List<Order> candidates = orderDao.searchOrdersFrom(from, state, productType);
+
+        List<Callable<Chunk>> tasks = new ArrayList<>();
+        for (int first = 0; first < candidates.size(); first += chunkSize) {
+            List<Order> chunk = candidates.subList(first, Math.min(first + chunkSize, candidates.size()));
+            tasks.add(() -> priceChunk(chunk));
+        }
+        List<RepricedOrder> changes = new ArrayList<>();
+        int failed = 0;
+        try {
+            List<Chunk> chunks = new ArrayList<>(tasks.size());
+            if (parallelism == 1 || tasks.size() <= 1) {
+                for (Callable<Chunk> task : tasks) {
+                    chunks.add(task.call());
+                }
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()));
+                try {
+                    for (Future<Chunk> future : pool.invokeAll(tasks)) {
+                        chunks.add(future.get());
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            for (Chunk chunk : chunks) {
+                changes.addAll(chunk.changes);
+                failed += chunk.failed;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while repricing orders.", e);
+        } catch (ExecutionException e) {
+            throw new ServiceException("Error repricing orders.", e.getCause());
+        } catch (Exception e) {
+            throw new ServiceException("Error repricing orders.", e);
+        }
+
+        List<RepricedOrder> saved = save(changes);
+        failed += changes.size() - saved.size();
+        changes = saved;
+        if (reportPath != null) {
+            writeReport(changes, reportPath);
+        }
+        return new RepricingReport(candidates.size(), changes, failed, System.nanoTime() - start);
+    }
+
+    /**
+     * Saves the repriced orders in one batch. If some were removed since they were read, the batch is
+     * retried without them.
+     * @return The changes that were saved.
+     */
+    private List<RepricedOrder> save(List<RepricedOrder> changes) {
+        List<RepricedOrder> pending = changes;
+        while (!pending.isEmpty()) {
+            List<Order> repriced = new ArrayList<>(pending.size());
+            for (RepricedOrder change : pending) {
+                repriced.add(change.getAfter());
+            }
+            try {
+                orderDao.editOrders(repriced);
+                return pending;
+            } catch (OrderNotFoundException e) {
+                List<RepricedOrder> remaining = new ArrayList<>(pending.size());
+                for (RepricedOrder change : pending) {
+                    if (orderDao.getOrderById(change.getAfter().getOrderNumber()) != null) {
+                        remaining.add(change);
+                    }
+                }
+                if (remaining.size() == pending.size()) {
+                    throw new ServiceException("Error saving repriced orders.", e);
+                }
+                pending = remaining;
+            } catch (RuntimeException e) {
+                throw new ServiceException("Error saving repriced orders.", e);
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * Prices copies of one chunk of orders and keeps the ones whose rates or amounts changed.
+     * Orders with more than two decimals in their area or rates are priced one by one through PricingEngine.
+     */
+    private Chunk priceChunk(List<Order> orders) {
+        Chunk chunk = new Chunk();
+        int size = orders.size();
+        Order[] before = new Order[size];
+        Order[] after = new Order[size];
+        boolean[] inexact = new boolean[size];
+        long[] area = new long[size];
+        long[] cost = new long[size];
+        long[] labor = new long[size];
+        long[] rate = new long[size];
+        int rows = 0;
+        for (Order order : orders) {
+            Order copy = copy(order);
+            try {
+                rater.accept(copy);
+            } catch (RuntimeException e) {
+                chunk.failed++;
+                continue;
+            }
+            before[rows] = order;
+            after[rows] = copy;
+            area[rows] = toHundredths(copy.getArea());
+            cost[rows] = toHundredths(copy.getCostPerSquareFoot());
+            labor[rows] = toHundredths(copy.getLaborCostPerSquareFoot());
+            rate[rows] = toHundredths(copy.getTaxRate());
+            if (area[rows] == Long.MIN_VALUE || cost[rows] == Long.MIN_VALUE || labor[rows] == Long.MIN_VALUE
+                    || rate[rows] == Long.MIN_VALUE) {
+                inexact[rows] = true;
+                area[rows] = 0;
+                cost[rows] = 0;
+                labor[rows] = 0;
+                rate[rows] = 0;
+            }
+            rows++;
+        }
+
+        long[] materialCost = new long[rows];
+        long[] laborCost = new long[rows];
+        long[] tax = new long[rows];
+        long[] total = new long[rows];
+        kernel.priceAll(area, cost, labor, rate, materialCost, laborCost, tax, total, rows);
+        for (int row = 0; row < rows; row++) {
+            Order copy = after[row];
+            if (inexact[row]) {
+                try {
+                    PricingEngine.price(copy, copy.getCostPerSquareFoot(), copy.getLaborCostPerSquareFoot(), copy.getTaxRate());
+                } catch (RuntimeException e) {
+                    chunk.failed++;
+                    continue;
+                }
+            } else {
+                copy.setMaterialCost(BigDecimal.valueOf(materialCost[row], 2));
+                copy.setLaborCost(BigDecimal.valueOf(laborCost[row], 2));
+                copy.setTax(BigDecimal.valueOf(tax[row], 2));
+                copy.setTotal(BigDecimal.valueOf(total[row], 2));
+            }
+            if (changed(before[row], copy)) {
+                chunk.changes.add(new RepricedOrder(before[row], copy));
+            }
+        }
+        return chunk;
+    }
+
+    private static long toHundredths(BigDecimal value) {
+        return value == null ? Long.MIN_VALUE : PricingEngine.toHundredths(value);
+    }
+
+    private static Order copy(Order order) {
+        return new Order(order.getOrderNumber(), order.getCustomerName(), order.getState(), order.getTaxRate(),
+                order.getProductType(), order.getArea(), order.getCostPerSquareFoot(), order.getLaborCostPerSquareFoot(),
+                order.getMaterialCost(), order.getLaborCost(), order.getTax(), order.getTotal(), order.getOrderDate());
+    }
+
+    private static boolean changed(Order before, Order after) {
+        return differs(before.getTaxRate(), after.getTaxRate())
+                || differs(before.getCostPerSquareFoot(), after.getCostPerSquareFoot())
+                || differs(before.getLaborCostPerSquareFoot(), after.getLaborCostPerSquareFoot())
+                || differs(before.getMaterialCost(), after.getMaterialCost())
+                || differs(before.getLaborCost(), after.getLaborCost())
+                || differs(before.getTax(), after.getTax())
+                || differs(before.getTotal(), after.getTotal());
+    }
+
+    private static boolean differs(BigDecimal before, BigDecimal after) {
+        return before == null ? after != null : after == null || before.compareTo(after) != 0;
+    }
+
+    private static void writeReport(List<RepricedOrder> changes, String reportPath) {
+        File parent = new File(reportPath).getAbsoluteFile().getParentFile();
+        if (!parent.exists()) {
+            parent.mkdirs();
+        }
+        SimpleDateFormat dateFormat = new SimpleDateFormat("MM-dd-yyyy");
+        try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(reportPath), StandardCharsets.UTF_8))) {
+            writer.write(REPORT_HEADER);
+            writer.newLine();
+            for (RepricedOrder change : changes) {
+                Order before = change.getBefore();
+                Order after = change.getAfter();
+                writer.write(after.getOrderNumber() + "," + dateFormat.format(after.getOrderDate()) + ","
+                        + after.getState() + "," + after.getProductType() + ","
+                        + plain(before.getTaxRate()) + "," + plain(after.getTaxRate()) + ","
+                        + plain(before.getCostPerSquareFoot()) + "," + plain(after.getCostPerSquareFoot()) + ","
+                        + plain(before.getLaborCostPerSquareFoot()) + "," + plain(after.getLaborCostPerSquareFoot()) + ","
+                        + plain(before.getTotal()) + "," + plain(after.getTotal()) + "," + plain(change.getDifference()));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            throw new ServiceException("Error writing repricing report " + reportPath + ".", e);
+        }
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.toPlainString();
+    }
+
+    /**
+     * The result of pricing one chunk.
+     */
+    private static class Chunk {
+        private final List<RepricedOrder> changes = new ArrayList<>();
+        private int failed;
+    }
+
+    /**
+     * An order before and after repricing.
+     */
+    public static class RepricedOrder {
+        private final Order before;
+        private final Order after;
+
+        public RepricedOrder(Order before, Order after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        public Order getBefore() {
+            return before;
+        }
+
+        public Order getAfter() {
+            return after;
+        }
+
+        /**
+         * @return The new total minus the old total.
+         */
+        public BigDecimal getDifference() {
+            BigDecimal oldTotal = before.getTotal() == null ? BigDecimal.ZERO : before.getTotal();
+            return after.getTotal().subtract(oldTotal);
+        }
+    }
+
+    /**
+     * The outcome of a repricing run.
+     */
+    public static class RepricingReport {
+        private final int scanned;
+        private final List<RepricedOrder> changes;
+        private final int failed;
+        private final long elapsedNanos;
+
+        public RepricingReport(int scanned, List<RepricedOrder> changes, int failed, long elapsedNanos) {
+            this.scanned = scanned;
+            this.changes = changes;
+            this.failed = failed;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return The number of open orders matching the state and product type.
+         */
+        public int getScanned() {
+            return scanned;
+        }
+
+        /**
+         * @return The orders whose rates or amounts changed and were saved, in order-number order.
+         */
+        public List<RepricedOrder> getChanges() {
+            return changes;
+        }
+
+        /**
+         * @return The number of orders that could not be priced, such as orders of a removed product, or were removed
+         *         before the run saved them; they are unchanged.
+         */
+        public int getFailed() {
+            return failed;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return The sum of the new totals minus the old totals.
+         */
+        public BigDecimal getTotalDifference() {
+            BigDecimal difference = BigDecimal.ZERO;
+            for (RepricedOrder change : changes) {
+                difference = difference.add(change.getDifference());
+            }
+            return difference;
+        }
+
+        /**
+         * @return A one-line summary for the console.
+         */
+        public String summary() {
+            return String.format("Repriced %d of %d open orders (%d could not be priced or were removed), total change %s, in %d ms",
+                    changes.size(), scanned, failed, getTotalDifference().toPlainString(), elapsedNanos / 1_000_000);
+        }
+    }
+}
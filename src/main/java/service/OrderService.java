@@ -15,6 +15,11 @@ import java.util.List;
  */
 public interface OrderService {
 
+    /**
+     * How a compressed export splits orders into files.
+     */
+    enum ExportPartitioning { MONTH, STATE }
+
     /**
      * Adds a new order to the system.
      * @param order The order object to be added.
@@ -33,6 +38,30 @@ public interface OrderService {
      */
     void removeOrder(int orderId);
 
+    /**
+     * Adds several orders at once, validating all of them first and saving the valid ones together.
+     * @param orders The orders to be added.
+     * @return One result per order, in the same order, with the assigned order number or the reason it failed.
+     * @throws ServiceException if the valid orders cannot be saved.
+     */
+    List<BatchResult> addOrders(List<Order> orders);
+
+    /**
+     * Edits several orders at once, validating all of them first and saving the valid ones together.
+     * @param orders The orders with updated details.
+     * @return One result per order, in the same order.
+     * @throws ServiceException if the valid edits cannot be saved.
+     */
+    List<BatchResult> editOrders(List<Order> orders);
+
+    /**
+     * Removes several orders at once; order numbers that do not exist are reported and skipped.
+     * @param orderIds The IDs of the orders to be removed.
+     * @return One result per ID, in the same order.
+     * @throws ServiceException if the removals cannot be saved.
+     */
+    List<BatchResult> removeOrders(List<Integer> orderIds);
+
     /**
      * Retrieves a list of orders placed on a specific date.
      * @param date The date for which orders are to be retrieved.
@@ -40,6 +69,14 @@ public interface OrderService {
      */
     List<Order> getOrdersByDate(Date date);
 
+    /**
+     * Retrieves a list of orders placed between two dates, both inclusive, for weekly or monthly reporting.
+     * @param from The first date of the range.
+     * @param to The last date of the range.
+     * @return A list of orders placed within the range, in date order.
+     */
+    List<Order> getOrdersBetween(Date from, Date to);
+
     /**
      * Retrieves a specific order by its ID.
      * @param orderId The ID of the desired order.
@@ -67,6 +104,15 @@ public interface OrderService {
      */
     List<Order> searchOrdersByName(String customerName);
 
+    /**
+     * Searches for orders whose customer name starts with, contains, or approximately matches the query,
+     * for lookups where the exact name is not known.
+     * @param query The partial or misspelt customer name.
+     * @param limit The most orders to return.
+     * @return The best matching orders, best match first.
+     */
+    List<Order> searchOrdersByNameFuzzy(String query, int limit);
+
     /**
      * Searches for and retrieves orders based on the state.
      * @param state The state to filter orders by.
@@ -81,6 +127,60 @@ public interface OrderService {
      */
     List<Order> searchOrdersByProductType(String productType);
 
+    /**
+     * Exports every order to a CSV file, sorted by order number.
+     * @param filePath The export file to write.
+     * @return The number of orders exported.
+     * @throws ServiceException if the export file cannot be written.
+     */
+    long exportAllData(String filePath);
+
+    /**
+     * Exports only the orders added, edited or removed since the last delta export.
+     * @param filePath The delta file to write.
+     * @param watermarkPath The file recording how far the delta chain has got.
+     * @return The number of changed and removed orders exported.
+     * @throws ServiceException if the delta or the watermark cannot be written.
+     */
+    long exportChanges(String filePath, String watermarkPath);
+
+    /**
+     * Exports every order as GZIP-compressed files per month or per state, with a manifest.
+     * @param folderPath The folder to write the files to.
+     * @param partitioning Whether to split by month of the order date or by state.
+     * @return The number of orders exported.
+     * @throws ServiceException if the export cannot be written.
+     */
+    long exportCompressed(String folderPath, ExportPartitioning partitioning);
+
+    /**
+     * Imports a CSV batch of orders, validating and pricing each row like addOrder.
+     * @param csvPath The file to import, with a CustomerName,State,ProductType,Area,OrderDate header.
+     * @param rejectPath The file invalid rows are written to, with the reason.
+     * @return The counts and timing of the import.
+     * @throws ServiceException if a file cannot be read or written, or the orders cannot be saved.
+     */
+    BulkOrderImporter.ImportReport importOrders(String csvPath, String rejectPath);
+
+    /**
+     * Re-prices the open orders, dated today or later, of a state and/or product type from the current
+     * products and taxes, and saves the ones whose prices changed.
+     * @param state The state whose tax rate changed, or null for any state.
+     * @param productType The product type whose prices changed, or null for any product type.
+     * @param reportPath The diff report file to write, or null for none.
+     * @return The counts, the changed orders and the revenue difference.
+     * @throws ServiceException if the orders cannot be saved or the report cannot be written.
+     */
+    OrderRepricer.RepricingReport repriceOpenOrders(String state, String productType, String reportPath);
+
+    /**
+     * Loads the order history and the current products and taxes into a simulator for what-if pricing.
+     * The simulator can run any number of scenarios and never saves anything.
+     * @return The simulator.
+     * @throws ServiceException if the orders, products or taxes cannot be read.
+     */
+    PricingSimulator createPricingSimulator();
+
     /**
      * Calculates the tax amount for a given order.
      * @param order The order for which tax needs to be calculated.
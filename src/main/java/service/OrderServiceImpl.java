@@ -1,6 +1,8 @@
 package service;
 
 import dao.OrderDao;
+import dao.OrderExporter;
+import dao.PartitionedOrderExporter;
 import dao.ProductDao;
 import dao.TaxDao;
 import modelDTO.Order;
@@ -8,10 +10,13 @@ import modelDTO.Product;
 import modelDTO.Tax;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class provides the concrete implementation of the OrderService interface.
@@ -24,9 +29,18 @@ public class OrderServiceImpl implements OrderService {
     private final ProductDao productDao;
     private final TaxDao taxDao;
 
+    // Orders persisted per batch by the bulk import, and orders allowed to wait between its stages
+    private static final int IMPORT_BATCH_SIZE = 5000;
+    private static final int IMPORT_QUEUE_CAPACITY = 10000;
+    // Orders priced by one repricing task
+    private static final int REPRICE_CHUNK_SIZE = 4096;
+
     // Map to convert state names to their respective abbreviations
     private Map<String, String> stateToAbbreviationMap;
 
+    // Precomputed prices used instead of the product and tax lookups when set
+    private volatile PriceMatrix priceMatrix;
+
     /**
      * Constructor initializes the DAOs and the state abbreviation map.
      */
@@ -37,6 +51,16 @@ public class OrderServiceImpl implements OrderService {
         initializeStateMapping(); // <-- Initialize the map in the constructor
     }
 
+    /**
+     * Prices orders from a precomputed price matrix instead of looking up the product and tax of each
+     * order. The matrix must be kept up to date, normally by registering it with ProductServiceImpl
+     * and TaxServiceImpl.
+     * @param priceMatrix The matrix, or null to go back to looking up every order.
+     */
+    public void setPriceMatrix(PriceMatrix priceMatrix) {
+        this.priceMatrix = priceMatrix;
+    }
+
     /**
      * Initializes the state to abbreviation mapping.
      */
@@ -78,6 +102,29 @@ public class OrderServiceImpl implements OrderService {
      */
     @Override
     public void addOrder(Order order) {
+        prepareNewOrder(order);
+        orderDao.addOrder(order);
+    }
+
+    /**
+     * Validates a new order and calculates its costs, without saving it.
+     * Shared by addOrder and the bulk import pipeline.
+     * @param order The order object to be prepared.
+     * @throws ServiceException if the order is null, state is invalid, or product type is invalid.
+     */
+    void prepareNewOrder(Order order) {
+        prepareNewOrder(order, new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * Validates a new order and calculates its costs, resolving products and taxes through caches
+     * so a batch looks each product type and state up only once.
+     * @param order The order object to be prepared.
+     * @param products Products resolved so far, by product type; may be shared between threads if concurrent.
+     * @param taxes Taxes resolved so far, by state; may be shared between threads if concurrent.
+     * @throws ServiceException if the order is null, state is invalid, or product type is invalid.
+     */
+    void prepareNewOrder(Order order, Map<String, Product> products, Map<String, Tax> taxes) {
         if (order == null) {
             throw new ServiceException("Order cannot be null!");
         }
@@ -92,10 +139,40 @@ public class OrderServiceImpl implements OrderService {
 //            throw new ServiceException("Invalid state name provided!");
 //        }
 //        order.setState(stateAbbreviation); // Set the order's state to the abbreviation
-        validateProductType(order.getProductType());
-        validateState(order.getState());
-        calculateOrderCosts(order);
-        orderDao.addOrder(order);
+        priceOrder(order, products, taxes);
+    }
+
+    /**
+     * Validates the product type and state of an order and calculates its costs.
+     * Lookups that find nothing are not cached, so they are simply repeated.
+     */
+    private void priceOrder(Order order, Map<String, Product> products, Map<String, Tax> taxes) {
+        PriceMatrix matrix = priceMatrix;
+        if (matrix != null) {
+            matrix.price(order);
+            return;
+        }
+        rateOrder(order, products, taxes);
+        PricingEngine.price(order, order.getCostPerSquareFoot(), order.getLaborCostPerSquareFoot(), order.getTaxRate());
+    }
+
+    /**
+     * Validates the product type and state of an order and sets its tax rate and costs per square foot,
+     * leaving the amounts to be calculated.
+     */
+    private void rateOrder(Order order, Map<String, Product> products, Map<String, Tax> taxes) {
+        Product product = order.getProductType() == null ? null
+                : products.computeIfAbsent(order.getProductType(), productDao::getProductByType);
+        if (product == null) {
+            throw new ServiceException("Invalid product type!");
+        }
+        Tax tax = order.getState() == null ? null : taxes.computeIfAbsent(order.getState(), taxDao::getTaxByState);
+        if (tax == null) {
+            throw new ServiceException("Invalid state provided. Tax details not found.");
+        }
+        order.setTaxRate(tax.getTaxRate());
+        order.setCostPerSquareFoot(product.getCostPerSquareFoot());
+        order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
     }
 
     /**
@@ -115,9 +192,14 @@ public class OrderServiceImpl implements OrderService {
             if (existingOrder == null) {
                 throw new ServiceException("Order not found!");
             }
-            validateProductType(order.getProductType());
-            validateState(order.getState());
-            calculateOrderCosts(order);
+            PriceMatrix matrix = priceMatrix;
+            if (matrix != null) {
+                matrix.price(order);
+            } else {
+                validateProductType(order.getProductType());
+                validateState(order.getState());
+                calculateOrderCosts(order);
+            }
             orderDao.editOrder(order);
         } catch (OrderNotFoundException e) {
             throw new ServiceException("Failed to edit the order.", e);
@@ -139,6 +221,114 @@ public class OrderServiceImpl implements OrderService {
         orderDao.removeOrder(orderId);
     }
 
+    /**
+     * Adds several orders at once. Every order is validated and priced first, looking each product
+     * type and state up only once; the valid orders are then saved together, writing each date
+     * partition once. Invalid orders are reported and skipped.
+     * @param orders The orders to be added.
+     * @return One result per order, in the same order.
+     * @throws ServiceException if the valid orders cannot be saved.
+     */
+    @Override
+    public List<BatchResult> addOrders(List<Order> orders) {
+        Map<String, Product> products = new HashMap<>();
+        Map<String, Tax> taxes = new HashMap<>();
+        BatchResult[] results = new BatchResult[orders.size()];
+        List<Order> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            try {
+                prepareNewOrder(orders.get(i), products, taxes);
+                valid.add(orders.get(i));
+                validIndexes.add(i);
+            } catch (ServiceException e) {
+                results[i] = new BatchResult(i, null, false, e.getMessage());
+            }
+        }
+        try {
+            if (!valid.isEmpty()) {
+                orderDao.addOrders(valid);
+            }
+        } catch (RuntimeException e) {
+            throw new ServiceException("Error saving orders.", e);
+        }
+        for (int i = 0; i < valid.size(); i++) {
+            results[validIndexes.get(i)] = new BatchResult(validIndexes.get(i), valid.get(i).getOrderNumber(), true, null);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Edits several orders at once. Every order is checked and priced first, looking each product
+     * type and state up only once; the valid edits are then saved together, writing each date
+     * partition once. Orders that do not exist or are invalid are reported and skipped.
+     * @param orders The orders with updated details.
+     * @return One result per order, in the same order.
+     * @throws ServiceException if the valid edits cannot be saved.
+     */
+    @Override
+    public List<BatchResult> editOrders(List<Order> orders) {
+        Map<String, Product> products = new HashMap<>();
+        Map<String, Tax> taxes = new HashMap<>();
+        BatchResult[] results = new BatchResult[orders.size()];
+        List<Order> valid = new ArrayList<>();
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            Integer orderNumber = order == null ? null : order.getOrderNumber();
+            try {
+                if (order == null) {
+                    throw new ServiceException("Order cannot be null!");
+                }
+                if (orderNumber == null || orderDao.getOrderById(orderNumber) == null) {
+                    throw new ServiceException("Order not found!");
+                }
+                priceOrder(order, products, taxes);
+                valid.add(order);
+                results[i] = new BatchResult(i, orderNumber, true, null);
+            } catch (ServiceException e) {
+                results[i] = new BatchResult(i, orderNumber, false, e.getMessage());
+            }
+        }
+        try {
+            if (!valid.isEmpty()) {
+                orderDao.editOrders(valid);
+            }
+        } catch (OrderNotFoundException | RuntimeException e) {
+            throw new ServiceException("Failed to edit the orders.", e);
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Removes several orders at once, writing each date partition once.
+     * Order numbers that do not exist are reported and skipped.
+     * @param orderIds The IDs of the orders to be removed.
+     * @return One result per ID, in the same order.
+     * @throws ServiceException if the removals cannot be saved.
+     */
+    @Override
+    public List<BatchResult> removeOrders(List<Integer> orderIds) {
+        BatchResult[] results = new BatchResult[orderIds.size()];
+        List<Integer> valid = new ArrayList<>();
+        for (int i = 0; i < orderIds.size(); i++) {
+            Integer orderId = orderIds.get(i);
+            if (orderId == null || orderDao.getOrderById(orderId) == null) {
+                results[i] = new BatchResult(i, orderId, false, "Order not found!");
+            } else {
+                valid.add(orderId);
+                results[i] = new BatchResult(i, orderId, true, null);
+            }
+        }
+        try {
+            if (!valid.isEmpty()) {
+                orderDao.removeOrders(valid);
+            }
+        } catch (RuntimeException e) {
+            throw new ServiceException("Error removing orders.", e);
+        }
+        return Arrays.asList(results);
+    }
+
     /**
      * Retrieves a list of orders from the data store based on a specific date.
      * @param date The date for which orders need to be retrieved.
@@ -153,6 +343,28 @@ public class OrderServiceImpl implements OrderService {
         }
     }
 
+    /**
+     * Retrieves a list of orders from the data store placed between two dates, both inclusive.
+     * @param from The first date of the range.
+     * @param to The last date of the range.
+     * @return List of orders placed within the range, in date order.
+     * @throws ServiceException if either date is missing or the range is reversed.
+     */
+    @Override
+    public List<Order> getOrdersBetween(Date from, Date to) {
+        if (from == null || to == null) {
+            throw new ServiceException("Both dates of the range are required!");
+        }
+        if (from.after(to)) {
+            throw new ServiceException("The start date must not be after the end date!");
+        }
+        try {
+            return orderDao.getOrdersBetween(from, to);
+        } catch (RuntimeException e) {
+            throw new ServiceException("Error fetching orders.", e);
+        }
+    }
+
     /**
      * Retrieves a specific order from the data store based on its ID.
      * @param orderId The ID of the order to be retrieved.
@@ -175,6 +387,119 @@ public class OrderServiceImpl implements OrderService {
         return allOrders;
     }
 
+    /**
+     * Streams every order to a CSV file, sorted by order number.
+     * @param filePath The export file to write.
+     * @return The number of orders exported.
+     * @throws ServiceException if the export file cannot be written.
+     */
+    @Override
+    public long exportAllData(String filePath) {
+        try {
+            long exported = orderDao.exportOrders(filePath, OrderExporter.SortOrder.ORDER_NUMBER);
+            System.out.println("Number of orders exported: " + exported);
+            return exported;
+        } catch (RuntimeException e) {
+            throw new ServiceException("Error exporting orders.", e);
+        }
+    }
+
+    /**
+     * Exports only the orders added, edited or removed since the last delta export.
+     * @param filePath The delta file to write.
+     * @param watermarkPath The file recording how far the delta chain has got.
+     * @return The number of changed and removed orders exported.
+     * @throws ServiceException if the delta or the watermark cannot be written.
+     */
+    @Override
+    public long exportChanges(String filePath, String watermarkPath) {
+        try {
+            long exported = orderDao.exportChanges(filePath, watermarkPath);
+            System.out.println("Number of changes exported: " + exported);
+            return exported;
+        } catch (RuntimeException e) {
+            throw new ServiceException("Error exporting order changes.", e);
+        }
+    }
+
+    /**
+     * Exports every order as GZIP-compressed files per month or per state, with a manifest.
+     * @param folderPath The folder to write the files to.
+     * @param partitioning Whether to split by month of the order date or by state.
+     * @return The number of orders exported.
+     * @throws ServiceException if the export cannot be written.
+     */
+    @Override
+    public long exportCompressed(String folderPath, ExportPartitioning partitioning) {
+        PartitionedOrderExporter.Partitioning filePartitioning = partitioning == ExportPartitioning.STATE
+                ? PartitionedOrderExporter.Partitioning.STATE : PartitionedOrderExporter.Partitioning.MONTH;
+        try {
+            List<PartitionedOrderExporter.ManifestEntry> files = orderDao.exportPartitioned(folderPath, filePartitioning);
+            long exported = files.stream().mapToLong(PartitionedOrderExporter.ManifestEntry::getRows).sum();
+            System.out.println("Number of orders exported: " + exported + " in " + files.size() + " files");
+            return exported;
+        } catch (RuntimeException e) {
+            throw new ServiceException("Error exporting orders.", e);
+        }
+    }
+
+    /**
+     * Imports a CSV batch of orders through the bulk import pipeline, with one pricing worker per core.
+     * @param csvPath The file to import, with a CustomerName,State,ProductType,Area,OrderDate header.
+     * @param rejectPath The file invalid rows are written to, with the reason.
+     * @return The counts and timing of the import.
+     * @throws ServiceException if a file cannot be read or written, or the orders cannot be saved.
+     */
+    @Override
+    public BulkOrderImporter.ImportReport importOrders(String csvPath, String rejectPath) {
+        // Products and taxes are resolved once per import, shared by the pricing workers
+        Map<String, Product> products = new ConcurrentHashMap<>();
+        Map<String, Tax> taxes = new ConcurrentHashMap<>();
+        BulkOrderImporter importer = new BulkOrderImporter(orderDao, order -> prepareNewOrder(order, products, taxes),
+                Runtime.getRuntime().availableProcessors(), IMPORT_BATCH_SIZE, IMPORT_QUEUE_CAPACITY);
+        return importer.importOrders(csvPath, rejectPath);
+    }
+
+    /**
+     * Re-prices the open orders of a state and/or product type, one chunk per core at a time,
+     * through the Vector API kernel when the JVM provides it.
+     * Orders dated before today are closed and left alone.
+     * @param state The state whose tax rate changed, or null for any state.
+     * @param productType The product type whose prices changed, or null for any product type.
+     * @param reportPath The diff report file to write, or null for none.
+     * @return The counts, the changed orders and the revenue difference.
+     * @throws ServiceException if the orders cannot be saved or the report cannot be written.
+     */
+    @Override
+    public OrderRepricer.RepricingReport repriceOpenOrders(String state, String productType, String reportPath) {
+        Map<String, Product> products = new ConcurrentHashMap<>();
+        Map<String, Tax> taxes = new ConcurrentHashMap<>();
+        OrderRepricer repricer = new OrderRepricer(orderDao, order -> rateOrder(order, products, taxes),
+                PricingEngine.bulkKernel(), Runtime.getRuntime().availableProcessors(), REPRICE_CHUNK_SIZE);
+        OrderRepricer.RepricingReport report = repricer.reprice(new Date(), state, productType, reportPath);
+        System.out.println(report.summary());
+        return report;
+    }
+
+    /**
+     * Loads every order, product and tax into a simulator that scans with one thread per core,
+     * through the Vector API kernel when the JVM provides it.
+     * @return The simulator.
+     * @throws ServiceException if the orders, products or taxes cannot be read.
+     */
+    @Override
+    public PricingSimulator createPricingSimulator() {
+        try {
+            return new PricingSimulator(orderDao.getAllOrders(), productDao.getAllProducts(), taxDao.getAllTaxes(),
+                    PricingEngine.bulkKernel(), Runtime.getRuntime().availableProcessors());
+        } catch (RuntimeException e) {
+            if (e instanceof ServiceException) {
+                throw e;
+            }
+            throw new ServiceException("Error loading orders for the pricing simulation.", e);
+        }
+    }
+
     /**
      * Validates the data for a given order.
      * This method ensures that the order's customer name, product type, and state are valid and not empty.
@@ -225,13 +550,17 @@ public class OrderServiceImpl implements OrderService {
     private void calculateOrderCosts(Order order) {
         Product product = productDao.getProductByType(order.getProductType());
         Tax tax = taxDao.getTaxByState(order.getState());
+        applyCosts(order, product, tax);
+    }
 
+    /**
+     * Sets the rates and costs of an order from its product and tax, rounded half up to cents.
+     */
+    private void applyCosts(Order order, Product product, Tax tax) {
+        order.setTaxRate(tax.getTaxRate());
         order.setCostPerSquareFoot(product.getCostPerSquareFoot());
         order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
-        order.setMaterialCost(order.calculateMaterialCost());
-        order.setLaborCost(order.calculateLaborCost());
-        order.setTax(order.calculateTax(tax));
-        order.setTotal(order.calculateTotal(tax));
+        PricingEngine.price(order, product.getCostPerSquareFoot(), product.getLaborCostPerSquareFoot(), tax.getTaxRate());
     }
 
 
@@ -290,6 +619,22 @@ public class OrderServiceImpl implements OrderService {
         return orderDao.searchOrdersByName(customerName);
     }
 
+    /**
+     * Searches and retrieves the orders whose customer name best matches a partial or misspelt name.
+     * @param query The partial or misspelt customer name.
+     * @param limit The most orders to return.
+     * @return List of the best matching orders, best match first.
+     * @throws ServiceException if the query is empty or null, or the limit is not positive.
+     */
+    @Override
+    public List<Order> searchOrdersByNameFuzzy(String query, int limit) {
+        validateStringInput(query, "Customer name cannot be empty!");
+        if (limit <= 0) {
+            throw new ServiceException("The result limit must be positive!");
+        }
+        return orderDao.searchOrdersByNameFuzzy(query.trim(), limit);
+    }
+
     /**
      * Searches and retrieves a list of orders from the data store based on a specific state.
      * @param state The state to search for.
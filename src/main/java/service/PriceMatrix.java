@@ -0,0 +1,260 @@
+package service;
+
+import modelDTO.Order;
+import modelDTO.Product;
+import modelDTO.Tax;
+
+import java.math.BigDecimal;
+import java.util.*;
+
+/**
+ * The PriceMatrix class holds precomputed per-square-foot prices for every product in every state,
+ * so an order can be quoted with one array lookup and a few multiplications instead of a product
+ * lookup, a tax lookup and the rate arithmetic.
+ *
+ * Each cell holds, in fixed point as used by PricingEngine, the material and labor cost per square
+ * foot in cents, the tax per square foot ((cost + labor) * basis points) and the tax-inclusive price
+ * per square foot ((cost + labor) * (10000 + basis points)). Quotes are rounded exactly like
+ * PricingEngine, so they equal the prices OrderServiceImpl calculates without the matrix. Cells whose
+ * rates have more than two decimals, and quotes that overflow a long, are priced through PricingEngine.
+ *
+ * The matrix is registered as a PricingChangeListener with ProductServiceImpl and TaxServiceImpl.
+ * A change recomputes only the row of the product or the column of the state, into a new copy of
+ * the matrix that is then published at once, so quotes never lock and never see a half-applied change.
+ */
+public class PriceMatrix implements PricingChangeListener {
+
+    // Positions within a cell
+    private static final int COST = 0;
+    private static final int LABOR = 1;
+    private static final int TAX_FACTOR = 2;
+    private static final int TOTAL_FACTOR = 3;
+    private static final int RATE = 4;
+    private static final int CELL_SIZE = 5;
+    // Stored as the cost of a cell whose rates do not fit in fixed point
+    private static final long INEXACT = Long.MIN_VALUE;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Builds the matrix over every pair of the given products and taxes.
+     * @param products The products, keyed by their product type.
+     * @param taxes The taxes, keyed by their state abbreviation.
+     */
+    public PriceMatrix(Collection<Product> products, Collection<Tax> taxes) {
+        Map<String, Product> productsByType = new LinkedHashMap<>();
+        for (Product product : products) {
+            if (product != null) {
+                productsByType.put(product.getProductType(), product);
+            }
+        }
+        Map<String, Tax> taxesByState = new LinkedHashMap<>();
+        for (Tax tax : taxes) {
+            if (tax != null) {
+                taxesByState.put(tax.getStateAbbreviation(), tax);
+            }
+        }
+        snapshot = new Snapshot(productsByType.values().toArray(new Product[0]),
+                taxesByState.values().toArray(new Tax[0]), null, null, null);
+    }
+
+    /**
+     * Recomputes the row of a product, adding or dropping it as needed.
+     */
+    @Override
+    public synchronized void productChanged(String productType, Product product) {
+        Snapshot current = snapshot;
+        Integer row = current.productRows.get(productType);
+        if (row == null && product == null) {
+            return;
+        }
+        Product[] products = replace(current.products, row, product);
+        snapshot = new Snapshot(products, current.taxes, current,
+                sources(current.products.length, products.length, row, product == null),
+                sources(current.taxes.length, current.taxes.length, null, false));
+    }
+
+    /**
+     * Recomputes the column of a state, adding or dropping it as needed.
+     */
+    @Override
+    public synchronized void taxChanged(String state, Tax tax) {
+        Snapshot current = snapshot;
+        Integer column = current.stateColumns.get(state);
+        if (column == null && tax == null) {
+            return;
+        }
+        Tax[] taxes = replace(current.taxes, column, tax);
+        snapshot = new Snapshot(current.products, taxes, current,
+                sources(current.products.length, current.products.length, null, false),
+                sources(current.taxes.length, taxes.length, column, tax == null));
+    }
+
+    /**
+     * Quotes an area of a product in a state without allocating, for high-volume quoting.
+     * @param productType The product type.
+     * @param state The state abbreviation.
+     * @param areaHundredths The area in hundredths of a square foot.
+     * @param result Receives the material cost, labor cost, tax and total in cents, at the PricingEngine positions.
+     * @return false, leaving the result untouched, if the product type or the state is unknown.
+     */
+    public boolean quote(String productType, String state, long areaHundredths, long[] result) {
+        Snapshot current = snapshot;
+        Integer row = current.productRows.get(productType);
+        Integer column = current.stateColumns.get(state);
+        if (row == null || column == null) {
+            return false;
+        }
+        quote(current, row, column, areaHundredths, result);
+        return true;
+    }
+
+    /**
+     * Validates the product type and state of an order, and sets its rates and costs.
+     * @param order The order to price.
+     * @throws ServiceException if the product type or the state is unknown.
+     */
+    public void price(Order order) {
+        Snapshot current = snapshot;
+        Integer row = current.productRows.get(order.getProductType());
+        if (row == null) {
+            throw new ServiceException("Invalid product type!");
+        }
+        Integer column = current.stateColumns.get(order.getState());
+        if (column == null) {
+            throw new ServiceException("Invalid state provided. Tax details not found.");
+        }
+        Product product = current.products[row];
+        Tax tax = current.taxes[column];
+        order.setTaxRate(tax.getTaxRate());
+        order.setCostPerSquareFoot(product.getCostPerSquareFoot());
+        order.setLaborCostPerSquareFoot(product.getLaborCostPerSquareFoot());
+        long area = PricingEngine.toHundredths(order.getArea());
+        if (area == Long.MIN_VALUE) {
+            PricingEngine.price(order, product.getCostPerSquareFoot(), product.getLaborCostPerSquareFoot(), tax.getTaxRate());
+            return;
+        }
+        long[] result = new long[4];
+        quote(current, row, column, area, result);
+        order.setMaterialCost(BigDecimal.valueOf(result[PricingEngine.MATERIAL], 2));
+        order.setLaborCost(BigDecimal.valueOf(result[PricingEngine.LABOR], 2));
+        order.setTax(BigDecimal.valueOf(result[PricingEngine.TAX], 2));
+        order.setTotal(BigDecimal.valueOf(result[PricingEngine.TOTAL], 2));
+    }
+
+    private static void quote(Snapshot snapshot, int row, int column, long area, long[] result) {
+        long[] cells = snapshot.cells;
+        int cell = (row * snapshot.taxes.length + column) * CELL_SIZE;
+        if (cells[cell + COST] == INEXACT) {
+            Product product = snapshot.products[row];
+            PricingEngine.priceExactly(BigDecimal.valueOf(area, 2), product.getCostPerSquareFoot(),
+                    product.getLaborCostPerSquareFoot(), snapshot.taxes[column].getTaxRate(), result);
+            return;
+        }
+        try {
+            long tax = Math.multiplyExact(area, cells[cell + TAX_FACTOR]);
+            long total = Math.multiplyExact(area, cells[cell + TOTAL_FACTOR]);
+            result[PricingEngine.MATERIAL] = PricingEngine.roundHalfUp(Math.multiplyExact(area, cells[cell + COST]), 100);
+            result[PricingEngine.LABOR] = PricingEngine.roundHalfUp(Math.multiplyExact(area, cells[cell + LABOR]), 100);
+            result[PricingEngine.TAX] = PricingEngine.roundHalfUp(tax, 1_000_000);
+            result[PricingEngine.TOTAL] = PricingEngine.roundHalfUp(total, 1_000_000);
+        } catch (ArithmeticException e) {
+            PricingEngine.price(area, cells[cell + COST], cells[cell + LABOR], cells[cell + RATE], result);
+        }
+    }
+
+    /**
+     * Fills one cell from a product and a tax.
+     */
+    private static void fill(long[] cells, int cell, Product product, Tax tax) {
+        long cost = toHundredths(product.getCostPerSquareFoot());
+        long labor = toHundredths(product.getLaborCostPerSquareFoot());
+        long rate = toHundredths(tax.getTaxRate());
+        cells[cell + COST] = INEXACT;
+        if (cost == Long.MIN_VALUE || labor == Long.MIN_VALUE || rate == Long.MIN_VALUE) {
+            return;
+        }
+        try {
+            long perFoot = Math.addExact(cost, labor);
+            cells[cell + TAX_FACTOR] = Math.multiplyExact(perFoot, rate);
+            cells[cell + TOTAL_FACTOR] = Math.multiplyExact(perFoot, Math.addExact(10_000L, rate));
+            cells[cell + LABOR] = labor;
+            cells[cell + RATE] = rate;
+            cells[cell + COST] = cost;
+        } catch (ArithmeticException e) {
+            // Left inexact
+        }
+    }
+
+    private static long toHundredths(BigDecimal value) {
+        return value == null ? Long.MIN_VALUE : PricingEngine.toHundredths(value);
+    }
+
+    /**
+     * Returns a copy of the entries with the entry at the index replaced, appended if the index is null,
+     * or removed if the entry is null.
+     */
+    private static <T> T[] replace(T[] entries, Integer index, T entry) {
+        if (entry == null) {
+            T[] result = Arrays.copyOf(entries, entries.length - 1);
+            System.arraycopy(entries, index + 1, result, index, entries.length - index - 1);
+            return result;
+        }
+        T[] result = Arrays.copyOf(entries, index == null ? entries.length + 1 : entries.length);
+        result[index == null ? entries.length : index] = entry;
+        return result;
+    }
+
+    /**
+     * Maps each position of a row or column array after replace() to the position it is copied from,
+     * or to -1 where the cells must be recomputed.
+     * @param index The position that was replaced or removed, or null if an entry was appended or nothing changed.
+     */
+    private static int[] sources(int oldLength, int newLength, Integer index, boolean removed) {
+        int[] sources = new int[newLength];
+        for (int i = 0; i < newLength; i++) {
+            sources[i] = removed ? (i < index ? i : i + 1) : (i < oldLength ? i : -1);
+        }
+        if (!removed && index != null) {
+            sources[index] = -1;
+        }
+        return sources;
+    }
+
+    /**
+     * One immutable version of the matrix: rows are products, columns are states.
+     */
+    private static final class Snapshot {
+        private final Product[] products;
+        private final Tax[] taxes;
+        private final Map<String, Integer> productRows = new HashMap<>();
+        private final Map<String, Integer> stateColumns = new HashMap<>();
+        private final long[] cells;
+
+        /**
+         * Builds a version, copying the cells whose row and column both have a source in the previous version.
+         */
+        private Snapshot(Product[] products, Tax[] taxes, Snapshot previous, int[] rowSources, int[] columnSources) {
+            this.products = products;
+            this.taxes = taxes;
+            for (int row = 0; row < products.length; row++) {
+                productRows.put(products[row].getProductType(), row);
+            }
+            for (int column = 0; column < taxes.length; column++) {
+                stateColumns.put(taxes[column].getStateAbbreviation(), column);
+            }
+            this.cells = new long[products.length * taxes.length * CELL_SIZE];
+            for (int row = 0; row < products.length; row++) {
+                for (int column = 0; column < taxes.length; column++) {
+                    int cell = (row * taxes.length + column) * CELL_SIZE;
+                    if (previous != null && rowSources[row] >= 0 && columnSources[column] >= 0) {
+                        System.arraycopy(previous.cells, (rowSources[row] * previous.taxes.length + columnSources[column]) * CELL_SIZE,
+                                cells, cell, CELL_SIZE);
+                    } else {
+                        fill(cells, cell, products[row], taxes[column]);
+                    }
+                }
+            }
+        }
+    }
+}
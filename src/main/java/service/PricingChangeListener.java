@@ -0,0 +1,27 @@
+package service;
+
+import modelDTO.Product;
+import modelDTO.Tax;
+
+/**
+ * The PricingChangeListener interface is notified by ProductServiceImpl and TaxServiceImpl after a
+ * product or tax has been added, edited or removed, so that caches of prices can be kept up to date.
+ * The change is already saved when a listener is called, so an exception thrown by a listener makes the
+ * edit look failed; listeners should report their own failures instead.
+ */
+public interface PricingChangeListener {
+
+    /**
+     * Called after a product has been added, edited or removed.
+     * @param productType The type of the product that changed.
+     * @param product The product as it is now, or null if it was removed.
+     */
+    void productChanged(String productType, Product product);
+
+    /**
+     * Called after a tax has been added, edited or removed.
+     * @param state The abbreviation of the state whose tax changed.
+     * @param tax The tax as it is now, or null if it was removed.
+     */
+    void taxChanged(String state, Tax tax);
+}
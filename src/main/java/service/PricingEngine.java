@@ -0,0 +1,206 @@
+package service;
+
+import modelDTO.Order;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * The PricingEngine class prices orders in scaled long integers instead of BigDecimal.
+ *
+ * Areas are held in hundredths of a square foot, costs per square foot and money in cents, and tax
+ * rates in basis points (hundredths of a percent, so 4.45% is 445). Each result is computed exactly
+ * and rounded once, half up, to whole cents, so it equals the BigDecimal result of Order rounded to
+ * two decimals. In particular the tax and the total are rounded from the exact cost, not from the
+ * rounded material and labor costs. Inputs with more than two decimals, and intermediate products
+ * beyond the range of a long, are priced through BigDecimal with the same rule.
+ *
+ * The array-based methods allocate nothing, so bulk repricing can run over primitive columns.
+ */
+public class PricingEngine {
+
+    // Positions of the results in the array filled by price()
+    public static final int MATERIAL = 0;
+    public static final int LABOR = 1;
+    public static final int TAX = 2;
+    public static final int TOTAL = 3;
+
+    // Area hundredths times cents is in units of 1/100 cent; times basis points it is in units of 1/1,000,000 cent
+    private static final long COST_DENOMINATOR = 100;
+    private static final long TAX_DENOMINATOR = 1_000_000;
+
+    /**
+     * Prices one order.
+     * @param areaHundredths The area in hundredths of a square foot.
+     * @param costCents The material cost per square foot in cents.
+     * @param laborCents The labor cost per square foot in cents.
+     * @param taxBasisPoints The tax rate in basis points.
+     * @param result Receives the material cost, labor cost, tax and total in cents, at MATERIAL, LABOR, TAX and TOTAL.
+     */
+    public static void price(long areaHundredths, long costCents, long laborCents, long taxBasisPoints, long[] result) {
+        try {
+            long material = Math.multiplyExact(areaHundredths, costCents);
+            long labor = Math.multiplyExact(areaHundredths, laborCents);
+            long cost = Math.addExact(material, labor);
+            long tax = Math.multiplyExact(cost, taxBasisPoints);
+            result[MATERIAL] = roundHalfUp(material, COST_DENOMINATOR);
+            result[LABOR] = roundHalfUp(labor, COST_DENOMINATOR);
+            result[TAX] = roundHalfUp(tax, TAX_DENOMINATOR);
+            result[TOTAL] = roundHalfUp(Math.addExact(Math.multiplyExact(cost, 10_000L), tax), TAX_DENOMINATOR);
+        } catch (ArithmeticException e) {
+            priceExactly(BigDecimal.valueOf(areaHundredths, 2), BigDecimal.valueOf(costCents, 2),
+                    BigDecimal.valueOf(laborCents, 2), BigDecimal.valueOf(taxBasisPoints, 2), result);
+        }
+    }
+
+    /**
+     * Prices many orders held in columns; row i of every array belongs to the same order.
+     * Rows that overflow the fixed-point range are priced through BigDecimal.
+     * @param count The number of rows to price.
+     */
+    public static void priceAll(long[] areaHundredths, long[] costCents, long[] laborCents, long[] taxBasisPoints,
+                                long[] materialCost, long[] laborCost, long[] tax, long[] total, int count) {
+        priceAll(areaHundredths, costCents, laborCents, taxBasisPoints, materialCost, laborCost, tax, total, 0, count);
+    }
+
+    /**
+     * Prices the rows from (inclusive) to (exclusive) of the columns, like priceAll.
+     */
+    static void priceAll(long[] areaHundredths, long[] costCents, long[] laborCents, long[] taxBasisPoints,
+                         long[] materialCost, long[] laborCost, long[] tax, long[] total, int from, int to) {
+        long[] overflow = null;
+        for (int i = from; i < to; i++) {
+            try {
+                long material = Math.multiplyExact(areaHundredths[i], costCents[i]);
+                long labor = Math.multiplyExact(areaHundredths[i], laborCents[i]);
+                long cost = Math.addExact(material, labor);
+                long rowTax = Math.multiplyExact(cost, taxBasisPoints[i]);
+                total[i] = roundHalfUp(Math.addExact(Math.multiplyExact(cost, 10_000L), rowTax), TAX_DENOMINATOR);
+                materialCost[i] = roundHalfUp(material, COST_DENOMINATOR);
+                laborCost[i] = roundHalfUp(labor, COST_DENOMINATOR);
+                tax[i] = roundHalfUp(rowTax, TAX_DENOMINATOR);
+            } catch (ArithmeticException e) {
+                if (overflow == null) {
+                    overflow = new long[4];
+                }
+                price(areaHundredths[i], costCents[i], laborCents[i], taxBasisPoints[i], overflow);
+                materialCost[i] = overflow[MATERIAL];
+                laborCost[i] = overflow[LABOR];
+                tax[i] = overflow[TAX];
+                total[i] = overflow[TOTAL];
+            }
+        }
+    }
+
+    /**
+     * Returns the fastest column pricing kernel this JVM supports: the Vector API kernel when it was
+     * built (Maven profile vector) and the jdk.incubator.vector module was added at startup
+     * (--add-modules jdk.incubator.vector), and the scalar kernel otherwise. Setting the system property flooring.pricing.kernel to "scalar"
+     * forces the scalar kernel.
+     * @return The kernel; both give the same results as priceAll.
+     */
+    public static PricingKernel bulkKernel() {
+        return KernelHolder.KERNEL;
+    }
+
+    /**
+     * Sets the material cost, labor cost, tax and total of an order from its area and the given rates,
+     * rounded half up to cents.
+     * @param order The order to price.
+     * @param costPerSquareFoot The material cost per square foot.
+     * @param laborCostPerSquareFoot The labor cost per square foot.
+     * @param taxRate The tax rate in percent.
+     */
+    public static void price(Order order, BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot, BigDecimal taxRate) {
+        long[] result = new long[4];
+        long area = toHundredths(order.getArea());
+        long cost = toHundredths(costPerSquareFoot);
+        long labor = toHundredths(laborCostPerSquareFoot);
+        long rate = toHundredths(taxRate);
+        if (area == Long.MIN_VALUE || cost == Long.MIN_VALUE || labor == Long.MIN_VALUE || rate == Long.MIN_VALUE) {
+            priceExactly(order.getArea(), costPerSquareFoot, laborCostPerSquareFoot, taxRate, result);
+        } else {
+            price(area, cost, labor, rate, result);
+        }
+        order.setMaterialCost(BigDecimal.valueOf(result[MATERIAL], 2));
+        order.setLaborCost(BigDecimal.valueOf(result[LABOR], 2));
+        order.setTax(BigDecimal.valueOf(result[TAX], 2));
+        order.setTotal(BigDecimal.valueOf(result[TOTAL], 2));
+    }
+
+    /**
+     * Converts a decimal with at most two decimal places to hundredths.
+     * @param value The decimal.
+     * @return The value in hundredths, or Long.MIN_VALUE if it has more decimals or does not fit.
+     */
+    public static long toHundredths(BigDecimal value) {
+        if (value.scale() > 2 || value.precision() - value.scale() > 16) {
+            BigDecimal stripped = value.stripTrailingZeros();
+            if (stripped.scale() > 2 || stripped.precision() - stripped.scale() > 16) {
+                return Long.MIN_VALUE;
+            }
+            value = stripped;
+        }
+        long unscaled = value.unscaledValue().longValue();
+        for (int scale = value.scale(); scale < 2; scale++) {
+            unscaled *= 10;
+        }
+        return unscaled;
+    }
+
+    /**
+     * Divides and rounds half up (away from zero on a tie), like RoundingMode.HALF_UP.
+     * @param numerator The value to divide.
+     * @param denominator A positive divisor.
+     * @return The rounded quotient.
+     */
+    static long roundHalfUp(long numerator, long denominator) {
+        long quotient = numerator / denominator;
+        long remainder = Math.abs(numerator % denominator);
+        if (remainder * 2 >= denominator) {
+            quotient += numerator < 0 ? -1 : 1;
+        }
+        return quotient;
+    }
+
+    /**
+     * Prices through BigDecimal when the fixed-point inputs or products do not fit, with the same rounding.
+     */
+    static void priceExactly(BigDecimal area, BigDecimal costPerSquareFoot, BigDecimal laborCostPerSquareFoot,
+                                     BigDecimal taxRate, long[] result) {
+        BigDecimal material = area.multiply(costPerSquareFoot);
+        BigDecimal labor = area.multiply(laborCostPerSquareFoot);
+        BigDecimal cost = material.add(labor);
+        BigDecimal tax = cost.multiply(taxRate.movePointLeft(2));
+        result[MATERIAL] = toCents(material);
+        result[LABOR] = toCents(labor);
+        result[TAX] = toCents(tax);
+        result[TOTAL] = toCents(cost.add(tax));
+    }
+
+    private static long toCents(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * Chooses the bulk kernel once, on first use.
+     */
+    private static class KernelHolder {
+        private static final PricingKernel KERNEL = chooseKernel();
+
+        private static PricingKernel chooseKernel() {
+            if (!"scalar".equalsIgnoreCase(System.getProperty("flooring.pricing.kernel"))
+                    && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+                try {
+                    // Loaded by name so the class is never linked without the module
+                    return (PricingKernel) Class.forName("service.VectorPricingKernel").getDeclaredConstructor().newInstance();
+                } catch (ClassNotFoundException e) {
+                    // Built without the vector profile
+                } catch (ReflectiveOperationException | LinkageError e) {
+                    System.err.println("Vector pricing kernel unavailable, using the scalar kernel: " + e);
+                }
+            }
+            return new ScalarPricingKernel();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package service;
+
+/**
+ * The PricingKernel interface prices many orders held in primitive columns, with the units and
+ * rounding of PricingEngine: areas in hundredths of a square foot, costs in cents and tax rates in
+ * basis points. Implementations must give exactly the results of PricingEngine.priceAll.
+ */
+public interface PricingKernel {
+
+    /**
+     * Prices the first count rows of the columns; row i of every array belongs to the same order.
+     * @param areaHundredths The areas in hundredths of a square foot.
+     * @param costCents The material costs per square foot in cents.
+     * @param laborCents The labor costs per square foot in cents.
+     * @param taxBasisPoints The tax rates in basis points.
+     * @param materialCost Receives the material costs in cents.
+     * @param laborCost Receives the labor costs in cents.
+     * @param tax Receives the taxes in cents.
+     * @param total Receives the totals in cents.
+     * @param count The number of rows to price.
+     */
+    void priceAll(long[] areaHundredths, long[] costCents, long[] laborCents, long[] taxBasisPoints,
+                  long[] materialCost, long[] laborCost, long[] tax, long[] total, int count);
+
+    /**
+     * @return A short name for logs and benchmarks, such as "scalar".
+     */
+    String getName();
+}
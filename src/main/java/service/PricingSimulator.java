@@ -0,0 +1,473 @@
+package service;
+
+import modelDTO.Order;
+import modelDTO.Product;
+import modelDTO.Tax;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * The PricingSimulator class estimates the revenue impact of proposed product prices and tax rates
+ * by re-pricing the whole order history in memory, without saving anything.
+ *
+ * The orders are read once into primitive columns (product, state and month numbers and the area in
+ * hundredths of a square foot), together with their prices under the current products and taxes.
+ * Each scenario then only builds a small product-by-state table of fixed-point rates and scans the
+ * columns in parallel chunks through a PricingKernel, so analysts can try scenario after scenario
+ * without reloading orders and the scan allocates nothing per order. Prices are rounded like PricingEngine.
+ *
+ * The simulator is a snapshot: orders and catalog changes made after it was created are not seen.
+ * Orders whose product type or state is not in the catalog, or whose area has more than two
+ * decimals, are left out and counted as skipped.
+ */
+public class PricingSimulator {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    // Positions of the sums kept for each group
+    private static final int ORDERS = 0;
+    private static final int BASELINE_TAX = 1;
+    private static final int BASELINE_TOTAL = 2;
+    private static final int SIMULATED_TAX = 3;
+    private static final int SIMULATED_TOTAL = 4;
+    private static final int SUMS = 5;
+
+    private final PricingKernel kernel;
+    private final int parallelism;
+    private final Product[] products;
+    private final Tax[] taxes;
+    private final String[] months;
+    private final Map<String, Integer> productIndexes = new HashMap<>();
+    private final Map<String, Integer> stateIndexes = new HashMap<>();
+
+    // One entry per priced order
+    private final int count;
+    private final int[] productColumn;
+    private final int[] stateColumn;
+    private final int[] monthColumn;
+    private final long[] areaColumn;
+    private final long[] baselineTaxColumn;
+    private final long[] baselineTotalColumn;
+    private final int skipped;
+
+    /**
+     * Reads the orders into columns and prices them with the current products and taxes.
+     * @param orders The order history.
+     * @param products The current products.
+     * @param taxes The current taxes.
+     * @param kernel Prices the orders of a chunk.
+     * @param parallelism The number of threads scanning at the same time.
+     */
+    public PricingSimulator(Collection<Order> orders, Collection<Product> products, Collection<Tax> taxes,
+                            PricingKernel kernel, int parallelism) {
+        this.kernel = kernel;
+        this.parallelism = Math.max(1, parallelism);
+        Map<String, Product> productsByType = new LinkedHashMap<>();
+        for (Product product : products) {
+            productsByType.put(product.getProductType(), product);
+        }
+        Map<String, Tax> taxesByState = new LinkedHashMap<>();
+        for (Tax tax : taxes) {
+            taxesByState.put(tax.getStateAbbreviation(), tax);
+        }
+        this.products = productsByType.values().toArray(new Product[0]);
+        this.taxes = taxesByState.values().toArray(new Tax[0]);
+        for (int i = 0; i < this.products.length; i++) {
+            productIndexes.put(this.products[i].getProductType(), i);
+        }
+        for (int i = 0; i < this.taxes.length; i++) {
+            stateIndexes.put(this.taxes[i].getStateAbbreviation(), i);
+        }
+
+        productColumn = new int[orders.size()];
+        stateColumn = new int[orders.size()];
+        monthColumn = new int[orders.size()];
+        areaColumn = new long[orders.size()];
+        Map<Long, Integer> monthByDate = new HashMap<>();
+        Map<String, Integer> monthIndexes = new TreeMap<>();
+        List<String> monthNames = new ArrayList<>();
+        ZoneId zone = ZoneId.systemDefault();
+        int row = 0;
+        for (Order order : orders) {
+            Integer product = productIndexes.get(order.getProductType());
+            Integer state = stateIndexes.get(order.getState());
+            long area = order.getArea() == null ? Long.MIN_VALUE : PricingEngine.toHundredths(order.getArea());
+            if (product == null || state == null || area == Long.MIN_VALUE || order.getOrderDate() == null) {
+                continue;
+            }
+            productColumn[row] = product;
+            stateColumn[row] = state;
+            areaColumn[row] = area;
+            monthColumn[row] = monthByDate.computeIfAbsent(order.getOrderDate().getTime(), millis -> {
+                LocalDate date = order.getOrderDate().toInstant().atZone(zone).toLocalDate();
+                return monthIndexes.computeIfAbsent(date.toString().substring(0, 7), month -> {
+                    monthNames.add(month);
+                    return monthNames.size() - 1;
+                });
+            });
+            row++;
+        }
+        this.count = row;
+        this.skipped = orders.size() - row;
+        this.months = monthNames.toArray(new String[0]);
+
+        baselineTaxColumn = new long[count];
+        baselineTotalColumn = new long[count];
+        priceRows(new Rates(this.products, this.taxes), 0, count, new Columns(count), baselineTaxColumn, baselineTotalColumn);
+    }
+
+    /**
+     * Re-prices every order with some products and taxes replaced.
+     * @param productOverrides Proposed products, replacing the current product of the same type;
+     *                         products of types that are not in the catalog are ignored.
+     * @param taxOverrides Proposed taxes, replacing the current tax of the same state;
+     *                     taxes of states that are not in the catalog are ignored.
+     * @return The revenue and tax under the current and the proposed prices, by state, product type and month.
+     * @throws ServiceException if the scan fails.
+     */
+    public SimulationResult simulate(Collection<Product> productOverrides, Collection<Tax> taxOverrides) {
+        long start = System.nanoTime();
+        Product[] proposedProducts = products.clone();
+        for (Product product : productOverrides) {
+            Integer index = productIndexes.get(product.getProductType());
+            if (index != null) {
+                proposedProducts[index] = product;
+            }
+        }
+        Tax[] proposedTaxes = taxes.clone();
+        for (Tax tax : taxOverrides) {
+            Integer index = stateIndexes.get(tax.getStateAbbreviation());
+            if (index != null) {
+                proposedTaxes[index] = tax;
+            }
+        }
+        Rates proposed = new Rates(proposedProducts, proposedTaxes);
+
+        List<Callable<long[][]>> tasks = new ArrayList<>();
+        for (int first = 0; first < count; first += CHUNK_SIZE) {
+            int from = first;
+            int to = Math.min(first + CHUNK_SIZE, count);
+            tasks.add(() -> scan(proposed, from, to));
+        }
+        long[][] sums = {new long[products.length * SUMS], new long[taxes.length * SUMS], new long[months.length * SUMS]};
+        try {
+            List<long[][]> partials = new ArrayList<>(tasks.size());
+            if (parallelism == 1 || tasks.size() <= 1) {
+                for (Callable<long[][]> task : tasks) {
+                    partials.add(task.call());
+                }
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(Math.min(parallelism, tasks.size()));
+                try {
+                    for (Future<long[][]> future : pool.invokeAll(tasks)) {
+                        partials.add(future.get());
+                    }
+                } finally {
+                    pool.shutdown();
+                }
+            }
+            for (long[][] partial : partials) {
+                for (int dimension = 0; dimension < sums.length; dimension++) {
+                    for (int i = 0; i < sums[dimension].length; i++) {
+                        sums[dimension][i] += partial[dimension][i];
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException("Interrupted while simulating prices.", e);
+        } catch (ExecutionException e) {
+            throw new ServiceException("Error simulating prices.", e.getCause());
+        } catch (Exception e) {
+            throw new ServiceException("Error simulating prices.", e);
+        }
+
+        String[] productNames = new String[products.length];
+        for (int i = 0; i < products.length; i++) {
+            productNames[i] = products[i].getProductType();
+        }
+        String[] stateNames = new String[taxes.length];
+        for (int i = 0; i < taxes.length; i++) {
+            stateNames[i] = taxes[i].getStateAbbreviation();
+        }
+        return new SimulationResult(group(productNames, sums[0]), group(stateNames, sums[1]), group(months, sums[2]),
+                count, skipped, System.nanoTime() - start);
+    }
+
+    /**
+     * Prices rows [from, to) with the proposed rates and sums them by product, state and month.
+     */
+    private long[][] scan(Rates proposed, int from, int to) {
+        long[] byProduct = new long[products.length * SUMS];
+        long[] byState = new long[taxes.length * SUMS];
+        long[] byMonth = new long[months.length * SUMS];
+        long[] tax = new long[to - from];
+        long[] total = new long[to - from];
+        priceRows(proposed, from, to, new Columns(to - from), tax, total);
+        for (int i = from; i < to; i++) {
+            add(byProduct, productColumn[i] * SUMS, i, tax[i - from], total[i - from]);
+            add(byState, stateColumn[i] * SUMS, i, tax[i - from], total[i - from]);
+            add(byMonth, monthColumn[i] * SUMS, i, tax[i - from], total[i - from]);
+        }
+        return new long[][] {byProduct, byState, byMonth};
+    }
+
+    /**
+     * Prices rows [from, to) through the kernel, writing their taxes and totals from position 0 of the outputs.
+     */
+    private void priceRows(Rates rates, int from, int to, Columns columns, long[] tax, long[] total) {
+        int states = taxes.length;
+        for (int i = from; i < to; i++) {
+            int cell = productColumn[i] * states + stateColumn[i];
+            columns.area[i - from] = areaColumn[i];
+            columns.cost[i - from] = rates.cost[cell];
+            columns.labor[i - from] = rates.labor[cell];
+            columns.basisPoints[i - from] = rates.basisPoints[cell];
+        }
+        kernel.priceAll(columns.area, columns.cost, columns.labor, columns.basisPoints,
+                columns.materialCost, columns.laborCost, tax, total, to - from);
+        long[] result = null;
+        for (int i = from; i < to; i++) {
+            int cell = productColumn[i] * states + stateColumn[i];
+            if (!rates.exact[cell]) {
+                if (result == null) {
+                    result = new long[4];
+                }
+                rates.priceExactly(cell, areaColumn[i], result);
+                tax[i - from] = result[PricingEngine.TAX];
+                total[i - from] = result[PricingEngine.TOTAL];
+            }
+        }
+    }
+
+    private void add(long[] sums, int group, int row, long tax, long total) {
+        sums[group + ORDERS]++;
+        sums[group + BASELINE_TAX] += baselineTaxColumn[row];
+        sums[group + BASELINE_TOTAL] += baselineTotalColumn[row];
+        sums[group + SIMULATED_TAX] += tax;
+        sums[group + SIMULATED_TOTAL] += total;
+    }
+
+    private static Map<String, Delta> group(String[] names, long[] sums) {
+        Map<String, Delta> groups = new TreeMap<>();
+        for (int i = 0; i < names.length; i++) {
+            int group = i * SUMS;
+            if (sums[group + ORDERS] > 0) {
+                groups.put(names[i], new Delta(sums[group + ORDERS], sums[group + BASELINE_TAX],
+                        sums[group + BASELINE_TOTAL], sums[group + SIMULATED_TAX], sums[group + SIMULATED_TOTAL]));
+            }
+        }
+        return groups;
+    }
+
+    /**
+     * The kernel inputs and the outputs that are not summed, for one chunk of rows.
+     */
+    private static class Columns {
+        private final long[] area;
+        private final long[] cost;
+        private final long[] labor;
+        private final long[] basisPoints;
+        private final long[] materialCost;
+        private final long[] laborCost;
+
+        private Columns(int rows) {
+            area = new long[rows];
+            cost = new long[rows];
+            labor = new long[rows];
+            basisPoints = new long[rows];
+            materialCost = new long[rows];
+            laborCost = new long[rows];
+        }
+    }
+
+    /**
+     * The fixed-point rates of every product in every state for one scenario, row per product.
+     * Cells whose rates have more than two decimals are not exact and are priced through BigDecimal.
+     */
+    private static class Rates {
+        private final Product[] products;
+        private final Tax[] taxes;
+        private final boolean[] exact;
+        private final long[] cost;
+        private final long[] labor;
+        private final long[] basisPoints;
+
+        private Rates(Product[] products, Tax[] taxes) {
+            this.products = products;
+            this.taxes = taxes;
+            int cells = products.length * taxes.length;
+            exact = new boolean[cells];
+            cost = new long[cells];
+            labor = new long[cells];
+            basisPoints = new long[cells];
+            for (int product = 0; product < products.length; product++) {
+                long productCost = PricingEngine.toHundredths(products[product].getCostPerSquareFoot());
+                long productLabor = PricingEngine.toHundredths(products[product].getLaborCostPerSquareFoot());
+                for (int state = 0; state < taxes.length; state++) {
+                    int cell = product * taxes.length + state;
+                    long rate = PricingEngine.toHundredths(taxes[state].getTaxRate());
+                    if (productCost != Long.MIN_VALUE && productLabor != Long.MIN_VALUE && rate != Long.MIN_VALUE) {
+                        cost[cell] = productCost;
+                        labor[cell] = productLabor;
+                        basisPoints[cell] = rate;
+                        exact[cell] = true;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Prices one order of an inexact cell, setting the amounts in cents at the PricingEngine positions.
+         */
+        private void priceExactly(int cell, long area, long[] result) {
+            Product product = products[cell / taxes.length];
+            PricingEngine.priceExactly(BigDecimal.valueOf(area, 2), product.getCostPerSquareFoot(),
+                    product.getLaborCostPerSquareFoot(), taxes[cell % taxes.length].getTaxRate(), result);
+        }
+    }
+
+    /**
+     * The tax and revenue of a group of orders under the current and the proposed prices.
+     */
+    public static class Delta {
+        private final long orders;
+        private final long baselineTaxCents;
+        private final long baselineTotalCents;
+        private final long simulatedTaxCents;
+        private final long simulatedTotalCents;
+
+        public Delta(long orders, long baselineTaxCents, long baselineTotalCents, long simulatedTaxCents, long simulatedTotalCents) {
+            this.orders = orders;
+            this.baselineTaxCents = baselineTaxCents;
+            this.baselineTotalCents = baselineTotalCents;
+            this.simulatedTaxCents = simulatedTaxCents;
+            this.simulatedTotalCents = simulatedTotalCents;
+        }
+
+        public long getOrders() {
+            return orders;
+        }
+
+        /**
+         * @return The summed totals with the current products and taxes.
+         */
+        public BigDecimal getBaselineTotal() {
+            return BigDecimal.valueOf(baselineTotalCents, 2);
+        }
+
+        /**
+         * @return The summed totals with the proposed products and taxes.
+         */
+        public BigDecimal getSimulatedTotal() {
+            return BigDecimal.valueOf(simulatedTotalCents, 2);
+        }
+
+        public BigDecimal getTotalDifference() {
+            return BigDecimal.valueOf(simulatedTotalCents - baselineTotalCents, 2);
+        }
+
+        public BigDecimal getBaselineTax() {
+            return BigDecimal.valueOf(baselineTaxCents, 2);
+        }
+
+        public BigDecimal getSimulatedTax() {
+            return BigDecimal.valueOf(simulatedTaxCents, 2);
+        }
+
+        public BigDecimal getTaxDifference() {
+            return BigDecimal.valueOf(simulatedTaxCents - baselineTaxCents, 2);
+        }
+    }
+
+    /**
+     * The outcome of one scenario.
+     */
+    public static class SimulationResult {
+        private final Map<String, Delta> byProductType;
+        private final Map<String, Delta> byState;
+        private final Map<String, Delta> byMonth;
+        private final long priced;
+        private final long skipped;
+        private final long elapsedNanos;
+
+        public SimulationResult(Map<String, Delta> byProductType, Map<String, Delta> byState, Map<String, Delta> byMonth,
+                                long priced, long skipped, long elapsedNanos) {
+            this.byProductType = byProductType;
+            this.byState = byState;
+            this.byMonth = byMonth;
+            this.priced = priced;
+            this.skipped = skipped;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return The deltas by product type, sorted by product type.
+         */
+        public Map<String, Delta> getByProductType() {
+            return byProductType;
+        }
+
+        /**
+         * @return The deltas by state abbreviation, sorted by state.
+         */
+        public Map<String, Delta> getByState() {
+            return byState;
+        }
+
+        /**
+         * @return The deltas by month of the order date, as yyyy-MM, sorted by month.
+         */
+        public Map<String, Delta> getByMonth() {
+            return byMonth;
+        }
+
+        /**
+         * @return The deltas over all priced orders.
+         */
+        public Delta getOverall() {
+            long[] sums = new long[SUMS];
+            for (Delta delta : byState.values()) {
+                sums[ORDERS] += delta.orders;
+                sums[BASELINE_TAX] += delta.baselineTaxCents;
+                sums[BASELINE_TOTAL] += delta.baselineTotalCents;
+                sums[SIMULATED_TAX] += delta.simulatedTaxCents;
+                sums[SIMULATED_TOTAL] += delta.simulatedTotalCents;
+            }
+            return new Delta(sums[ORDERS], sums[BASELINE_TAX], sums[BASELINE_TOTAL], sums[SIMULATED_TAX], sums[SIMULATED_TOTAL]);
+        }
+
+        public long getPriced() {
+            return priced;
+        }
+
+        /**
+         * @return The number of orders left out because their product, state or area could not be priced.
+         */
+        public long getSkipped() {
+            return skipped;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return A one-line summary for the console.
+         */
+        public String summary() {
+            Delta overall = getOverall();
+            return String.format("Simulated %d orders (%d skipped): revenue %s -> %s (%s), tax %s, in %d ms",
+                    priced, skipped, overall.getBaselineTotal().toPlainString(), overall.getSimulatedTotal().toPlainString(),
+                    overall.getTotalDifference().toPlainString(), overall.getTaxDifference().toPlainString(),
+                    elapsedNanos / 1_000_000);
+        }
+    }
+}
@@ -4,6 +4,7 @@ import dao.ProductDao;
 import modelDTO.Product;
 
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * An implementation of the ProductService interface.
@@ -15,6 +16,9 @@ public class ProductServiceImpl implements ProductService {
     // Instance of ProductDao to interact with the data store.
     private ProductDao productDao;
 
+    // Notified after every successful change to a product
+    private final List<PricingChangeListener> pricingChangeListeners = new CopyOnWriteArrayList<>();
+
     /**
      * Constructor for ProductServiceImpl.
      * @param productDao The ProductDao instance for data operations.
@@ -23,6 +27,20 @@ public class ProductServiceImpl implements ProductService {
         this.productDao = productDao;
     }
 
+    /**
+     * Registers a listener to be notified after a product is added, edited or removed.
+     * @param listener The listener, such as a PriceMatrix.
+     */
+    public void addPricingChangeListener(PricingChangeListener listener) {
+        pricingChangeListeners.add(listener);
+    }
+
+    private void firePricingChange(String productType, Product product) {
+        for (PricingChangeListener listener : pricingChangeListeners) {
+            listener.productChanged(productType, product);
+        }
+    }
+
     /**
      * Fetches all available products from the data store.
      * @return List of all products.
@@ -62,6 +80,7 @@ public class ProductServiceImpl implements ProductService {
                 } catch (RuntimeException e) {
                     throw new ServiceException("Error adding product.", e);
                 }
+                firePricingChange(product.getProductType(), product);
             } else {
                 throw new ServiceException("Invalid product data provided.");
             }
@@ -75,11 +94,15 @@ public class ProductServiceImpl implements ProductService {
     @Override
     public void editProduct(Product product) {
         if (validateProductData(product)) {
+            boolean updated;
             try {
-                productDao.updateProduct(product);
+                updated = productDao.updateProduct(product);
             } catch (RuntimeException e) {
                 throw new ServiceException("Error editing product.", e);
             }
+            if (updated) {
+                firePricingChange(product.getProductType(), product);
+            }
         } else {
             throw new ServiceException("Invalid product data provided.");
         }
@@ -96,6 +119,7 @@ public class ProductServiceImpl implements ProductService {
         } catch (RuntimeException e) {
             throw new ServiceException("Error removing product.", e);
         }
+        firePricingChange(productType, null);
     }
 
     /**
@@ -0,0 +1,19 @@
+package service;
+
+/**
+ * The ScalarPricingKernel class prices columns one row at a time through PricingEngine.priceAll.
+ * It runs on every JVM and is the fallback when the Vector API is not available.
+ */
+public class ScalarPricingKernel implements PricingKernel {
+
+    @Override
+    public void priceAll(long[] areaHundredths, long[] costCents, long[] laborCents, long[] taxBasisPoints,
+                         long[] materialCost, long[] laborCost, long[] tax, long[] total, int count) {
+        PricingEngine.priceAll(areaHundredths, costCents, laborCents, taxBasisPoints, materialCost, laborCost, tax, total, count);
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -7,6 +7,7 @@ import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 
 /**
@@ -18,6 +19,8 @@ public class TaxServiceImpl implements TaxService {
     private TaxDao taxDao;
     // A mapping from state names to their abbreviations for convenience
     private Map<String, String> stateToAbbreviationMap;
+    // Notified after every successful change to a tax
+    private final List<PricingChangeListener> pricingChangeListeners = new CopyOnWriteArrayList<>();
     /**
      * Constructor for the TaxServiceImpl.
      * @param taxDao Data Access Object (DAO) for tax operations.
@@ -26,6 +29,20 @@ public class TaxServiceImpl implements TaxService {
         this.taxDao = taxDao;
         initializeStateMapping(); // Initialize the map in the constructor
     }
+
+    /**
+     * Registers a listener to be notified after a tax is added, edited or removed.
+     * @param listener The listener, such as a PriceMatrix.
+     */
+    public void addPricingChangeListener(PricingChangeListener listener) {
+        pricingChangeListeners.add(listener);
+    }
+
+    private void firePricingChange(String state, Tax tax) {
+        for (PricingChangeListener listener : pricingChangeListeners) {
+            listener.taxChanged(state, tax);
+        }
+    }
     /**
      * Initializes the state to abbreviation mapping.
      */
@@ -117,6 +134,7 @@ public class TaxServiceImpl implements TaxService {
             // Validating the tax data before adding
             if (validateTaxData(tax)) {
                 taxDao.addTax(tax);
+                firePricingChange(tax.getStateAbbreviation(), tax);
                 return true; // Returning true after successful addition
             } else {
                 throw new ServiceException("Invalid tax data provided.");
@@ -137,7 +155,9 @@ public class TaxServiceImpl implements TaxService {
     public void editTax(Tax tax) {
         try {
             if (validateTaxData(tax)) {
-                taxDao.updateTax(tax);
+                if (taxDao.updateTax(tax)) {
+                    firePricingChange(tax.getStateAbbreviation(), tax);
+                }
             } else {
                 throw new ServiceException("Invalid tax data provided.");
             }
@@ -156,6 +176,7 @@ public class TaxServiceImpl implements TaxService {
     public void removeTax(String stateAbbreviation) {
         try {
             taxDao.removeTaxByState(stateAbbreviation);
+            firePricingChange(stateAbbreviation, null);
         } catch (RuntimeException e) {
             throw new ServiceException(e.getMessage(), e);
         }
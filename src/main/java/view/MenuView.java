@@ -28,7 +28,8 @@ public class MenuView {
         System.out.println("* 3. Edit an Order");
         System.out.println("* 4. Remove an Order");
         System.out.println("* 5. Export All Data");
-        System.out.println("* 6. Quit");
+        System.out.println("* 6. Import Orders");
+        System.out.println("* 7. Quit");
         System.out.println("* * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * * *");
     }
 
@@ -0,0 +1,96 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * This class provides unit tests for the AtomicFileWriter.
+ */
+public class AtomicFileWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testKeepsPreviousGenerationAndVerifies() throws Exception {
+        Path target = tempDir.resolve("Products.txt");
+        AtomicFileWriter.write(target, "first\n");
+        AtomicFileWriter.write(target, "second\n");
+
+        assertEquals("second\n", Files.readString(target));
+        assertEquals("first\n", Files.readString(tempDir.resolve("Products.txt.prev")));
+        assertFalse(Files.exists(tempDir.resolve("Products.txt.tmp")));
+        assertTrue(AtomicFileWriter.verify(target));
+    }
+
+    @Test
+    public void testDetectsTornFileAndRestoresPrevious() throws Exception {
+        Path target = tempDir.resolve("Taxes.txt");
+        AtomicFileWriter.write(target, "TX,Texas,4.45\n");
+        AtomicFileWriter.write(target, "TX,Texas,4.45\nCA,Calif");
+        Files.write(target, "TX,Tex".getBytes(StandardCharsets.UTF_8));
+
+        assertFalse(AtomicFileWriter.verify(target));
+        AtomicFileWriter.restorePrevious(target);
+        assertEquals("TX,Texas,4.45\n", Files.readString(target));
+        assertTrue(AtomicFileWriter.verify(target));
+    }
+
+    @Test
+    public void testVerifyOrRestoreFailsWithoutPreviousGeneration() throws Exception {
+        Path target = tempDir.resolve("Products.txt");
+        AtomicFileWriter.write(target, "Tile,3.50,4.15\n");
+        AtomicFileWriter.write(target, "Tile,3.50,4.15\nWood,5.15,4.75\n");
+        Files.writeString(target, "Tile,3.");
+
+        AtomicFileWriter.verifyOrRestore(target);
+        assertEquals("Tile,3.50,4.15\n", Files.readString(target));
+        assertEquals("Tile,3.50,4.15\n", Files.readString(tempDir.resolve("Products.txt.prev")));
+
+        Files.delete(tempDir.resolve("Products.txt.prev"));
+        Files.writeString(target, "Tile,3.");
+        assertThrows(IOException.class, () -> AtomicFileWriter.verifyOrRestore(target));
+        assertEquals("Tile,3.", Files.readString(target));
+    }
+
+    @Test
+    public void testSidecarCarriesRecordedChecksumsForward() throws Exception {
+        Path target = tempDir.resolve("Taxes.txt");
+        AtomicFileWriter.write(target, "one\n");
+        AtomicFileWriter.write(target, "two\n");
+        AtomicFileWriter.write(target, "three\n");
+        AtomicFileWriter.write(target, "four\n");
+
+        List<String> checksums = Files.readAllLines(tempDir.resolve("Taxes.txt.crc"));
+        assertEquals(3, checksums.size());
+        assertTrue(checksums.get(0).endsWith(" 5"));
+        assertTrue(checksums.get(1).endsWith(" 6"));
+        assertTrue(checksums.get(2).endsWith(" 4"));
+        assertTrue(AtomicFileWriter.verify(target));
+    }
+
+    @Test
+    public void testRestoresMissingFileAndAcceptsFilesWithoutChecksum() throws Exception {
+        Path target = tempDir.resolve("Orders_06012030.txt");
+        AtomicFileWriter.write(target, "one\n");
+        AtomicFileWriter.write(target, "two\n");
+        Files.delete(target);
+
+        assertTrue(AtomicFileWriter.verify(target));
+        assertEquals("one\n", Files.readString(target));
+
+        Path legacy = tempDir.resolve("legacy.txt");
+        Files.writeString(legacy, "no sidecar");
+        assertTrue(AtomicFileWriter.verify(legacy));
+        assertTrue(AtomicFileWriter.delete(target));
+        assertFalse(Files.exists(tempDir.resolve("Orders_06012030.txt.crc")));
+    }
+}
@@ -0,0 +1,95 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import modelDTO.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * This class provides unit tests for the ColumnarOrderArchive.
+ */
+public class ColumnarOrderArchiveTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testArchivesClosedDaysAndReadsOnlyRequestedColumns() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        String ordersFolder = tempDir.resolve("orders").toString();
+        OrderDaoImpl dao = new OrderDaoImpl(ordersFolder);
+        dao.addOrder(sampleOrder(format.parse("06-01-2030"), "TX", "1596.25"));
+        dao.addOrder(sampleOrder(format.parse("06-01-2030"), "CA", "10.5"));
+        dao.addOrder(sampleOrder(format.parse("06-02-2030"), "TX", "100"));
+        dao.addOrder(sampleOrder(format.parse("06-03-2030"), "TX", "999"));
+
+        ColumnarOrderArchive archive = dao.archiveClosedDays(format.parse("06-03-2030"));
+        assertEquals(3, archive.getRowCount());
+
+        ColumnarOrderArchive.Columns columns = new ColumnarOrderArchive(ordersFolder + "/archive")
+                .read(EnumSet.of(OrderColumn.STATE, OrderColumn.TOTAL));
+        BigDecimal texasTotal = BigDecimal.ZERO;
+        for (int row = 0; row < columns.getRowCount(); row++) {
+            if (columns.getString(OrderColumn.STATE, row).equals("TX")) {
+                texasTotal = texasTotal.add(columns.getDecimal(OrderColumn.TOTAL, row));
+            }
+        }
+        assertEquals(new BigDecimal("1696.25"), texasTotal);
+        assertEquals(2, columns.getDictionary(OrderColumn.STATE).length);
+        assertEquals(2, columns.getScale(OrderColumn.TOTAL));
+        assertThrows(IllegalArgumentException.class, () -> columns.getString(OrderColumn.CUSTOMER_NAME, 0));
+        assertTrue(new File(ordersFolder + "/archive/customer_name.dict").exists());
+    }
+
+    @Test
+    public void testReplacingAnArchiveSwapsInTheCompleteCopy() throws Exception {
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+        String folder = tempDir.resolve("archive").toString();
+        Order texas = sampleOrder(orderDate, "TX", "1");
+        Order california = sampleOrder(orderDate, "CA", "2");
+        Order washington = sampleOrder(orderDate, "WA", "3");
+        texas.setOrderNumber(1);
+        california.setOrderNumber(2);
+        washington.setOrderNumber(3);
+        ColumnarOrderArchive.write(folder, List.of(texas, california));
+        ColumnarOrderArchive.write(folder, List.of(washington));
+
+        ColumnarOrderArchive.Columns columns = new ColumnarOrderArchive(folder).read(EnumSet.of(OrderColumn.STATE));
+        assertEquals(1, columns.getRowCount());
+        assertEquals("WA", columns.getString(OrderColumn.STATE, 0));
+        assertFalse(new File(folder + ".tmp").exists());
+        assertFalse(new File(folder + ".old").exists());
+
+        // A replacement that stopped after moving the previous archive aside still opens the previous archive
+        assertTrue(new File(folder).renameTo(new File(folder + ".old")));
+        assertEquals(1, new ColumnarOrderArchive(folder).getRowCount());
+    }
+
+    @Test
+    public void testDatesAndNumbersRoundTrip() throws Exception {
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+        Order order = sampleOrder(orderDate, "TX", "1596.25");
+        order.setOrderNumber(42);
+        ColumnarOrderArchive archive = ColumnarOrderArchive.write(tempDir.resolve("archive").toString(), List.of(order));
+
+        ColumnarOrderArchive.Columns columns = archive.read(EnumSet.of(OrderColumn.ORDER_NUMBER, OrderColumn.ORDER_DATE, OrderColumn.TAX_RATE));
+        assertEquals(42, columns.getOrderNumber(0));
+        assertEquals(orderDate, columns.getOrderDate(0));
+        assertEquals(new BigDecimal("4.45"), columns.getDecimal(OrderColumn.TAX_RATE, 0));
+    }
+
+    private Order sampleOrder(Date orderDate, String state, String total) {
+        return new Order(null, "Customer 1", state, new BigDecimal("4.45"), "Tile", new BigDecimal("200"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("700"), new BigDecimal("830"),
+                new BigDecimal("66.25"), new BigDecimal(total), orderDate);
+    }
+}
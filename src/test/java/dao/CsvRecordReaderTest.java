@@ -0,0 +1,57 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+
+/**
+ * This class provides unit tests for the CsvRecordReader.
+ */
+public class CsvRecordReaderTest {
+
+    @Test
+    public void testReadsTrimmedFieldsAndSkipsBlankLines() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("a, b ,c\r\n\n 7,-1.50,06-01-2013"), "test");
+
+        assertTrue(reader.next());
+        assertEquals(3, reader.getFieldCount());
+        assertEquals("b", reader.getString(1));
+
+        assertTrue(reader.next());
+        assertEquals(3, reader.getLineNumber());
+        assertEquals(7, reader.getInt(0));
+        assertEquals(new BigDecimal("-1.50"), reader.getDecimal(1));
+        assertEquals(new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2013"), reader.getDate(2));
+
+        assertFalse(reader.next());
+    }
+
+    @Test
+    public void testDecimalsKeepTheirScale() throws Exception {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("4.45,200,0.0000,12345678901234567890.5"), "test");
+        reader.next();
+
+        assertEquals("4.45", reader.getDecimal(0).toString());
+        assertEquals("200", reader.getDecimal(1).toString());
+        assertEquals("0.0000", reader.getDecimal(2).toString());
+        assertEquals(new BigDecimal("12345678901234567890.5"), reader.getDecimal(3));
+    }
+
+    @Test
+    public void testMalformedFieldsReportTheirLine() throws IOException {
+        CsvRecordReader reader = new CsvRecordReader(new StringReader("header\n1,abc,13-45-2020"), "Orders.txt");
+        reader.next();
+        reader.next();
+
+        MalformedRecordException number = assertThrows(MalformedRecordException.class, () -> reader.getDecimal(1));
+        assertEquals(2, number.getLineNumber());
+        assertTrue(number.getMessage().startsWith("Orders.txt line 2"));
+        assertThrows(MalformedRecordException.class, () -> reader.getDate(2));
+        assertThrows(MalformedRecordException.class, () -> reader.requireFields(13));
+    }
+}
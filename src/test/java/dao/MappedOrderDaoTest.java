@@ -0,0 +1,143 @@
+package dao;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import modelDTO.Order;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import service.OrderNotFoundException;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * This class provides unit tests for the MappedOrderDao and the OrderStoreConverter.
+ */
+public class MappedOrderDaoTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testOrdersSurviveReopening() throws Exception {
+        String storePath = tempDir.resolve("orders.bin").toString();
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+        MappedOrderDao dao = new MappedOrderDao(storePath);
+        Order first = dao.addOrder(sampleOrder(orderDate, "Jane Doe"));
+        Order second = dao.addOrder(sampleOrder(orderDate, "Mimi Lo"));
+        second.setTotal(new BigDecimal("1234.5678"));
+        dao.editOrder(second);
+        dao.removeOrder(first.getOrderNumber());
+        dao.close();
+
+        MappedOrderDao reopened = new MappedOrderDao(storePath);
+        assertNull(reopened.getOrderById(first.getOrderNumber()));
+        Order loaded = reopened.getOrderById(second.getOrderNumber());
+        assertEquals("Mimi Lo", loaded.getCustomerName());
+        assertEquals("1234.5678", loaded.getTotal().toString());
+        assertEquals(orderDate, loaded.getOrderDate());
+        assertEquals(1, reopened.getOrdersByDate(orderDate).size());
+        assertEquals(1, reopened.searchOrdersByState("tx").size());
+        assertEquals(1, reopened.searchOrdersByNameFuzzy("mimi", 5).size());
+        assertTrue(reopened.addOrder(sampleOrder(orderDate, "Maria Ozoa")).getOrderNumber() > second.getOrderNumber());
+        assertThrows(OrderNotFoundException.class, () -> reopened.editOrder(first));
+        reopened.close();
+    }
+
+    @Test
+    public void testStoreGrowsPastItsInitialSlots() throws Exception {
+        MappedOrderDao dao = new MappedOrderDao(tempDir.resolve("orders.bin").toString());
+        Order order = sampleOrder(new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030"), "Jane Doe");
+        order.setOrderNumber(5000);
+        dao.putOrder(order);
+        assertEquals("Jane Doe", dao.getOrderById(5000).getCustomerName());
+        assertEquals(1, dao.getAllOrders().size());
+        dao.close();
+    }
+
+    @Test
+    public void testAddedOrdersAreNumberedAfterImportedOnes() throws Exception {
+        MappedOrderDao dao = new MappedOrderDao(tempDir.resolve("orders.bin").toString());
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+        for (int orderNumber = 1; orderNumber <= 3; orderNumber++) {
+            Order imported = sampleOrder(orderDate, "Imported " + orderNumber);
+            imported.setOrderNumber(orderNumber);
+            dao.putOrder(imported);
+        }
+        assertEquals(4, (int) dao.addOrder(sampleOrder(orderDate, "Jane Doe")).getOrderNumber());
+        assertEquals("Imported 1", dao.getOrderById(1).getCustomerName());
+        assertEquals(4, dao.getAllOrders().size());
+        dao.close();
+    }
+
+    @Test
+    public void testRejectsOrderNumbersOutsideTheStore() throws Exception {
+        MappedOrderDao dao = new MappedOrderDao(tempDir.resolve("orders.bin").toString());
+        Order order = sampleOrder(new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030"), "Jane Doe");
+        order.setOrderNumber(MappedOrderDao.MAX_ORDER_NUMBER + 1);
+        assertThrows(DataPersistenceException.class, () -> dao.putOrder(order));
+        order.setOrderNumber(MappedOrderDao.MAX_ORDER_NUMBER_GAP + 1);
+        assertThrows(DataPersistenceException.class, () -> dao.putOrder(order));
+        assertTrue(dao.getAllOrders().isEmpty());
+        assertEquals(1, (int) dao.addOrder(sampleOrder(order.getOrderDate(), "Mimi Lo")).getOrderNumber());
+        dao.close();
+    }
+
+    @Test
+    public void testFailedEditLeavesTheStoredOrderUnchanged() throws Exception {
+        MappedOrderDao dao = new MappedOrderDao(tempDir.resolve("orders.bin").toString());
+        Order stored = dao.addOrder(sampleOrder(new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030"), "Jane Doe"));
+        int orderNumber = stored.getOrderNumber();
+
+        Order longName = sampleOrder(stored.getOrderDate(), "Mimi Lo");
+        longName.setOrderNumber(orderNumber);
+        longName.setState("A state name far too long for its field");
+        assertThrows(DataPersistenceException.class, () -> dao.editOrder(longName));
+
+        Order overflow = sampleOrder(stored.getOrderDate(), "Mimi Lo");
+        overflow.setOrderNumber(orderNumber);
+        overflow.setTotal(new BigDecimal("1e30").setScale(2));
+        assertThrows(DataPersistenceException.class, () -> dao.editOrders(List.of(overflow)));
+
+        Order missingTax = sampleOrder(stored.getOrderDate(), "Mimi Lo");
+        missingTax.setOrderNumber(orderNumber);
+        missingTax.setTax(null);
+        assertThrows(DataPersistenceException.class, () -> dao.editOrder(missingTax));
+
+        Order loaded = dao.getOrderById(orderNumber);
+        assertEquals("Jane Doe", loaded.getCustomerName());
+        assertEquals("TX", loaded.getState());
+        assertEquals("66.25", loaded.getTax().toString());
+        assertEquals("1596.25", loaded.getTotal().toString());
+        dao.close();
+    }
+
+    @Test
+    public void testConvertsBetweenCsvAndBinary() throws Exception {
+        String csvFolder = tempDir.resolve("csv").toString();
+        String storePath = tempDir.resolve("orders.bin").toString();
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        OrderDaoImpl csvDao = new OrderDaoImpl(csvFolder);
+        csvDao.addOrder(sampleOrder(format.parse("06-01-2030"), "Jane Doe"));
+        csvDao.addOrder(sampleOrder(format.parse("06-02-2030"), "Mimi Lo"));
+        csvDao.close();
+
+        assertEquals(2, OrderStoreConverter.csvToBinary(csvFolder, storePath));
+        String copyFolder = tempDir.resolve("copy").toString();
+        assertEquals(2, OrderStoreConverter.binaryToCsv(storePath, copyFolder));
+
+        List<Order> copied = new OrderDaoImpl(copyFolder).getOrdersByDate(format.parse("06-02-2030"));
+        assertEquals(1, copied.size());
+        assertEquals("Mimi Lo", copied.get(0).getCustomerName());
+        assertEquals("1596.25", copied.get(0).getTotal().toString());
+    }
+
+    private Order sampleOrder(Date orderDate, String customerName) {
+        return new Order(null, customerName, "TX", new BigDecimal("4.45"), "Tile", new BigDecimal("200"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("700"), new BigDecimal("830"),
+                new BigDecimal("66.25"), new BigDecimal("1596.25"), orderDate);
+    }
+}
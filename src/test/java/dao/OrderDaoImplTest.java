@@ -1,14 +1,32 @@
 package dao;
 
 import static org.junit.Assert.*;
+import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import modelDTO.Order;
 import service.OrderNotFoundException;
 
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPInputStream;
 
 /**
  * Test class for OrderDaoImpl. It includes unit tests to verify the basic CRUD operations
@@ -18,6 +36,14 @@ public class OrderDaoImplTest {
 
     private OrderDao orderDao;
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static final String HEADER = "OrderNumber,CustomerName,State,TaxRate,ProductType,Area,CostPerSquareFoot,LaborCostPerSquareFoot,MaterialCost,LaborCost,Tax,Total,OrderDate\n";
+
+    // DAOs opened on temporary folders, closed after each test so no background threads outlive it
+    private final List<OrderDaoImpl> openedDaos = new ArrayList<>();
+
     /**
      * Set up the test environment. This method is run before each test.
      */
@@ -26,6 +52,26 @@ public class OrderDaoImplTest {
         orderDao = new OrderDaoImpl(); // Initialize OrderDao
     }
 
+    /**
+     * Closes the DAOs the test opened. This method is run after each test.
+     */
+    @After
+    public void tearDown() {
+        for (OrderDaoImpl dao : openedDaos) {
+            dao.close();
+        }
+    }
+
+    private OrderDaoImpl openDao(String folderPath) {
+        return openDao(folderPath, new OrderDaoSettings());
+    }
+
+    private OrderDaoImpl openDao(String folderPath, OrderDaoSettings settings) {
+        OrderDaoImpl dao = new OrderDaoImpl(folderPath, settings);
+        openedDaos.add(dao);
+        return dao;
+    }
+
     /**
      * Test case to verify adding an order and then retrieving orders by date.
      * It checks if the added order is correctly stored and can be retrieved using its date.
@@ -100,4 +146,659 @@ public class OrderDaoImplTest {
         assertEquals(order.getTotal(), retrievedOrder.getTotal());
     }
 
+    /**
+     * Test case to verify that saving an order only writes the partition file for its own date.
+     */
+    @Test
+    public void testAddOrderWritesOnlyItsDatePartition() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl partitionedDao = openDao(folder.getPath());
+        SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
+
+        partitionedDao.addOrder(sampleOrder(sdf.parse("06-01-2030")));
+        partitionedDao.addOrder(sampleOrder(sdf.parse("06-02-2030")));
+
+        List<String> firstFile = Files.readAllLines(new File(folder, "Orders_06012030.txt").toPath());
+        List<String> secondFile = Files.readAllLines(new File(folder, "Orders_06022030.txt").toPath());
+        assertEquals(2, firstFile.size());
+        assertEquals(2, secondFile.size());
+        assertTrue(firstFile.get(1).startsWith("1,"));
+        assertTrue(secondFile.get(1).startsWith("2,"));
+    }
+
+    /**
+     * Test case to verify that an edit moving an order to another date removes it from the old partition file.
+     */
+    @Test
+    public void testEditOrderMovesOrderBetweenPartitions() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl partitionedDao = openDao(folder.getPath());
+        SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
+
+        Order order = partitionedDao.addOrder(sampleOrder(sdf.parse("06-01-2030")));
+        order.setOrderDate(sdf.parse("06-03-2030"));
+        partitionedDao.editOrder(order);
+
+        assertEquals(1, Files.readAllLines(new File(folder, "Orders_06012030.txt").toPath()).size());
+        assertEquals(2, Files.readAllLines(new File(folder, "Orders_06032030.txt").toPath()).size());
+        assertTrue(partitionedDao.getOrdersByDate(sdf.parse("06-01-2030")).isEmpty());
+        assertEquals(1, partitionedDao.getOrdersByDate(sdf.parse("06-03-2030")).size());
+    }
+
+    /**
+     * Test case to verify that files holding every order are detected and split back into date partitions.
+     */
+    @Test
+    public void testMigrateOrderFilesDeduplicatesPollutedFiles() throws IOException {
+        File folder = tempFolder.newFolder("orders");
+        String rows = HEADER
+                + "1,Ann,TX,4.45,Tile,100,3.50,4.15,350.00,415.00,34.04,799.04,06-01-2030\n"
+                + "2,Bob,TX,4.45,Tile,100,3.50,4.15,350.00,415.00,34.04,799.04,06-02-2030\n";
+        for (String name : new String[]{"Orders_06012030.txt", "Orders_06022030.txt", "Orders_06052030.txt"}) {
+            try (FileWriter writer = new FileWriter(new File(folder, name))) {
+                writer.write(rows);
+            }
+        }
+
+        OrderDaoImpl pollutedDao = openDao(folder.getPath());
+        assertTrue(pollutedDao.isMigrationRequired());
+        assertEquals(2, pollutedDao.getAllOrders().size());
+
+        pollutedDao.migrateOrderFiles();
+
+        assertFalse(pollutedDao.isMigrationRequired());
+        assertEquals(2, Files.readAllLines(new File(folder, "Orders_06012030.txt").toPath()).size());
+        assertEquals(2, Files.readAllLines(new File(folder, "Orders_06022030.txt").toPath()).size());
+        assertFalse(new File(folder, "Orders_06052030.txt").exists());
+        assertFalse(openDao(folder.getPath()).isMigrationRequired());
+    }
+
+    /**
+     * Test case to verify that in journal mode mutations only append to the journal, and that
+     * the journal is replayed and folded into the partition files on the next start.
+     */
+    @Test
+    public void testJournaledMutationsAreReplayedOnRestart() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoSettings settings = new OrderDaoSettings();
+        settings.setJournalEnabled(true);
+        SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
+
+        OrderDaoImpl journaledDao = openDao(folder.getPath(), settings);
+        journaledDao.addOrder(sampleOrder(sdf.parse("06-01-2030")));
+        Order edited = journaledDao.addOrder(sampleOrder(sdf.parse("06-01-2030")));
+        Order removed = journaledDao.addOrder(sampleOrder(sdf.parse("06-02-2030")));
+        edited.setCustomerName("Edited Customer");
+        journaledDao.editOrder(edited);
+        journaledDao.removeOrder(removed.getOrderNumber());
+
+        assertFalse(new File(folder, "Orders_06012030.txt").exists());
+        assertEquals(5, Files.readAllLines(new File(folder, "orders.journal").toPath()).size());
+
+        // Simulate a crash: the journal is never compacted by the first instance
+        OrderDaoImpl restartedDao = openDao(folder.getPath(), settings);
+        assertEquals(2, restartedDao.getAllOrders().size());
+        assertEquals("Edited Customer", restartedDao.getOrderById(edited.getOrderNumber()).getCustomerName());
+        assertNull(restartedDao.getOrderById(removed.getOrderNumber()));
+        assertEquals(3, Files.readAllLines(new File(folder, "Orders_06012030.txt").toPath()).size());
+        assertEquals(0, new File(folder, "orders.journal").length());
+        restartedDao.close();
+    }
+
+    /**
+     * Test case to verify that a closed journaled DAO rejects changes instead of submitting compactions to its stopped compactor.
+     */
+    @Test
+    public void testChangesAfterCloseAreRejected() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoSettings settings = new OrderDaoSettings();
+        settings.setJournalEnabled(true);
+        settings.setCompactionThresholdBytes(1);
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+        OrderDaoImpl journaledDao = openDao(folder.getPath(), settings);
+        Order order = journaledDao.addOrder(sampleOrder(orderDate));
+        journaledDao.close();
+
+        try {
+            journaledDao.addOrder(sampleOrder(orderDate));
+            fail("Expected DataPersistenceException");
+        } catch (DataPersistenceException e) {
+            // expected
+        }
+        assertEquals(1, journaledDao.getAllOrders().size());
+        assertEquals(order.getCustomerName(), journaledDao.getOrderById(order.getOrderNumber()).getCustomerName());
+    }
+
+    /**
+     * Test case to verify that concurrent journaled writes are all durable once their futures complete,
+     * and that they share fewer forces to disk than there were writes.
+     */
+    @Test
+    public void testConcurrentJournaledWritesAreGroupCommitted() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoSettings settings = new OrderDaoSettings();
+        settings.setJournalEnabled(true);
+        settings.setGroupCommitWindowMicros(500);
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+        OrderDaoImpl journaledDao = openDao(folder.getPath(), settings);
+
+        List<CompletableFuture<Order>> futures = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> sampleOrder(orderDate))
+                    .thenCompose(journaledDao::addOrderAsync));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertEquals(200, Files.readAllLines(new File(folder, "orders.journal").toPath()).size());
+        assertEquals(200, journaledDao.getOrdersByDate(orderDate).size());
+        assertTrue(journaledDao.getJournal().getCommitCount() < 200);
+        journaledDao.close();
+        assertEquals(201, Files.readAllLines(new File(folder, "Orders_06012030.txt").toPath()).size());
+    }
+
+    /**
+     * Test case to verify that order numbers come from the persisted high-water mark and are never reused,
+     * even after the highest order is removed or the application restarts.
+     */
+    @Test
+    public void testOrderNumbersAreNeverReused() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoSettings settings = new OrderDaoSettings();
+        settings.setOrderNumberBlockSize(10);
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+
+        OrderDaoImpl firstDao = openDao(folder.getPath(), settings);
+        assertEquals(1, (int) firstDao.addOrder(sampleOrder(orderDate)).getOrderNumber());
+        Order second = firstDao.addOrder(sampleOrder(orderDate));
+        firstDao.removeOrder(second.getOrderNumber());
+        assertEquals(3, (int) firstDao.addOrder(sampleOrder(orderDate)).getOrderNumber());
+
+        // The restarted instance continues after the block reserved by the first one
+        OrderDaoImpl restartedDao = openDao(folder.getPath(), settings);
+        assertEquals(11, (int) restartedDao.addOrder(sampleOrder(orderDate)).getOrderNumber());
+        assertEquals(21, restartedDao.getOrderNumberAllocator().reserveBlock(5));
+        assertEquals(12, (int) restartedDao.addOrder(sampleOrder(orderDate)).getOrderNumber());
+    }
+
+    /**
+     * Test case to verify that single adds take their numbers from reserved blocks rather than the file each time.
+     */
+    @Test
+    public void testSingleAddsReserveOrderNumbersInBlocks() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+
+        OrderDaoImpl dao = openDao(folder.getPath());
+        for (int i = 1; i <= 50; i++) {
+            assertEquals(i, (int) dao.addOrder(sampleOrder(orderDate)).getOrderNumber());
+        }
+        assertEquals(3, dao.getOrderNumberAllocator().getReservations());
+        dao.close();
+    }
+
+    /**
+     * Test case to verify that a date range query returns only the orders inside the range, in date order.
+     */
+    @Test
+    public void testGetOrdersBetween() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl rangeDao = openDao(folder.getPath());
+        SimpleDateFormat sdf = new SimpleDateFormat("MM-dd-yyyy");
+        rangeDao.addOrder(sampleOrder(sdf.parse("06-09-2030")));
+        rangeDao.addOrder(sampleOrder(sdf.parse("06-03-2030")));
+        rangeDao.addOrder(sampleOrder(sdf.parse("05-31-2030")));
+        rangeDao.addOrder(sampleOrder(sdf.parse("06-01-2030")));
+
+        List<Order> week = rangeDao.getOrdersBetween(sdf.parse("06-01-2030"), sdf.parse("06-07-2030"));
+
+        assertEquals(2, week.size());
+        assertEquals(sdf.parse("06-01-2030"), week.get(0).getOrderDate());
+        assertEquals(sdf.parse("06-03-2030"), week.get(1).getOrderDate());
+        assertTrue(rangeDao.getOrdersBetween(sdf.parse("06-07-2030"), sdf.parse("06-01-2030")).isEmpty());
+    }
+
+    /**
+     * Test case to verify that the search indexes ignore case and follow edits that change the indexed fields.
+     */
+    @Test
+    public void testSearchIndexesFollowEdits() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl indexedDao = openDao(folder.getPath());
+        Order order = indexedDao.addOrder(sampleOrder(new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030")));
+
+        assertEquals(1, indexedDao.searchOrdersByName("customer 1").size());
+        assertEquals(1, indexedDao.searchOrdersByState("tx").size());
+        assertEquals(1, indexedDao.searchOrdersByProductType("TILE").size());
+
+        order.setCustomerName("Jane Roe");
+        order.setState("CA");
+        order.setProductType("Wood");
+        indexedDao.editOrder(order);
+
+        assertTrue(indexedDao.searchOrdersByName("Customer 1").isEmpty());
+        assertTrue(indexedDao.searchOrdersByState("TX").isEmpty());
+        assertTrue(indexedDao.searchOrdersByProductType("Tile").isEmpty());
+        assertEquals(1, indexedDao.searchOrdersByName("JANE ROE").size());
+        assertEquals(1, indexedDao.searchOrdersByState("ca").size());
+        assertEquals(1, indexedDao.searchOrdersByProductType("wood").size());
+
+        indexedDao.removeOrder(order.getOrderNumber());
+        assertTrue(indexedDao.searchOrdersByState("CA").isEmpty());
+    }
+
+    /**
+     * Test case to verify that the fuzzy name search finds customers from a prefix, a fragment or a typo.
+     */
+    @Test
+    public void testSearchOrdersByNameFuzzy() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl searchDao = openDao(folder.getPath());
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("06-01-2030");
+        for (String name : new String[]{"Jane Doe", "Janet Smith", "Mimi Lo", "Maria Ozoa"}) {
+            Order order = sampleOrder(orderDate);
+            order.setCustomerName(name);
+            searchDao.addOrder(order);
+        }
+
+        List<Order> prefix = searchDao.searchOrdersByNameFuzzy("jan", 10);
+        assertEquals(2, prefix.size());
+        assertTrue(prefix.get(0).getCustomerName().startsWith("Jane"));
+
+        assertEquals("Maria Ozoa", searchDao.searchOrdersByNameFuzzy("ozoa", 10).get(0).getCustomerName());
+        assertEquals("Jane Doe", searchDao.searchOrdersByNameFuzzy("Jnae Doe", 10).get(0).getCustomerName());
+        assertEquals(1, searchDao.searchOrdersByNameFuzzy("jan", 1).size());
+        assertTrue(searchDao.searchOrdersByNameFuzzy("xyz", 10).isEmpty());
+    }
+
+    /**
+     * Test case to verify that lazy loading parses partitions on first use and evicts the least recently used ones over the budget.
+     */
+    @Test
+    public void testLazyLoadingLoadsAndEvictsPartitionsOnDemand() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl writer = openDao(folder.getPath());
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        Date[] dates = {format.parse("07-01-2030"), format.parse("07-02-2030"), format.parse("07-03-2030")};
+        int lastOrderNumber = 0;
+        for (Date date : dates) {
+            for (int i = 0; i < 2; i++) {
+                lastOrderNumber = writer.addOrder(sampleOrder(date)).getOrderNumber();
+            }
+        }
+
+        OrderDaoSettings settings = new OrderDaoSettings();
+        settings.setLazyLoading(true);
+        settings.setMaxResidentOrders(3);
+        OrderDaoImpl lazyDao = openDao(folder.getPath(), settings);
+        assertEquals(0, lazyDao.getResidentOrderCount());
+
+        assertEquals(2, lazyDao.getOrdersByDate(dates[0]).size());
+        assertEquals(2, lazyDao.getResidentOrderCount());
+
+        // Loading a second partition goes over the budget, so the least recently used one is evicted
+        assertEquals(2, lazyDao.getOrdersByDate(dates[1]).size());
+        assertEquals(2, lazyDao.getResidentOrderCount());
+
+        assertNotNull(lazyDao.getOrderById(lastOrderNumber));
+        assertEquals(6, lazyDao.getAllOrders().size());
+        assertTrue(lazyDao.getResidentOrderCount() <= 3);
+
+        // An evicted partition is reloaded in full before it is rewritten
+        Order added = lazyDao.addOrder(sampleOrder(dates[0]));
+        assertTrue(added.getOrderNumber() > lastOrderNumber);
+        assertEquals(3, openDao(folder.getPath()).getOrdersByDate(dates[0]).size());
+    }
+
+    /**
+     * Test case to verify that loading order files in parallel gives the same orders as loading them one by one.
+     */
+    @Test
+    public void testParallelLoadMatchesSequentialLoad() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl writer = openDao(folder.getPath());
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        for (int day = 1; day <= 20; day++) {
+            Date date = format.parse(String.format("08-%02d-2030", day));
+            for (int i = 0; i < 3; i++) {
+                writer.addOrder(sampleOrder(date));
+            }
+        }
+
+        OrderDaoSettings sequential = new OrderDaoSettings();
+        sequential.setLoaderThreads(1);
+        OrderDaoSettings parallel = new OrderDaoSettings();
+        parallel.setLoaderThreads(4);
+        OrderDaoImpl sequentialDao = openDao(folder.getPath(), sequential);
+        OrderDaoImpl parallelDao = openDao(folder.getPath(), parallel);
+
+        assertEquals(60, parallelDao.getAllOrders().size());
+        for (Order order : sequentialDao.getAllOrders()) {
+            Order loaded = parallelDao.getOrderById(order.getOrderNumber());
+            assertEquals(order.getOrderDate(), loaded.getOrderDate());
+            assertEquals(order.getTotal(), loaded.getTotal());
+        }
+        ParallelOrderLoader.LoadReport report = parallelDao.getLastLoadReport();
+        assertEquals(20, report.getPartitions().size());
+        assertEquals(60, report.getOrderCount());
+        for (ParallelOrderLoader.PartitionLoad partition : report.getPartitions()) {
+            assertTrue(partition.getElapsedNanos() <= report.getTotalNanos());
+        }
+    }
+
+    /**
+     * Test case to verify that write-behind coalesces partition writes and flushes every queued write on close.
+     */
+    @Test
+    public void testWriteBehindCoalescesAndFlushesOnClose() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoSettings settings = new OrderDaoSettings();
+        settings.setWriteBehindEnabled(true);
+        settings.setWriteBehindQueueCapacity(4);
+        OrderDaoImpl writeBehindDao = openDao(folder.getPath(), settings);
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("09-01-2030");
+
+        for (int i = 0; i < 50; i++) {
+            writeBehindDao.addOrder(sampleOrder(orderDate));
+        }
+        assertEquals(50, writeBehindDao.getOrdersByDate(orderDate).size());
+        writeBehindDao.close();
+
+        WriteBehindFlusher flusher = writeBehindDao.getWriteBehindFlusher();
+        assertEquals(0, flusher.getQueueDepth());
+        assertEquals(50, flusher.getSubmittedWrites());
+        assertTrue(flusher.getFileWrites() <= flusher.getSubmittedWrites());
+        assertTrue(flusher.getMaxFlushLagMillis() >= flusher.getLastFlushLagMillis());
+        assertEquals(50, openDao(folder.getPath()).getOrdersByDate(orderDate).size());
+    }
+
+    /**
+     * Test case to verify that the checkpoint snapshot keeps missing names, product types and amounts.
+     */
+    @Test
+    public void testSnapshotKeepsMissingValues() throws Exception {
+        Path snapshotPath = tempFolder.newFolder("snapshot").toPath().resolve("orders.snapshot");
+        Date orderDate = new SimpleDateFormat("MM-dd-yyyy").parse("10-01-2030");
+        Order first = sampleOrder(orderDate);
+        first.setOrderNumber(1);
+        first.setCustomerName(null);
+        first.setProductType(null);
+        first.setTax(null);
+        Order second = sampleOrder(orderDate);
+        second.setOrderNumber(2);
+        second.setProductType(null);
+        OrderSnapshot.write(snapshotPath, 2, Collections.singletonList(
+                new OrderSnapshot.Partition(1L, 0L, 0L, Arrays.asList(first, second))));
+
+        List<Order> restored = OrderSnapshot.read(snapshotPath).getPartitions().get(1L).getOrders();
+        assertNull(restored.get(0).getCustomerName());
+        assertNull(restored.get(0).getProductType());
+        assertNull(restored.get(0).getTax());
+        assertEquals(first.getTotal(), restored.get(0).getTotal());
+        assertEquals(second.getCustomerName(), restored.get(1).getCustomerName());
+        assertNull(restored.get(1).getProductType());
+        assertEquals(second.getTax(), restored.get(1).getTax());
+    }
+
+    /**
+     * Test case to verify that a checkpoint restores unchanged partitions and only parses the files changed since.
+     */
+    @Test
+    public void testCheckpointRestoresUnchangedPartitionsWithoutParsing() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoSettings settings = new OrderDaoSettings();
+        settings.setCheckpointEnabled(true);
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        Date[] dates = {format.parse("10-01-2030"), format.parse("10-02-2030"), format.parse("10-03-2030")};
+        OrderDaoImpl checkpointed = openDao(folder.getPath(), settings);
+        for (Date date : dates) {
+            checkpointed.addOrder(sampleOrder(date));
+            checkpointed.addOrder(sampleOrder(date));
+        }
+        checkpointed.close();
+
+        // A change made without the checkpoint only touches one partition file
+        OrderDaoImpl plain = openDao(folder.getPath());
+        Order changed = plain.getOrdersByDate(dates[1]).get(0);
+        changed.setCustomerName("Changed Name");
+        plain.editOrder(changed);
+        int lastOrderNumber = plain.addOrder(sampleOrder(dates[2])).getOrderNumber();
+
+        OrderDaoImpl restored = openDao(folder.getPath(), settings);
+        assertEquals(2, restored.getLastLoadReport().getPartitions().size());
+        assertEquals("Restored 1 of 3 order files from the checkpoint.", restored.getCheckpointSummary());
+        assertNull(plain.getCheckpointSummary());
+        assertEquals(7, restored.getAllOrders().size());
+        assertEquals("Changed Name", restored.getOrderById(changed.getOrderNumber()).getCustomerName());
+        assertEquals(1, restored.searchOrdersByName("changed name").size());
+        assertTrue(restored.addOrder(sampleOrder(dates[0])).getOrderNumber() > lastOrderNumber);
+        restored.close();
+    }
+
+    /**
+     * Test case to verify that a full export streams every order in the requested sort order.
+     */
+    @Test
+    public void testExportOrdersStreamsRowsInTheRequestedOrder() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl dao = openDao(folder.getPath());
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        Order later = dao.addOrder(sampleOrder(format.parse("10-02-2030")));
+        Order earlier = dao.addOrder(sampleOrder(format.parse("10-01-2030")));
+
+        File byNumber = new File(folder, "export/by-number.txt");
+        assertEquals(2, dao.exportOrders(byNumber.getPath(), OrderExporter.SortOrder.ORDER_NUMBER));
+        List<String> lines = Files.readAllLines(byNumber.toPath());
+        assertEquals(OrderDaoImpl.HEADER, lines.get(0));
+        assertEquals(later.getOrderNumber() + ",Customer 1,TX,4.45,Tile,200.00,3.50,4.15,700.00,830.00,66.25,1596.25,10-02-2030",
+                lines.get(1));
+
+        File byDate = new File(folder, "export/by-date.txt");
+        dao.exportOrders(byDate.getPath(), OrderExporter.SortOrder.ORDER_DATE);
+        lines = Files.readAllLines(byDate.toPath());
+        assertTrue(lines.get(1).startsWith(earlier.getOrderNumber() + ","));
+        assertTrue(lines.get(2).startsWith(later.getOrderNumber() + ","));
+
+        // A buffer far smaller than the export is written out in many chunks with the same result
+        List<Order> many = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            many.add(dao.getOrderById(later.getOrderNumber()));
+        }
+        File chunked = new File(folder, "export/chunked.txt");
+        assertEquals(500, new OrderExporter(256).export(many.iterator(), chunked.toPath()));
+        lines = Files.readAllLines(chunked.toPath());
+        assertEquals(501, lines.size());
+        assertEquals(Files.readAllLines(byNumber.toPath()).get(1), lines.get(500));
+        dao.close();
+    }
+
+    /**
+     * Test case to verify that delta exports hold only the changes since the last one and restore the orders on top of a full export.
+     */
+    @Test
+    public void testExportChangesWritesDeltasThatRestoreTheOrders() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        File backup = tempFolder.newFolder("backup");
+        String watermark = new File(backup, "export.watermark").getPath();
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        Date date = format.parse("10-01-2030");
+        OrderDaoImpl dao = openDao(folder.getPath());
+        Order kept = dao.addOrder(sampleOrder(date));
+        Order edited = dao.addOrder(sampleOrder(date));
+        Order removed = dao.addOrder(sampleOrder(date));
+
+        String base = new File(backup, "base.txt").getPath();
+        assertEquals(3, dao.exportChanges(base, watermark));
+
+        edited.setCustomerName("Edited Name");
+        dao.editOrder(edited);
+        dao.removeOrder(removed.getOrderNumber());
+        Order added = dao.addOrder(sampleOrder(format.parse("10-02-2030")));
+        String delta1 = new File(backup, "delta1.txt").getPath();
+        assertEquals(3, dao.exportChanges(delta1, watermark));
+        List<String> lines = Files.readAllLines(new File(delta1).toPath());
+        assertEquals("Change," + OrderDaoImpl.HEADER, lines.get(0));
+        assertTrue(lines.get(1).startsWith("U," + edited.getOrderNumber() + ",Edited Name,"));
+        assertTrue(lines.get(2).startsWith("U," + added.getOrderNumber() + ","));
+        assertEquals("D," + removed.getOrderNumber(), lines.get(3));
+        assertEquals(0, dao.exportChanges(new File(backup, "empty.txt").getPath(), watermark));
+        dao.close();
+
+        // After a restart the watermark is caught up through the fingerprints of the exported orders
+        OrderDaoImpl restarted = openDao(folder.getPath());
+        assertEquals(0, restarted.exportChanges(new File(backup, "unchanged.txt").getPath(), watermark));
+        restarted.removeOrder(kept.getOrderNumber());
+        restarted.close();
+        OrderDaoImpl restartedAgain = openDao(folder.getPath());
+        String delta2 = new File(backup, "delta2.txt").getPath();
+        assertEquals(1, restartedAgain.exportChanges(delta2, watermark));
+        restartedAgain.close();
+
+        File restoredFolder = new File(tempFolder.getRoot(), "restored");
+        List<String> deltas = new ArrayList<>();
+        deltas.add(delta1);
+        deltas.add(delta2);
+        assertEquals(2, OrderBackupRestorer.restore(base, deltas, restoredFolder.getPath()));
+        OrderDaoImpl restored = openDao(restoredFolder.getPath());
+        assertEquals("Edited Name", restored.getOrderById(edited.getOrderNumber()).getCustomerName());
+        assertEquals(new BigDecimal("1596.25"), restored.getOrderById(added.getOrderNumber()).getTotal());
+        assertEquals(2, restored.getAllOrders().size());
+        restored.close();
+    }
+
+    /**
+     * Test case to verify that a partitioned export writes one compressed file per partition and a manifest that matches them.
+     */
+    @Test
+    public void testExportPartitionedWritesCompressedFilesAndManifest() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoSettings settings = new OrderDaoSettings();
+        settings.setLoaderThreads(4);
+        OrderDaoImpl dao = openDao(folder.getPath(), settings);
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        for (int i = 0; i < 30; i++) {
+            Order order = sampleOrder(format.parse((i % 3 + 1) + "-15-2030"));
+            if (i % 2 == 0) {
+                order.setState("CA");
+            }
+            dao.addOrder(order);
+        }
+
+        File export = new File(tempFolder.getRoot(), "export");
+        List<PartitionedOrderExporter.ManifestEntry> files = dao.exportPartitioned(export.getPath(),
+                PartitionedOrderExporter.Partitioning.MONTH);
+        assertEquals(3, files.size());
+        assertEquals("2030-01", files.get(0).getPartition());
+
+        files = dao.exportPartitioned(export.getPath(), PartitionedOrderExporter.Partitioning.STATE);
+        List<String> manifest = Files.readAllLines(new File(export, PartitionedOrderExporter.MANIFEST_FILE).toPath());
+        assertEquals(PartitionedOrderExporter.MANIFEST_HEADER, manifest.get(0));
+        assertEquals(3, manifest.size());
+        // The month files of the first export are gone, so the folder holds exactly what the manifest lists
+        assertEquals(2, export.listFiles((dir, name) -> name.endsWith(".csv.gz")).length);
+        assertFalse(new File(export, "Orders_2030-01.csv.gz").exists());
+        for (PartitionedOrderExporter.ManifestEntry entry : files) {
+            File file = new File(export, entry.getFileName());
+            CRC32 crc = new CRC32();
+            crc.update(Files.readAllBytes(file.toPath()));
+            assertEquals(entry.getCrc32(), crc.getValue());
+            assertEquals(entry.getBytes(), file.length());
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(file))))) {
+                List<String> lines = new ArrayList<>();
+                for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                    lines.add(line);
+                }
+                assertEquals(OrderDaoImpl.HEADER, lines.get(0));
+                assertEquals(15, entry.getRows());
+                assertEquals(16, lines.size());
+                assertTrue(lines.get(1).contains("," + entry.getPartition() + ","));
+            }
+        }
+
+        Order withoutState = sampleOrder(format.parse("01-15-2030"));
+        withoutState.setState(null);
+        try {
+            new PartitionedOrderExporter(1).export(Arrays.asList(withoutState), PartitionedOrderExporter.Partitioning.STATE, export.toPath());
+            fail("Expected DataPersistenceException");
+        } catch (DataPersistenceException e) {
+            // expected; the previous export is left alone
+        }
+        assertEquals(3, Files.readAllLines(new File(export, PartitionedOrderExporter.MANIFEST_FILE).toPath()).size());
+        dao.close();
+    }
+
+    /**
+     * Test case to verify that batch edits and removals apply every item or, when one order is missing, none.
+     */
+    @Test
+    public void testBatchEditAndRemove() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl dao = openDao(folder.getPath());
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        List<Order> batch = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            batch.add(sampleOrder(format.parse("10-0" + (i % 2 + 1) + "-2030")));
+        }
+        dao.addOrders(batch);
+
+        Order moved = batch.get(0);
+        moved.setOrderDate(format.parse("10-05-2030"));
+        Order renamed = batch.get(1);
+        renamed.setCustomerName("Renamed");
+        Order unknown = sampleOrder(moved.getOrderDate());
+        unknown.setOrderNumber(9999);
+        try {
+            dao.editOrders(Arrays.asList(renamed, unknown));
+            fail("Expected OrderNotFoundException");
+        } catch (OrderNotFoundException e) {
+            // expected; nothing may have been applied
+        }
+        dao.editOrders(Arrays.asList(moved, renamed));
+        dao.removeOrders(Arrays.asList(batch.get(2).getOrderNumber(), batch.get(3).getOrderNumber(), 9999));
+
+        OrderDaoImpl reloaded = openDao(folder.getPath());
+        assertEquals(4, reloaded.getAllOrders().size());
+        assertEquals(1, reloaded.getOrdersByDate(format.parse("10-05-2030")).size());
+        assertEquals(1, reloaded.getOrdersByDate(format.parse("10-01-2030")).size());
+        assertEquals("Renamed", reloaded.getOrderById(renamed.getOrderNumber()).getCustomerName());
+        assertNull(reloaded.getOrderById(batch.get(2).getOrderNumber()));
+        dao.close();
+        reloaded.close();
+    }
+
+    /**
+     * Test case to verify that searchOrdersFrom returns only the orders of the state and product type dated on or after the given day.
+     */
+    @Test
+    public void testSearchOrdersFromMatchesStateAndProductTypeOnOrAfterTheDate() throws Exception {
+        File folder = tempFolder.newFolder("orders");
+        OrderDaoImpl dao = openDao(folder.getPath());
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        Order past = dao.addOrder(sampleOrder(format.parse("01-01-2030")));
+        Order open = dao.addOrder(sampleOrder(format.parse("02-01-2030")));
+        Order otherState = sampleOrder(format.parse("02-01-2030"));
+        otherState.setState("CA");
+        dao.addOrder(otherState);
+        Order otherProduct = sampleOrder(format.parse("03-01-2030"));
+        otherProduct.setProductType("Wood");
+        dao.addOrder(otherProduct);
+
+        Date from = format.parse("02-01-2030");
+        List<Order> texasTile = dao.searchOrdersFrom(from, "tx", "TILE");
+        assertEquals(1, texasTile.size());
+        assertSame(open, texasTile.get(0));
+        assertEquals(2, dao.searchOrdersFrom(from, "TX", null).size());
+        assertEquals(2, dao.searchOrdersFrom(from, null, "Tile").size());
+        List<Order> all = dao.searchOrdersFrom(from, null, null);
+        assertEquals(3, all.size());
+        assertFalse(all.contains(past));
+        assertEquals(open.getOrderNumber(), all.get(0).getOrderNumber());
+        dao.close();
+    }
+
+    private Order sampleOrder(Date orderDate) {
+        return new Order(null, "Customer 1", "TX", new BigDecimal("4.45"), "Tile", new BigDecimal("200"),
+                new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("700"), new BigDecimal("830"),
+                new BigDecimal("66.25"), new BigDecimal("1596.25"), orderDate);
+    }
+
 }
@@ -148,4 +148,21 @@ public class ProductDaoImplTest {
         assertNull(productDao.getProductByType("Bamboo"));
     }
 
+    /**
+     * Test case to verify that a torn products file is replaced by its previous generation when loaded.
+     */
+    @Test
+    public void testTornFileIsRestoredFromPreviousGeneration() throws IOException {
+        Path productsFile = tempDir.resolve("Products.txt");
+        String header = "ProductType,CostPerSquareFoot,LaborCostPerSquareFoot\n";
+        AtomicFileWriter.write(productsFile, header + "Tile,3.50,4.15\n");
+        AtomicFileWriter.write(productsFile, header + "Tile,3.50,4.15\nWood,5.15,4.75\n");
+        Files.writeString(productsFile, header + "Tile,3.5");
+
+        ProductDaoImpl reloaded = new ProductDaoImpl(productsFile.toString());
+        assertEquals(new BigDecimal("3.50"), reloaded.getProductByType("Tile").getCostPerSquareFoot());
+        assertNull(reloaded.getProductByType("Wood"));
+        assertTrue(AtomicFileWriter.verify(productsFile));
+    }
+
 }
@@ -0,0 +1,69 @@
+package service;
+
+import dao.OrderDaoImpl;
+import dao.ProductDao;
+import dao.TaxDao;
+import modelDTO.Order;
+import modelDTO.Product;
+import modelDTO.Tax;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedWriter;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for BulkOrderImporter, run through OrderServiceImpl against a real OrderDaoImpl.
+ */
+public class BulkOrderImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testImportPersistsValidRowsAndRejectsTheRest() throws Exception {
+        ProductDao productDao = mock(ProductDao.class);
+        TaxDao taxDao = mock(TaxDao.class);
+        when(productDao.getProductByType("Tile")).thenReturn(new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")));
+        when(taxDao.getTaxByState("TX")).thenReturn(new Tax("TX", "Texas", new BigDecimal("4.45")));
+        OrderDaoImpl orderDao = new OrderDaoImpl(tempDir.resolve("orders").toString());
+        OrderServiceImpl orderService = new OrderServiceImpl(orderDao, productDao, taxDao);
+
+        Path csv = tempDir.resolve("partner.csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(csv)) {
+            writer.write("CustomerName,State,ProductType,Area,OrderDate\n");
+            for (int i = 0; i < 6000; i++) {
+                writer.write("Customer " + i + ",TX,Tile,200,0" + (i % 9 + 1) + "-15-2031\n");
+            }
+            writer.write("Bad Product,TX,Marble,200,01-15-2031\n");
+            writer.write("Bad Area,TX,Tile,-5,01-15-2031\n");
+            writer.write("Bad Date,TX,Tile,200,2031-01-15\n");
+            writer.write("Too Few Fields,TX\n");
+        }
+
+        Path rejects = tempDir.resolve("partner.rejects.csv");
+        BulkOrderImporter.ImportReport report = orderService.importOrders(csv.toString(), rejects.toString());
+
+        assertEquals(6004, report.getRowsRead());
+        assertEquals(6000, report.getImported());
+        assertEquals(4, report.getRejected());
+        List<Order> orders = orderDao.getAllOrders();
+        assertEquals(6000, orders.size());
+        Order imported = orders.get(0);
+        assertEquals(new BigDecimal("4.45"), imported.getTaxRate());
+        assertEquals(new BigDecimal("1598.09"), imported.getTotal());
+
+        List<String> rejected = Files.readAllLines(rejects);
+        assertEquals(BulkOrderImporter.REJECT_HEADER, rejected.get(0));
+        assertEquals(5, rejected.size());
+        assertTrue(rejected.stream().anyMatch(line -> line.startsWith("6002,Invalid product type!,Bad Product")));
+        assertTrue(rejected.stream().anyMatch(line -> line.endsWith(",Too Few Fields,TX")));
+        orderDao.close();
+    }
+}
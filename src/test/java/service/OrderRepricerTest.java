@@ -0,0 +1,155 @@
+package service;
+
+import dao.OrderDaoImpl;
+import dao.ProductDao;
+import dao.TaxDao;
+import modelDTO.Order;
+import modelDTO.Product;
+import modelDTO.Tax;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Test class for OrderRepricer, run through OrderServiceImpl against a real OrderDaoImpl.
+ */
+public class OrderRepricerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testRepricesOnlyOpenOrdersOfTheChangedState() throws Exception {
+        ProductDao productDao = mock(ProductDao.class);
+        TaxDao taxDao = mock(TaxDao.class);
+        when(productDao.getProductByType("Tile")).thenReturn(new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")));
+        when(taxDao.getTaxByState("TX")).thenReturn(new Tax("TX", "Texas", new BigDecimal("4.45")));
+        when(taxDao.getTaxByState("CA")).thenReturn(new Tax("CA", "California", new BigDecimal("25.00")));
+        OrderDaoImpl orderDao = new OrderDaoImpl(tempDir.resolve("orders").toString());
+        OrderServiceImpl orderService = new OrderServiceImpl(orderDao, productDao, taxDao);
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 10000; i++) {
+            orders.add(newOrder(i % 4 == 0 ? "CA" : "TX", format.parse("0" + (i % 9 + 1) + "-15-2031")));
+        }
+        orderService.addOrders(orders);
+        Order closed = newOrder("TX", format.parse("01-15-2020"));
+        orderService.addOrder(closed);
+
+        when(taxDao.getTaxByState("TX")).thenReturn(new Tax("TX", "Texas", new BigDecimal("6.25")));
+        Path reportPath = tempDir.resolve("reprice.csv");
+        OrderRepricer.RepricingReport report = orderService.repriceOpenOrders("TX", null, reportPath.toString());
+
+        assertEquals(7500, report.getScanned());
+        assertEquals(7500, report.getChanges().size());
+        assertEquals(0, report.getFailed());
+        assertEquals(new BigDecimal("27.54").multiply(BigDecimal.valueOf(7500)), report.getTotalDifference());
+
+        OrderDaoImpl reloaded = new OrderDaoImpl(tempDir.resolve("orders").toString());
+        Order repriced = reloaded.getOrderById(report.getChanges().get(0).getAfter().getOrderNumber());
+        assertEquals(new BigDecimal("6.25"), repriced.getTaxRate());
+        assertEquals(new BigDecimal("1625.63"), repriced.getTotal());
+        assertEquals(new BigDecimal("4.45"), reloaded.getOrderById(closed.getOrderNumber()).getTaxRate());
+        List<Order> california = reloaded.searchOrdersByState("CA");
+        assertEquals(new BigDecimal("25.00"), california.get(0).getTaxRate());
+
+        List<String> lines = Files.readAllLines(reportPath);
+        assertEquals(OrderRepricer.REPORT_HEADER, lines.get(0));
+        assertEquals(7501, lines.size());
+        assertTrue(lines.get(1).endsWith(",TX,Tile,4.45,6.25,3.50,3.50,4.15,4.15,1598.09,1625.63,27.54"));
+
+        // Nothing changes the second time
+        assertTrue(orderService.repriceOpenOrders("TX", "Tile", null).getChanges().isEmpty());
+        orderDao.close();
+        reloaded.close();
+    }
+
+    @Test
+    public void testTaxEditRepricesOpenOrdersThroughTheListener() throws Exception {
+        ProductDao productDao = mock(ProductDao.class);
+        TaxDao taxDao = mock(TaxDao.class);
+        when(productDao.getProductByType("Tile")).thenReturn(new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")));
+        when(taxDao.getTaxByState("TX")).thenReturn(new Tax("TX", "Texas", new BigDecimal("4.45")));
+        OrderDaoImpl orderDao = new OrderDaoImpl(tempDir.resolve("orders").toString());
+        OrderServiceImpl orderService = new OrderServiceImpl(orderDao, productDao, taxDao);
+        TaxServiceImpl taxService = new TaxServiceImpl(taxDao);
+        taxService.addPricingChangeListener(new OpenOrderRepricingListener(orderService, tempDir.resolve("reports").toString()));
+        Order open = newOrder("TX", new SimpleDateFormat("MM-dd-yyyy").parse("01-15-2031"));
+        orderService.addOrder(open);
+
+        Tax raised = new Tax("TX", "Texas", new BigDecimal("6.25"));
+        when(taxDao.updateTax(raised)).thenReturn(true);
+        when(taxDao.getTaxByState("TX")).thenReturn(raised);
+        taxService.editTax(raised);
+
+        assertEquals(new BigDecimal("1625.63"), orderDao.getOrderById(open.getOrderNumber()).getTotal());
+        assertEquals(1, tempDir.resolve("reports").toFile().listFiles().length);
+        orderDao.close();
+    }
+
+    @Test
+    public void testFailedRepricingDoesNotFailTheTaxEdit() {
+        TaxDao taxDao = mock(TaxDao.class);
+        OrderService orderService = mock(OrderService.class);
+        Tax raised = new Tax("TX", "Texas", new BigDecimal("6.25"));
+        when(taxDao.updateTax(raised)).thenReturn(true);
+        when(orderService.repriceOpenOrders(eq("TX"), isNull(), anyString()))
+                .thenThrow(new ServiceException("Error repricing open orders."));
+        TaxServiceImpl taxService = new TaxServiceImpl(taxDao);
+        taxService.addPricingChangeListener(new OpenOrderRepricingListener(orderService, tempDir.toString()));
+
+        assertDoesNotThrow(() -> taxService.editTax(raised));
+        verify(taxDao).updateTax(raised);
+        verify(orderService).repriceOpenOrders(eq("TX"), isNull(), anyString());
+    }
+
+    @Test
+    public void testOrdersRemovedBeforeSavingAreSkipped() throws Exception {
+        ProductDao productDao = mock(ProductDao.class);
+        TaxDao taxDao = mock(TaxDao.class);
+        when(productDao.getProductByType("Tile")).thenReturn(new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")));
+        when(taxDao.getTaxByState("TX")).thenReturn(new Tax("TX", "Texas", new BigDecimal("4.45")));
+        // Removes the first open order right after the repricer has read it
+        OrderDaoImpl orderDao = new OrderDaoImpl(tempDir.resolve("orders").toString()) {
+            @Override
+            public synchronized List<Order> searchOrdersFrom(Date from, String state, String productType) {
+                List<Order> found = super.searchOrdersFrom(from, state, productType);
+                removeOrder(found.get(0).getOrderNumber());
+                return found;
+            }
+        };
+        OrderServiceImpl orderService = new OrderServiceImpl(orderDao, productDao, taxDao);
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            orders.add(newOrder("TX", format.parse("01-15-2031")));
+        }
+        orderService.addOrders(orders);
+
+        when(taxDao.getTaxByState("TX")).thenReturn(new Tax("TX", "Texas", new BigDecimal("6.25")));
+        OrderRepricer.RepricingReport report = orderService.repriceOpenOrders("TX", null, null);
+
+        assertEquals(3, report.getScanned());
+        assertEquals(2, report.getChanges().size());
+        assertEquals(1, report.getFailed());
+        assertEquals(2, orderDao.getAllOrders().size());
+        for (Order order : orderDao.getAllOrders()) {
+            assertEquals(new BigDecimal("6.25"), order.getTaxRate());
+        }
+        orderDao.close();
+    }
+
+    private static Order newOrder(String state, Date orderDate) {
+        return new Order(null, "Customer", state, null, "Tile", new BigDecimal("200"), null, null, null, null, null, null, orderDate);
+    }
+}
@@ -1,6 +1,8 @@
 package service;
 
 import dao.OrderDao;
+import dao.OrderExporter;
+import dao.PartitionedOrderExporter;
 import dao.ProductDao;
 import dao.TaxDao;
 import modelDTO.Order;
@@ -159,6 +161,18 @@ public class OrderServiceImplTest {
         verify(orderDao, times(1)).searchOrdersByName("Jane Doe");
     }
 
+    /**Test methods for SearchOrdersByNameFuzzy
+     */
+    @Test
+    public void testSearchOrdersByNameFuzzy() {
+        when(orderDao.searchOrdersByNameFuzzy("jan", 5)).thenReturn(Collections.singletonList(sampleOrder));
+
+        List<Order> result = orderService.searchOrdersByNameFuzzy(" jan ", 5);
+
+        assertEquals(1, result.size());
+        verify(orderDao, times(1)).searchOrdersByNameFuzzy("jan", 5);
+    }
+
     /**Test methods for SearchOrdersByState
     */
     @Test
@@ -422,6 +436,123 @@ public class OrderServiceImplTest {
         assertNull(result);
     }
 
+    /**
+     * Test the getOrdersBetween method delegates the range to the DAO.
+     */
+    @Test
+    public void testGetOrdersBetween() {
+        Date from = new Date(0);
+        Date to = new Date();
+        when(orderDao.getOrdersBetween(from, to)).thenReturn(Collections.singletonList(sampleOrder));
+
+        List<Order> result = orderService.getOrdersBetween(from, to);
+
+        assertEquals(1, result.size());
+        verify(orderDao, times(1)).getOrdersBetween(from, to);
+    }
+
+    /**
+     * Test the getOrdersBetween method rejects a range whose start is after its end.
+     */
+    @Test
+    public void testGetOrdersBetweenWithReversedRange() {
+        Exception exception = assertThrows(ServiceException.class, () -> {
+            orderService.getOrdersBetween(new Date(), new Date(0));
+        });
+
+        assertTrue(exception.getMessage().contains("The start date must not be after the end date!"));
+        verify(orderDao, never()).getOrdersBetween(any(Date.class), any(Date.class));
+    }
+
+    /**
+     * Test the exportAllData method streams the export through the DAO in order-number order.
+     */
+    @Test
+    public void testExportAllData() {
+        when(orderDao.exportOrders("export.txt", OrderExporter.SortOrder.ORDER_NUMBER)).thenReturn(3L);
+
+        assertEquals(3L, orderService.exportAllData("export.txt"));
+        verify(orderDao, times(1)).exportOrders("export.txt", OrderExporter.SortOrder.ORDER_NUMBER);
+    }
+
+    /**
+     * Test the exportCompressed method maps the service partitioning onto the DAO export.
+     */
+    @Test
+    public void testExportCompressedMapsPartitioning() {
+        when(orderDao.exportPartitioned(anyString(), any())).thenReturn(Collections.emptyList());
+
+        assertEquals(0L, orderService.exportCompressed("backup", OrderService.ExportPartitioning.STATE));
+        assertEquals(0L, orderService.exportCompressed("backup", OrderService.ExportPartitioning.MONTH));
+        verify(orderDao, times(1)).exportPartitioned("backup", PartitionedOrderExporter.Partitioning.STATE);
+        verify(orderDao, times(1)).exportPartitioned("backup", PartitionedOrderExporter.Partitioning.MONTH);
+    }
+
+    /**
+     * Test the exportChanges method wraps DAO failures in a ServiceException.
+     */
+    @Test
+    public void testExportChangesWrapsDaoFailure() {
+        when(orderDao.exportChanges("delta.txt", "export.watermark")).thenThrow(new RuntimeException("Disk full"));
+
+        Exception exception = assertThrows(ServiceException.class, () -> {
+            orderService.exportChanges("delta.txt", "export.watermark");
+        });
+
+        assertTrue(exception.getMessage().contains("Error exporting order changes."));
+    }
+
+    /**
+     * Test the addOrders method validates every order, looks each product and state up once, and saves the valid ones together.
+     */
+    @Test
+    public void testAddOrdersReportsEachItem() {
+        List<Order> batch = Arrays.asList(
+                new Order(null, "A", "TX", null, "Tile", new BigDecimal("100"), null, null, null, null, null, null, new Date()),
+                new Order(null, "B", "TX", null, "Marble", new BigDecimal("100"), null, null, null, null, null, null, new Date()),
+                new Order(null, "C", "TX", null, "Tile", new BigDecimal("200"), null, null, null, null, null, null, new Date()));
+        when(orderDao.addOrders(anyList())).thenAnswer(invocation -> {
+            List<Order> saved = invocation.getArgument(0);
+            for (int i = 0; i < saved.size(); i++) {
+                saved.get(i).setOrderNumber(10 + i);
+            }
+            return saved;
+        });
+
+        List<BatchResult> results = orderService.addOrders(batch);
+
+        assertEquals(3, results.size());
+        assertTrue(results.get(0).isSuccess());
+        assertEquals(10, results.get(0).getOrderNumber());
+        assertFalse(results.get(1).isSuccess());
+        assertEquals("Invalid product type!", results.get(1).getMessage());
+        assertEquals(11, results.get(2).getOrderNumber());
+        assertEquals(new BigDecimal("6.25"), batch.get(2).getTaxRate());
+        verify(productDao, times(1)).getProductByType("Tile");
+        verify(taxDao, times(1)).getTaxByState("TX");
+        verify(orderDao, times(1)).addOrders(Arrays.asList(batch.get(0), batch.get(2)));
+    }
+
+    /**
+     * Test the editOrders and removeOrders methods skip orders that do not exist.
+     */
+    @Test
+    public void testEditAndRemoveOrdersSkipMissingOrders() throws Exception {
+        when(orderDao.getOrderById(1)).thenReturn(sampleOrder);
+        when(orderDao.getOrderById(2)).thenReturn(null);
+        Order missing = new Order(2, "B", "TX", null, "Tile", new BigDecimal("100"), null, null, null, null, null, null, new Date());
+
+        List<BatchResult> edited = orderService.editOrders(Arrays.asList(sampleOrder, missing));
+        List<BatchResult> removed = orderService.removeOrders(Arrays.asList(2, 1));
+
+        assertTrue(edited.get(0).isSuccess());
+        assertEquals("Order not found!", edited.get(1).getMessage());
+        verify(orderDao, times(1)).editOrders(Collections.singletonList(sampleOrder));
+        assertFalse(removed.get(0).isSuccess());
+        assertTrue(removed.get(1).isSuccess());
+        verify(orderDao, times(1)).removeOrders(Collections.singletonList(1));
+    }
+
     /**
      * Exception during DAO operations
      */
@@ -0,0 +1,94 @@
+package service;
+
+import modelDTO.Order;
+import modelDTO.Product;
+import modelDTO.Tax;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PriceMatrix. Quotes must equal PricingEngine before and after incremental changes.
+ */
+public class PriceMatrixTest {
+
+    @Test
+    public void testQuotesMatchPricingEngine() {
+        Random random = new Random(7);
+        List<Product> products = new ArrayList<>();
+        List<Tax> taxes = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            products.add(new Product("P" + i, BigDecimal.valueOf(random.nextInt(5000), 2), BigDecimal.valueOf(random.nextInt(5000), 2)));
+            taxes.add(new Tax("S" + i, "State " + i, BigDecimal.valueOf(random.nextInt(1500), 2)));
+        }
+        PriceMatrix matrix = new PriceMatrix(products, taxes);
+
+        long[] quoted = new long[4];
+        long[] expected = new long[4];
+        for (int i = 0; i < 5000; i++) {
+            Product product = products.get(random.nextInt(products.size()));
+            Tax tax = taxes.get(random.nextInt(taxes.size()));
+            long area = 10000 + random.nextInt(10_000_000);
+            assertTrue(matrix.quote(product.getProductType(), tax.getStateAbbreviation(), area, quoted));
+            PricingEngine.price(area, PricingEngine.toHundredths(product.getCostPerSquareFoot()),
+                    PricingEngine.toHundredths(product.getLaborCostPerSquareFoot()),
+                    PricingEngine.toHundredths(tax.getTaxRate()), expected);
+            assertArrayEquals(expected, quoted);
+        }
+        assertFalse(matrix.quote("Marble", "S0", 100, quoted));
+        assertFalse(matrix.quote("P0", "ZZ", 100, quoted));
+    }
+
+    @Test
+    public void testServiceChangesUpdateTheMatrix() {
+        Product tile = new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15"));
+        Tax texas = new Tax("TX", "Texas", new BigDecimal("4.45"));
+        PriceMatrix matrix = new PriceMatrix(Arrays.asList(tile), Arrays.asList(texas));
+        Order order = newOrder("Tile", "TX");
+        matrix.price(order);
+        assertEquals(new BigDecimal("1598.09"), order.getTotal());
+
+        matrix.taxChanged("TX", new Tax("TX", "Texas", new BigDecimal("6.25")));
+        matrix.productChanged("Wood", new Product("Wood", new BigDecimal("5.15"), new BigDecimal("4.75")));
+        matrix.taxChanged("CA", new Tax("CA", "California", new BigDecimal("25.00")));
+        order = newOrder("Tile", "TX");
+        matrix.price(order);
+        assertEquals(new BigDecimal("6.25"), order.getTaxRate());
+        assertEquals(new BigDecimal("95.63"), order.getTax());      // 95.625 exactly
+        assertEquals(new BigDecimal("1625.63"), order.getTotal());
+        order = newOrder("Wood", "CA");
+        matrix.price(order);
+        assertEquals(new BigDecimal("1030.00"), order.getMaterialCost());
+        assertEquals(new BigDecimal("2475.00"), order.getTotal());
+
+        matrix.productChanged("Tile", null);
+        matrix.taxChanged("TX", null);
+        ServiceException removed = assertThrows(ServiceException.class, () -> matrix.price(newOrder("Tile", "CA")));
+        assertEquals("Invalid product type!", removed.getMessage());
+        assertThrows(ServiceException.class, () -> matrix.price(newOrder("Wood", "TX")));
+        order = newOrder("Wood", "CA");
+        matrix.price(order);
+        assertEquals(new BigDecimal("2475.00"), order.getTotal());
+    }
+
+    @Test
+    public void testRatesWithMoreThanTwoDecimalsArePricedExactly() {
+        PriceMatrix matrix = new PriceMatrix(Arrays.asList(new Product("Tile", new BigDecimal("1.005"), BigDecimal.ZERO)),
+                Arrays.asList(new Tax("TX", "Texas", new BigDecimal("10"))));
+        Order order = newOrder("Tile", "TX");
+        matrix.price(order);
+        assertEquals(new BigDecimal("201.00"), order.getMaterialCost());
+        assertEquals(new BigDecimal("221.10"), order.getTotal());
+    }
+
+    private static Order newOrder(String productType, String state) {
+        return new Order(null, "A", state, null, productType, new BigDecimal("200"), null, null, null, null, null, null, new Date());
+    }
+}
@@ -0,0 +1,93 @@
+package service;
+
+import modelDTO.Order;
+import modelDTO.Tax;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PricingEngine. The fixed-point results must equal the BigDecimal calculation of Order rounded to cents.
+ */
+public class PricingEngineTest {
+
+    @Test
+    public void testFixedPointMatchesBigDecimalRoundedToCents() {
+        Random random = new Random(42);
+        int count = 20000;
+        long[] area = new long[count];
+        long[] cost = new long[count];
+        long[] labor = new long[count];
+        long[] rate = new long[count];
+        for (int i = 0; i < count; i++) {
+            area[i] = 10000 + random.nextInt(10_000_000);
+            cost[i] = random.nextInt(5000);
+            labor[i] = random.nextInt(5000);
+            rate[i] = random.nextInt(1500);
+        }
+        long[] material = new long[count];
+        long[] laborCost = new long[count];
+        long[] tax = new long[count];
+        long[] total = new long[count];
+        PricingEngine.priceAll(area, cost, labor, rate, material, laborCost, tax, total, count);
+
+        for (int i = 0; i < count; i++) {
+            Order order = new Order(null, "A", "TX", null, "Tile", BigDecimal.valueOf(area[i], 2), BigDecimal.valueOf(cost[i], 2),
+                    BigDecimal.valueOf(labor[i], 2), null, null, null, null, new Date());
+            Tax stateTax = new Tax("TX", "Texas", BigDecimal.valueOf(rate[i], 2));
+            assertEquals(cents(order.calculateMaterialCost()), material[i]);
+            assertEquals(cents(order.calculateLaborCost()), laborCost[i]);
+            assertEquals(cents(order.calculateTax(stateTax)), tax[i]);
+            assertEquals(cents(order.calculateTotal(stateTax)), total[i]);
+        }
+    }
+
+    @Test
+    public void testOrderCalculationsKeepTheScaleOfTheRate() {
+        Order order = new Order(null, "A", "TX", null, "Tile", new BigDecimal("200"), new BigDecimal("3.50"),
+                new BigDecimal("4.15"), null, null, null, null, new Date());
+        BigDecimal cost = new BigDecimal("700.00").add(new BigDecimal("830.00"));
+        for (String rate : new String[] {"7", "7.00", "4.45", "6.25", "0"}) {
+            Tax stateTax = new Tax("TX", "Texas", new BigDecimal(rate));
+            BigDecimal expectedTax = cost.multiply(stateTax.getTaxRate().divide(new BigDecimal("100")));
+            assertEquals(expectedTax, order.calculateTax(stateTax));
+            assertEquals(cost.add(expectedTax), order.calculateTotal(stateTax));
+        }
+    }
+
+    @Test
+    public void testOrderPricingRoundsHalfUpToCents() {
+        Order order = new Order(null, "A", "TX", null, "Tile", new BigDecimal("200"), null, null, null, null, null, null, new Date());
+
+        PricingEngine.price(order, new BigDecimal("3.50"), new BigDecimal("4.15"), new BigDecimal("4.45"));
+
+        assertEquals(new BigDecimal("700.00"), order.getMaterialCost());
+        assertEquals(new BigDecimal("830.00"), order.getLaborCost());
+        assertEquals(new BigDecimal("68.09"), order.getTax());  // 68.085 exactly
+        assertEquals(new BigDecimal("1598.09"), order.getTotal());
+    }
+
+    @Test
+    public void testInputsOutsideTheFixedPointRangeFallBackToBigDecimal() {
+        Order precise = new Order(null, "A", "TX", null, "Tile", new BigDecimal("100.125"), null, null, null, null, null, null, new Date());
+        PricingEngine.price(precise, new BigDecimal("1.00"), new BigDecimal("0"), new BigDecimal("10"));
+        assertEquals(new BigDecimal("100.13"), precise.getMaterialCost());
+        assertEquals(new BigDecimal("110.14"), precise.getTotal());
+
+        long[] result = new long[4];
+        PricingEngine.price(Long.MAX_VALUE / 10, 100, 0, 0, result);
+        assertEquals(Long.MAX_VALUE / 10, result[PricingEngine.MATERIAL]);
+        assertEquals(-3, PricingEngine.roundHalfUp(-250, 100));
+        assertEquals(Long.MIN_VALUE, PricingEngine.toHundredths(new BigDecimal("1.005")));
+        assertEquals(1000, PricingEngine.toHundredths(new BigDecimal("1E+1")));
+    }
+
+    private static long cents(BigDecimal value) {
+        return value.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,72 @@
+package service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Test class for the PricingKernel implementations. Every kernel must give exactly the results of PricingEngine.priceAll.
+ * The Vector API kernel is tested through PricingEngine.bulkKernel() when the build runs with the vector profile,
+ * which compiles it and adds the jdk.incubator.vector module to the test JVM.
+ */
+public class PricingKernelTest {
+
+    @Test
+    public void testKernelsMatchPricingEngine() {
+        Random random = new Random(11);
+        int count = 50_003;  // Leaves a tail that does not fill a vector
+        long[] area = new long[count];
+        long[] cost = new long[count];
+        long[] labor = new long[count];
+        long[] rate = new long[count];
+        for (int i = 0; i < count; i++) {
+            area[i] = random.nextInt(10_000_000);
+            cost[i] = random.nextInt(100_000);
+            labor[i] = random.nextInt(100_000);
+            rate[i] = random.nextInt(2000);
+        }
+        // Rows outside the vector bounds, including ones that overflow a long, go through the scalar path
+        area[17] = Long.MAX_VALUE / 10;
+        cost[17] = 100;
+        labor[17] = 0;
+        rate[17] = 0;
+        cost[18] = 1L << 40;
+        rate[19] = 20_000;
+        labor[20] = -415;
+        // Exact halves at both rounding steps
+        area[21] = 1;
+        cost[21] = 50;
+        area[22] = 20000;
+        cost[22] = 350;
+        labor[22] = 415;
+        rate[22] = 445;
+
+        long[][] expected = new long[4][count];
+        PricingEngine.priceAll(area, cost, labor, rate, expected[0], expected[1], expected[2], expected[3], count);
+        assertEquals(6809, expected[2][22]);  // 68.085 tax on 1530.00 at 4.45%
+        assertArrayEqualsByRow(expected, price(new ScalarPricingKernel(), area, cost, labor, rate, count));
+        assertArrayEqualsByRow(expected, price(PricingEngine.bulkKernel(), area, cost, labor, rate, count));
+    }
+
+    @Test
+    public void testBulkKernelUsesTheVectorApiWhenTheModuleIsPresent() {
+        assumeTrue(ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent());
+        assumeTrue(Thread.currentThread().getContextClassLoader().getResource("service/VectorPricingKernel.class") != null);
+        assertTrue(PricingEngine.bulkKernel().getName().startsWith("vector-"));
+    }
+
+    private static long[][] price(PricingKernel kernel, long[] area, long[] cost, long[] labor, long[] rate, int count) {
+        long[][] results = new long[4][count];
+        kernel.priceAll(area, cost, labor, rate, results[0], results[1], results[2], results[3], count);
+        return results;
+    }
+
+    private static void assertArrayEqualsByRow(long[][] expected, long[][] actual) {
+        for (int column = 0; column < expected.length; column++) {
+            assertArrayEquals(expected[column], actual[column], "column " + column);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package service;
+
+import modelDTO.Order;
+import modelDTO.Product;
+import modelDTO.Tax;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test class for PricingSimulator. Scenario sums must equal the orders priced one by one through PricingEngine.
+ */
+public class PricingSimulatorTest {
+
+    private final List<Product> products = Arrays.asList(
+            new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")),
+            new Product("Wood", new BigDecimal("5.15"), new BigDecimal("4.75")));
+    private final List<Tax> taxes = Arrays.asList(
+            new Tax("TX", "Texas", new BigDecimal("4.45")),
+            new Tax("CA", "California", new BigDecimal("25.00")));
+
+    @Test
+    public void testScenarioDeltasMatchRepricingEachOrder() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("MM-dd-yyyy");
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 150000; i++) {
+            orders.add(new Order(i + 1, "Customer", i % 3 == 0 ? "CA" : "TX", null, i % 2 == 0 ? "Tile" : "Wood",
+                    BigDecimal.valueOf(10000 + i % 977, 2), null, null, null, null, null, new BigDecimal("1.00"),
+                    format.parse(i % 2 == 0 ? "01-15-2024" : "02-15-2024")));
+        }
+        orders.add(new Order(0, "Unknown", "ZZ", null, "Tile", new BigDecimal("100"), null, null, null, null, null, null,
+                format.parse("01-15-2024")));
+        PricingSimulator simulator = new PricingSimulator(orders, products, taxes, PricingEngine.bulkKernel(), 4);
+
+        Tax proposedTexas = new Tax("TX", "Texas", new BigDecimal("6.25"));
+        PricingSimulator.SimulationResult result = simulator.simulate(Collections.emptyList(), Arrays.asList(proposedTexas));
+
+        assertEquals(150000, result.getPriced());
+        assertEquals(1, result.getSkipped());
+        BigDecimal expectedBaseline = BigDecimal.ZERO;
+        BigDecimal expectedTexas = BigDecimal.ZERO;
+        for (Order order : orders.subList(0, 150000)) {
+            Product product = order.getProductType().equals("Tile") ? products.get(0) : products.get(1);
+            Tax tax = order.getState().equals("CA") ? taxes.get(1) : taxes.get(0);
+            BigDecimal before = total(order, product, tax);
+            expectedBaseline = expectedBaseline.add(before);
+            if (order.getState().equals("TX")) {
+                expectedTexas = expectedTexas.add(total(order, product, proposedTexas).subtract(before));
+            }
+        }
+        assertEquals(expectedBaseline, result.getOverall().getBaselineTotal());
+        assertEquals(expectedTexas, result.getOverall().getTotalDifference());
+        assertEquals(expectedTexas, result.getByState().get("TX").getTotalDifference());
+        assertEquals(0, result.getByState().get("CA").getTotalDifference().signum());
+        assertEquals(Arrays.asList("2024-01", "2024-02"), new ArrayList<>(result.getByMonth().keySet()));
+        assertEquals(75000, result.getByProductType().get("Wood").getOrders());
+        assertEquals(new BigDecimal("1.00"), orders.get(0).getTotal());  // Nothing is priced in place
+
+        // A scenario without overrides changes nothing, and scenarios do not affect each other
+        PricingSimulator.SimulationResult unchanged = simulator.simulate(Collections.emptyList(), Collections.emptyList());
+        assertEquals(0, unchanged.getOverall().getTotalDifference().signum());
+        PricingSimulator.SimulationResult cheaperTile = simulator.simulate(
+                Arrays.asList(new Product("Tile", new BigDecimal("3.00"), new BigDecimal("4.15")), new Product("Marble", BigDecimal.ONE, BigDecimal.ONE)),
+                Collections.emptyList());
+        assertTrue(cheaperTile.getByProductType().get("Tile").getTotalDifference().signum() < 0);
+        assertEquals(0, cheaperTile.getByProductType().get("Wood").getTotalDifference().signum());
+        assertTrue(cheaperTile.getByState().get("TX").getTaxDifference().signum() < 0);
+    }
+
+    private static BigDecimal total(Order order, Product product, Tax tax) {
+        Order copy = new Order(null, "A", tax.getStateAbbreviation(), null, product.getProductType(), order.getArea(),
+                null, null, null, null, null, null, order.getOrderDate());
+        PricingEngine.price(copy, product.getCostPerSquareFoot(), product.getLaborCostPerSquareFoot(), tax.getTaxRate());
+        return copy.getTotal();
+    }
+}
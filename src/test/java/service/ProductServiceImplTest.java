@@ -2,6 +2,7 @@ package service;
 
 import dao.ProductDao;
 import modelDTO.Product;
+import modelDTO.Tax;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
@@ -146,6 +147,28 @@ public class ProductServiceImplTest {
         verify(productDao, times(1)).removeProductByType("Tile");
     }
 
+    /**
+     * Test case to verify that a registered price matrix follows product changes.
+     */
+    @Test
+    public void testProductChangesUpdatePriceMatrix() {
+        PriceMatrix matrix = new PriceMatrix(Arrays.asList(), Arrays.asList(new Tax("TX", "Texas", new BigDecimal("0"))));
+        productService.addPricingChangeListener(matrix);
+        long[] quote = new long[4];
+
+        productService.addProduct(new Product("Tile", new BigDecimal("3.50"), new BigDecimal("4.15")));
+        assertTrue(matrix.quote("Tile", "TX", 100, quote));
+        assertEquals(765, quote[PricingEngine.TOTAL]);
+
+        when(productDao.updateProduct(any(Product.class))).thenReturn(true);
+        productService.editProduct(new Product("Tile", new BigDecimal("4.00"), new BigDecimal("4.15")));
+        assertTrue(matrix.quote("Tile", "TX", 100, quote));
+        assertEquals(815, quote[PricingEngine.TOTAL]);
+
+        productService.removeProduct("Tile");
+        assertFalse(matrix.quote("Tile", "TX", 100, quote));
+    }
+
     /**
      * Test case to verify exception handling when fetching all products.
      * It ensures the service throws a ServiceException when the underlying DAO throws an exception.
@@ -0,0 +1,83 @@
+package service;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The VectorPricingKernel class prices columns several rows at a time with the JDK Vector API
+ * (the jdk.incubator.vector module), using the widest long vectors the CPU supports.
+ *
+ * Every product is computed exactly in 64-bit lanes. The half-up divisions by 100 and 1,000,000
+ * have no vector instruction, so the quotient is estimated in double lanes and corrected by one
+ * in either direction, which makes it exact. Inputs are checked per vector against bounds that
+ * rule out overflow (areas below 2^26 hundredths, costs below 2^20 cents, rates below 2^14 basis
+ * points); a vector with any row outside them, and the rows left over at the end, are priced by
+ * PricingEngine, so the results always equal PricingEngine.priceAll.
+ *
+ * It lives in src/vector/java and is only compiled by the vector and benchmark Maven profiles.
+ * Only create this class through PricingEngine.bulkKernel(), which checks that the module is present.
+ */
+public class VectorPricingKernel implements PricingKernel {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+
+    // Exclusive bounds under which (area * (cost + labor)) * (10000 + rate) fits in a long
+    private static final long AREA_BOUND = 1L << 26;
+    private static final long CENTS_BOUND = 1L << 20;
+    private static final long BASIS_POINTS_BOUND = 1L << 14;
+
+    @Override
+    public void priceAll(long[] areaHundredths, long[] costCents, long[] laborCents, long[] taxBasisPoints,
+                         long[] materialCost, long[] laborCost, long[] tax, long[] total, int count) {
+        int lanes = LONGS.length();
+        int upperBound = LONGS.loopBound(count);
+        int i = 0;
+        for (; i < upperBound; i += lanes) {
+            LongVector area = LongVector.fromArray(LONGS, areaHundredths, i);
+            LongVector cost = LongVector.fromArray(LONGS, costCents, i);
+            LongVector labor = LongVector.fromArray(LONGS, laborCents, i);
+            LongVector rate = LongVector.fromArray(LONGS, taxBasisPoints, i);
+            // Unsigned comparisons also catch negative values
+            VectorMask<Long> outside = area.compare(VectorOperators.UNSIGNED_GE, AREA_BOUND)
+                    .or(cost.compare(VectorOperators.UNSIGNED_GE, CENTS_BOUND))
+                    .or(labor.compare(VectorOperators.UNSIGNED_GE, CENTS_BOUND))
+                    .or(rate.compare(VectorOperators.UNSIGNED_GE, BASIS_POINTS_BOUND));
+            if (outside.anyTrue()) {
+                PricingEngine.priceAll(areaHundredths, costCents, laborCents, taxBasisPoints,
+                        materialCost, laborCost, tax, total, i, i + lanes);
+                continue;
+            }
+            LongVector material = area.mul(cost);
+            LongVector laborAmount = area.mul(labor);
+            LongVector costAmount = material.add(laborAmount);
+            LongVector taxAmount = costAmount.mul(rate);
+            LongVector totalAmount = costAmount.mul(10_000L).add(taxAmount);
+            roundHalfUp(material, 100).intoArray(materialCost, i);
+            roundHalfUp(laborAmount, 100).intoArray(laborCost, i);
+            roundHalfUp(taxAmount, 1_000_000).intoArray(tax, i);
+            roundHalfUp(totalAmount, 1_000_000).intoArray(total, i);
+        }
+        PricingEngine.priceAll(areaHundredths, costCents, laborCents, taxBasisPoints,
+                materialCost, laborCost, tax, total, i, count);
+    }
+
+    /**
+     * Divides non-negative lanes by a positive constant, rounding half up.
+     */
+    private static LongVector roundHalfUp(LongVector numerator, long denominator) {
+        LongVector shifted = numerator.add(denominator / 2);
+        DoubleVector estimate = (DoubleVector) shifted.convert(VectorOperators.L2D, 0);
+        LongVector quotient = (LongVector) estimate.div((double) denominator).convert(VectorOperators.D2L, 0);
+        LongVector remainder = shifted.sub(quotient.mul(denominator));
+        return quotient.sub(1L, remainder.compare(VectorOperators.LT, 0L))
+                .add(1L, remainder.compare(VectorOperators.GE, denominator));
+    }
+
+    @Override
+    public String getName() {
+        return "vector-" + LONGS.length() + "x64";
+    }
+}